@@ -0,0 +1,126 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Locations of the corpus files the benchmarks read, and loaders for them.
+ *
+ * Paths default to the repository layout relative to the benchmarks/ directory and can be
+ * overridden with -Dbench.data.dir=/path/to/repository.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static String baseDir() {
+        return System.getProperty("bench.data.dir", "..");
+    }
+
+    static String inputDir() {
+        return baseDir() + "/inputs";
+    }
+
+    static String task1Output() {
+        return baseDir() + "/output/part-r-00000";
+    }
+
+    static String task2Output() {
+        return baseDir() + "/output/task2/part-r-00000";
+    }
+
+    /**
+     * Every line of every raw book in the input directory, in file order
+     */
+    static List<Text> rawLines() throws IOException {
+        List<Text> lines = new ArrayList<>();
+        for (List<Text> book : rawBooks()) {
+            lines.addAll(book);
+        }
+        return lines;
+    }
+
+    /**
+     * The lines of each raw book in the input directory, one list per book in file order
+     */
+    static List<List<Text>> rawBooks() throws IOException {
+        File[] books = new File(inputDir()).listFiles();
+        if (books == null) {
+            throw new IOException("No input directory at " + inputDir());
+        }
+        Arrays.sort(books);
+
+        List<List<Text>> lines = new ArrayList<>();
+        for (File book : books) {
+            List<Text> bookLines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(book), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    bookLines.add(new Text(line));
+                }
+            }
+            lines.add(bookLines);
+        }
+        return lines;
+    }
+
+    /**
+     * Every line of a text file, such as a task output
+     */
+    static List<Text> lines(String path) throws IOException {
+        List<Text> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(new Text(line));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Task 1 output cut into segmented records (bookId,title,year [tab] segmentNo [tab] text),
+     * keeping at most wordsPerBook words of every book
+     */
+    static List<Text> task1Segments(int wordsPerBook, int wordsPerSegment) throws IOException {
+        List<Text> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(task1Output()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length < 2) {
+                    continue;
+                }
+
+                String[] words = parts[1].trim().split("\\s+");
+                int limit = Math.min(words.length, wordsPerBook);
+                int segmentNo = 0;
+                for (int start = 0; start < limit; start += wordsPerSegment) {
+                    int end = Math.min(limit, start + wordsPerSegment);
+                    StringBuilder segment = new StringBuilder();
+                    for (int i = start; i < end; i++) {
+                        if (i > start) {
+                            segment.append(' ');
+                        }
+                        segment.append(words[i]);
+                    }
+                    records.add(new Text(parts[0] + "\t" + segmentNo++ + "\t" + segment));
+                }
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,270 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task5.BigramCountUDF;
+import task5.BigramUDF;
+import task5.BigramUDTF;
+import task5.VectorBigramCount;
+
+/**
+ * Rows per second of the Task 5 bigram functions over a lemmatized_words table built from the
+ * Task 2 output (output/task2/part-r-00000): the lemmas of each (book, year) in file order,
+ * 50 per row.
+ *
+ * legacyUdf runs BigramUDF and walks the returned map, as explode() would; udtf runs
+ * BigramUDTF and counts the forwarded rows; countRowMode and countVectorized run bigram_count
+ * one row at a time and one VectorizedRowBatch at a time. Every invocation processes
+ * ROWS_PER_INVOCATION rows, so the reported ops/s are rows/s. Setup checks that BigramUDTF and
+ * bigram_count agree with BigramUDF on every row.
+ *
+ * Run: java -jar target/benchmarks.jar BigramUDFBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+// Hive 2.3 reflects into java.net.URI, which Java 9+ only allows when the package is opened
+@Fork(value = 1, jvmArgsAppend = {"-XX:+IgnoreUnrecognizedVMOptions", "--add-opens=java.base/java.net=ALL-UNNAMED"})
+public class BigramUDFBenchmark {
+    private static final int WORDS_PER_ROW = 50;
+    private static final int ROWS_PER_INVOCATION = VectorizedRowBatch.DEFAULT_SIZE;
+
+    private List<Text> rows;
+    private int next = 0;
+
+    private BigramUDF legacy;
+    private BigramUDTF udtf;
+    private final Object[] udtfArgs = new Object[1];
+    private long forwarded;
+
+    private BigramCountUDF countUdf;
+    private final RowArgument countArg = new RowArgument();
+    private final GenericUDF.DeferredObject[] countArgs = {countArg};
+
+    private VectorBigramCount.Col vectorCount;
+    private List<VectorizedRowBatch> batches;
+    private int nextBatch = 0;
+
+    @Setup(Level.Trial)
+    public void loadRows() throws Exception {
+        rows = task2Rows();
+        // Whole batches only, so every invocation sees the same number of rows
+        List<Text> copies = new ArrayList<>(rows);
+        while (copies.size() % ROWS_PER_INVOCATION != 0) {
+            copies.add(rows.get(copies.size() % rows.size()));
+        }
+        rows = copies;
+
+        legacy = new BigramUDF();
+
+        udtf = new BigramUDTF();
+        udtf.initialize(ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("clean_text"),
+                Collections.<ObjectInspector>singletonList(PrimitiveObjectInspectorFactory.writableStringObjectInspector)));
+        udtf.setCollector(row -> forwarded++);
+
+        countUdf = new BigramCountUDF();
+        countUdf.initialize(new ObjectInspector[] {PrimitiveObjectInspectorFactory.writableStringObjectInspector});
+
+        vectorCount = new VectorBigramCount.Col(0, 1);
+        batches = new ArrayList<>();
+        for (int start = 0; start < rows.size(); start += ROWS_PER_INVOCATION) {
+            VectorizedRowBatch batch = new VectorizedRowBatch(2, ROWS_PER_INVOCATION);
+            BytesColumnVector text = new BytesColumnVector(ROWS_PER_INVOCATION);
+            batch.cols[0] = text;
+            batch.cols[1] = new LongColumnVector(ROWS_PER_INVOCATION);
+            for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+                Text row = rows.get(start + i);
+                text.setRef(i, row.getBytes(), 0, row.getLength());
+            }
+            batch.size = ROWS_PER_INVOCATION;
+            batches.add(batch);
+        }
+
+        verify();
+        System.out.printf("%nRows: %d, %d lemmas each%n", rows.size(), WORDS_PER_ROW);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long legacyUdf() {
+        long bigrams = 0;
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            Map<Text, Integer> counts = legacy.evaluate(nextRow());
+            if (counts != null) {
+                for (Map.Entry<Text, Integer> entry : counts.entrySet()) {
+                    bigrams += entry.getKey().getLength() + entry.getValue();
+                }
+            }
+        }
+        return bigrams;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long udtf() throws HiveException {
+        forwarded = 0;
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            udtfArgs[0] = nextRow();
+            udtf.process(udtfArgs);
+        }
+        return forwarded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long countRowMode() throws HiveException {
+        long bigrams = 0;
+        for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+            countArg.set(nextRow());
+            bigrams += ((IntWritable) countUdf.evaluate(countArgs)).get();
+        }
+        return bigrams;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public long countVectorized() {
+        VectorizedRowBatch batch = batches.get(nextBatch);
+        nextBatch = (nextBatch + 1) % batches.size();
+        vectorCount.evaluate(batch);
+        return ((LongColumnVector) batch.cols[1]).vector[0];
+    }
+
+    private Text nextRow() {
+        Text row = rows.get(next);
+        next = (next + 1) % rows.size();
+        return row;
+    }
+
+    private void verify() throws HiveException {
+        Map<String, Integer> udtfCounts = new HashMap<>();
+        udtf.setCollector(row -> {
+            Object[] fields = (Object[]) row;
+            udtfCounts.put(fields[0].toString(), ((IntWritable) fields[1]).get());
+        });
+
+        for (VectorizedRowBatch batch : batches) {
+            vectorCount.evaluate(batch);
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Integer> expected = new HashMap<>();
+            Map<Text, Integer> counts = legacy.evaluate(rows.get(i));
+            int total = 0;
+            for (Map.Entry<Text, Integer> entry : counts.entrySet()) {
+                expected.put(entry.getKey().toString(), entry.getValue());
+                total += entry.getValue();
+            }
+
+            udtfCounts.clear();
+            udtfArgs[0] = rows.get(i);
+            udtf.process(udtfArgs);
+            if (!udtfCounts.equals(expected)) {
+                throw new IllegalStateException("BigramUDTF differs from BigramUDF on row " + i + ": " + rows.get(i));
+            }
+
+            countArg.set(rows.get(i));
+            long rowCount = ((IntWritable) countUdf.evaluate(countArgs)).get();
+            long vectorized = ((LongColumnVector) batches.get(i / ROWS_PER_INVOCATION).cols[1])
+                    .vector[i % ROWS_PER_INVOCATION];
+            if (rowCount != total || vectorized != total) {
+                throw new IllegalStateException("bigram_count differs from BigramUDF on row " + i + ": " + rows.get(i));
+            }
+        }
+
+        udtf.setCollector(row -> forwarded++);
+    }
+
+    /**
+     * Argument that is set to each row in turn
+     */
+    private static class RowArgument implements GenericUDF.DeferredObject {
+        private Text row;
+
+        void set(Text row) {
+            this.row = row;
+        }
+
+        @Override
+        public void prepare(int version) {
+        }
+
+        @Override
+        public Object get() {
+            return row;
+        }
+    }
+
+    /**
+     * The lemmas of every (book, year) of the Task 2 output, WORDS_PER_ROW to a row
+     */
+    private static List<Text> task2Rows() throws IOException {
+        List<Text> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(BenchmarkData.task2Output()))) {
+            String group = null;
+            StringBuilder row = new StringBuilder();
+            int words = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Format: bookId [tab] lemma [tab] year [tab] frequency
+                String[] parts = line.split("\t");
+                if (parts.length < 4) {
+                    continue;
+                }
+
+                String key = parts[0] + "\t" + parts[2];
+                if (!key.equals(group) || words == WORDS_PER_ROW) {
+                    if (words > 0) {
+                        rows.add(new Text(row.toString()));
+                    }
+                    group = key;
+                    row.setLength(0);
+                    words = 0;
+                }
+                if (words > 0) {
+                    row.append(' ');
+                }
+                row.append(parts[1]);
+                words++;
+            }
+            if (words > 0) {
+                rows.add(new Text(row.toString()));
+            }
+        }
+        return rows;
+    }
+}
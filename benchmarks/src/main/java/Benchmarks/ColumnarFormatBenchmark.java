@@ -0,0 +1,209 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task2.LemmaFrequencyInputFormat;
+import Task2.LemmaFrequencyOutputFormat;
+import Task2.WordFreqLemmatizationMapper.LemmaKey;
+
+/**
+ * Read benchmark for the Task 2 results in the formats a downstream stage can get them in.
+ *
+ * The Task 2 output (output/task2/part-r-00000) is scaled up by copying every book
+ * {@code scale} times and written once as text, once as a block-compressed SequenceFile of
+ * bookId -> lemma [tab] year [tab] frequency (what the pipeline passed on before), and once
+ * with LemmaFrequencyOutputFormat. Each benchmark reads one file back with its record reader
+ * and takes the book ID, lemma, year and frequency of every record, parsing them where the
+ * format stores text. The file sizes are printed during setup.
+ *
+ * Run: java -jar target/benchmarks.jar ColumnarFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ColumnarFormatBenchmark {
+
+    @Param({"20"})
+    private int scale;
+
+    private Path dir;
+    private Configuration conf;
+    private org.apache.hadoop.fs.Path textFile;
+    private org.apache.hadoop.fs.Path sequenceFile;
+    private org.apache.hadoop.fs.Path columnarFile;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws Exception {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(BenchmarkData.task2Output()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Format: bookId [tab] lemma [tab] year [tab] frequency
+                String[] parts = line.split("\t");
+                if (parts.length >= 4) {
+                    rows.add(parts);
+                }
+            }
+        }
+
+        dir = Files.createTempDirectory("columnar-bench");
+        conf = new Configuration();
+        textFile = new org.apache.hadoop.fs.Path(dir.resolve("lemmas.txt").toUri());
+        sequenceFile = new org.apache.hadoop.fs.Path(dir.resolve("lemmas.seq").toUri());
+
+        conf.set(FileOutputFormat.OUTDIR, dir.resolve("columnar").toUri().toString());
+        conf.setBoolean(FileOutputFormat.COMPRESS, true);
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf,
+                new TaskAttemptID("bench", 1, TaskType.REDUCE, 0, 0));
+
+        LemmaKey key = new LemmaKey();
+        IntWritable frequency = new IntWritable();
+        Text bookId = new Text();
+        Text value = new Text();
+        try (Writer text = Files.newBufferedWriter(dir.resolve("lemmas.txt"), StandardCharsets.UTF_8);
+                SequenceFile.Writer sequence = SequenceFile.createWriter(conf,
+                        SequenceFile.Writer.file(sequenceFile),
+                        SequenceFile.Writer.keyClass(Text.class),
+                        SequenceFile.Writer.valueClass(Text.class),
+                        SequenceFile.Writer.compression(SequenceFile.CompressionType.BLOCK, new DefaultCodec()))) {
+            RecordWriter<LemmaKey, IntWritable> columnar = new LemmaFrequencyOutputFormat().getRecordWriter(context);
+
+            // Rows are in book order; each copy of a book stays contiguous like reducer output
+            int start = 0;
+            while (start < rows.size()) {
+                int end = start;
+                while (end < rows.size() && rows.get(end)[0].equals(rows.get(start)[0])) {
+                    end++;
+                }
+                for (int copy = 0; copy < scale; copy++) {
+                    String id = rows.get(start)[0] + "-" + copy;
+                    for (int i = start; i < end; i++) {
+                        String[] row = rows.get(i);
+                        text.write(id + "\t" + row[1] + "\t" + row[2] + "\t" + row[3] + "\n");
+
+                        bookId.set(id);
+                        value.set(row[1] + "\t" + row[2] + "\t" + row[3]);
+                        sequence.append(bookId, value);
+
+                        key.set(id, row[1], Integer.parseInt(row[2]));
+                        frequency.set(Integer.parseInt(row[3]));
+                        columnar.write(key, frequency);
+                    }
+                }
+                start = end;
+            }
+            columnar.close(context);
+        }
+
+        try (Stream<Path> files = Files.walk(dir.resolve("columnar"))) {
+            Path part = files.filter(p -> p.getFileName().toString().startsWith("part-")).findFirst().get();
+            columnarFile = new org.apache.hadoop.fs.Path(part.toUri());
+        }
+
+        System.out.printf("%nRecords: %d, text: %d bytes, SequenceFile: %d bytes, columnar: %d bytes%n",
+                (long) rows.size() * scale, size(textFile), size(sequenceFile), size(columnarFile));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long readText() throws Exception {
+        RecordReader<?, Text> reader = open(new TextInputFormat(), textFile);
+        long checksum = 0;
+        while (reader.nextKeyValue()) {
+            // Format: bookId [tab] lemma [tab] year [tab] frequency
+            String[] parts = reader.getCurrentValue().toString().split("\t");
+            checksum += parts[0].length() + parts[1].length() + Integer.parseInt(parts[2]) + Integer.parseInt(parts[3]);
+        }
+        reader.close();
+        return checksum;
+    }
+
+    @Benchmark
+    public long readSequenceFile() throws Exception {
+        RecordReader<Text, Text> reader = open(new SequenceFileInputFormat<Text, Text>(), sequenceFile);
+        long checksum = 0;
+        while (reader.nextKeyValue()) {
+            // Format: bookId -> lemma [tab] year [tab] frequency
+            String bookId = reader.getCurrentKey().toString();
+            String[] parts = reader.getCurrentValue().toString().split("\t");
+            checksum += bookId.length() + parts[0].length() + Integer.parseInt(parts[1]) + Integer.parseInt(parts[2]);
+        }
+        reader.close();
+        return checksum;
+    }
+
+    @Benchmark
+    public long readColumnar() throws Exception {
+        RecordReader<LemmaKey, IntWritable> reader = open(new LemmaFrequencyInputFormat(), columnarFile);
+        long checksum = 0;
+        while (reader.nextKeyValue()) {
+            LemmaKey key = reader.getCurrentKey();
+            checksum += key.getBookId().length() + key.getLemma().length() + key.getYear()
+                    + reader.getCurrentValue().get();
+        }
+        reader.close();
+        return checksum;
+    }
+
+    private <K, V> RecordReader<K, V> open(InputFormat<K, V> format, org.apache.hadoop.fs.Path file) throws Exception {
+        FileSplit split = new FileSplit(file, 0, size(file), null);
+        TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+        RecordReader<K, V> reader = format.createRecordReader(split, context);
+        reader.initialize(split, context);
+        return reader;
+    }
+
+    private long size(org.apache.hadoop.fs.Path file) throws IOException {
+        return file.getFileSystem(conf).getFileStatus(file).getLen();
+    }
+}
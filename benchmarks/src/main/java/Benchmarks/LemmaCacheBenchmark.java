@@ -0,0 +1,87 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task2.WordFreqLemmatizationMapper;
+import Task2.WordFreqLemmatizationMapper.LemmaCounters;
+
+/**
+ * Throughput of the Task 2 mapper with the lemma cache off, keyed on (form, POS) and keyed on
+ * the surface form.
+ *
+ * Every invocation runs one map task over the first wordsPerBook words of each book in the
+ * Task 1 output (output/part-r-00000), cut into 1000-word segments. The cache starts empty in
+ * every task. Needs the CoreNLP English models (stanford-corenlp:models) on the classpath.
+ *
+ * Run: java -jar target/benchmarks.jar LemmaCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class LemmaCacheBenchmark {
+
+    @Param({"off", "pos", "surface"})
+    private String cacheMode;
+
+    @Param({"20000"})
+    private int wordsPerBook;
+
+    private Configuration conf;
+    private List<Object> keys;
+    private List<Text> values;
+    private Counters lastCounters;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        conf = new Configuration(false);
+        conf.set("lemma.cache.mode", cacheMode);
+
+        values = BenchmarkData.task1Segments(wordsPerBook, 1000);
+        keys = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            keys.add(new LongWritable(i));
+        }
+    }
+
+    @Benchmark
+    public long mapTask() throws IOException, InterruptedException {
+        lastCounters = MapperHarness.run(new WordFreqLemmatizationMapper(), conf, null, keys, values);
+        return lastCounters.findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    @TearDown(Level.Trial)
+    public void reportHitRate() {
+        if (lastCounters == null || "off".equals(cacheMode)) {
+            return;
+        }
+        long hits = lastCounters.findCounter(LemmaCounters.LEMMA_CACHE_HITS).getValue()
+                + lastCounters.findCounter(LemmaCounters.LEMMA_DICTIONARY_HITS).getValue();
+        long misses = lastCounters.findCounter(LemmaCounters.LEMMA_CACHE_MISSES).getValue();
+        System.out.printf("%nLemma cache (%s): %d hits, %d misses, hit rate %.1f%%%n",
+                cacheMode, hits, misses, 100.0 * hits / Math.max(1, hits + misses));
+    }
+}
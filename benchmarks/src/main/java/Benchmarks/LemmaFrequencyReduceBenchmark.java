@@ -0,0 +1,148 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task2.LemmaSketch;
+import Task2.LemmaTopKReducer;
+import Task2.WordFreqLemmatizationMapper.LemmaKey;
+import Task2.WordFreqLemmatizationReducer;
+
+/**
+ * Task 2 reduce tasks over the lemma counts of the Task 2 output (output/task2/part-r-00000).
+ *
+ * The map output is rebuilt from that file as if PARTS map tasks had each seen a share of every
+ * lemma: sum reduces the (bookID, lemma, year) partial counts with WordFreqLemmatizationReducer,
+ * and topK merges PARTS Space-Saving sketches per (bookID,decade) and decade with
+ * LemmaTopKReducer (lemma.topk=20). The Task 2 mapper is measured by LemmaCacheBenchmark.
+ *
+ * Run: java -jar target/benchmarks.jar LemmaFrequencyReduceBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class LemmaFrequencyReduceBenchmark {
+
+    private static final int PARTS = 4;
+
+    private Configuration conf;
+    private MapperHarness.MapOutput partialCounts;
+    private MapperHarness.MapOutput partialSketches;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, InterruptedException {
+        conf = new Configuration(false);
+        conf.setInt("lemma.topk", 20);
+
+        List<Text> lines = BenchmarkData.lines(BenchmarkData.task2Output());
+        List<LongWritable> keys = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            keys.add(new LongWritable(i));
+        }
+        partialCounts = MapperHarness.collect(new PartialCountMapper(), conf, keys, lines,
+                LemmaKey.class, IntWritable.class);
+        partialSketches = MapperHarness.collect(new PartialSketchMapper(), conf, keys, lines,
+                Text.class, LemmaSketch.class);
+    }
+
+    @Benchmark
+    public long sum() throws IOException, InterruptedException {
+        return ReducerHarness.run(new WordFreqLemmatizationReducer(), conf, partialCounts,
+                WritableComparator.get(LemmaKey.class, conf), LemmaKey.class, IntWritable.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    @Benchmark
+    public long topK() throws IOException, InterruptedException {
+        return ReducerHarness.run(new LemmaTopKReducer(), conf, partialSketches,
+                WritableComparator.get(Text.class, conf), Text.class, LemmaSketch.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    /**
+     * Splits every bookId [tab] lemma [tab] year [tab] frequency line into PARTS partial counts
+     */
+    private static class PartialCountMapper extends Mapper<LongWritable, Text, LemmaKey, IntWritable> {
+        private final LemmaKey outputKey = new LemmaKey();
+        private final IntWritable outputCount = new IntWritable();
+
+        @Override
+        protected void map(LongWritable key, Text value, Context context) throws IOException, InterruptedException {
+            String[] parts = value.toString().split("\t");
+            int frequency = Integer.parseInt(parts[3]);
+            outputKey.set(parts[0], parts[1], Integer.parseInt(parts[2]));
+            for (int part = 0; part < PARTS; part++) {
+                int share = frequency / PARTS + (part < frequency % PARTS ? 1 : 0);
+                if (share > 0) {
+                    outputCount.set(share);
+                    context.write(outputKey, outputCount);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deals the lemma counts of each book round robin into PARTS sketches per (bookID,decade)
+     * and decade, written in cleanup like the top-k mapper does
+     */
+    private static class PartialSketchMapper extends Mapper<LongWritable, Text, Text, LemmaSketch> {
+        private final Map<String, LemmaSketch[]> sketches = new HashMap<>();
+        private int next;
+
+        @Override
+        protected void map(LongWritable key, Text value, Context context) {
+            String[] parts = value.toString().split("\t");
+            int decade = (Integer.parseInt(parts[2]) / 10) * 10;
+            int part = next++ % PARTS;
+            long frequency = Long.parseLong(parts[3]);
+            sketchesOf("(" + parts[0] + "," + decade + "s)", context)[part].add(parts[1], frequency);
+            sketchesOf(decade + "s", context)[part].add(parts[1], frequency);
+        }
+
+        @Override
+        protected void cleanup(Context context) throws IOException, InterruptedException {
+            Text outputKey = new Text();
+            for (Map.Entry<String, LemmaSketch[]> entry : sketches.entrySet()) {
+                outputKey.set(entry.getKey());
+                for (LemmaSketch sketch : entry.getValue()) {
+                    context.write(outputKey, sketch);
+                }
+            }
+        }
+
+        private LemmaSketch[] sketchesOf(String key, Context context) {
+            return sketches.computeIfAbsent(key, k -> {
+                LemmaSketch[] parts = new LemmaSketch[PARTS];
+                for (int i = 0; i < PARTS; i++) {
+                    parts[i] = new LemmaSketch(1000);
+                }
+                return parts;
+            });
+        }
+    }
+}
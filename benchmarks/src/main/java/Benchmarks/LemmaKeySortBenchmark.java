@@ -0,0 +1,194 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task2.WordFreqLemmatizationMapper.LemmaKey;
+import Task3.WordSentimentScoreMapper.BookKey;
+import Task4.WordTrendAnalysisMapper.TrendKey;
+
+/**
+ * Spill-sort benchmark for LemmaKey.
+ *
+ * Builds one map-side spill buffer of serialized LemmaKeys drawn from the Task 2 output
+ * (output/task2/part-r-00000) scaled up by copying every book {@code scale} times, then sorts
+ * it with Hadoop's QuickSort the same way MapTask does, once with the registered raw comparator
+ * and once with a comparator that deserializes both keys for every comparison.
+ *
+ * Setup checks that the raw comparators of LemmaKey, BookKey and TrendKey sort a spill exactly
+ * like compareTo on the deserialized keys, and fails the trial if they do not.
+ *
+ * Run: java -jar target/benchmarks.jar LemmaKeySortBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LemmaKeySortBenchmark {
+
+    private static final int AGREEMENT_RECORDS = 50000;
+
+    @Param({"1000"})
+    private int scale;
+
+    @Param({"300000"})
+    private int spillRecords;
+
+    private byte[] buffer;
+    private int[] offsets;
+    private int[] lengths;
+    private int[] order;
+
+    private WritableComparator rawComparator;
+    private WritableComparator deserializingComparator;
+
+    @Setup(Level.Trial)
+    public void loadSpill() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(BenchmarkData.task2Output()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Format: bookId [tab] lemma [tab] year [tab] frequency
+                String[] parts = line.split("\t");
+                if (parts.length >= 3) {
+                    rows.add(parts);
+                }
+            }
+        }
+
+        // Sample one spill worth of keys from the scaled corpus in map output (unsorted) order
+        Random random = new Random(42);
+        DataOutputBuffer out = new DataOutputBuffer();
+        offsets = new int[spillRecords];
+        lengths = new int[spillRecords];
+        for (int i = 0; i < spillRecords; i++) {
+            String[] row = rows.get(random.nextInt(rows.size()));
+            String bookId = row[0] + "-" + random.nextInt(scale);
+            LemmaKey key = new LemmaKey(bookId, row[1], Integer.parseInt(row[2]));
+            offsets[i] = out.getLength();
+            key.write(out);
+            lengths[i] = out.getLength() - offsets[i];
+        }
+        buffer = out.getData();
+        order = new int[spillRecords];
+
+        rawComparator = WritableComparator.get(LemmaKey.class);
+        deserializingComparator = new WritableComparator(LemmaKey.class, true) { };
+        checkAgreement(rawComparator, deserializingComparator, buffer, offsets, lengths);
+
+        // The sentiment and trend keys of the same rows, with book and (salted) overall trend keys mixed
+        List<BookKey> bookKeys = new ArrayList<>();
+        List<TrendKey> trendKeys = new ArrayList<>();
+        for (int i = 0; i < AGREEMENT_RECORDS; i++) {
+            String[] row = rows.get(random.nextInt(rows.size()));
+            String bookId = row[0] + "-" + random.nextInt(scale);
+            int year = Integer.parseInt(row[2]);
+            bookKeys.add(new BookKey(bookId, year));
+            trendKeys.add(new TrendKey(bookId, year / 10 * 10));
+            trendKeys.add(new TrendKey(year / 10 * 10));
+            trendKeys.add(new TrendKey(year / 10 * 10, random.nextInt(4)));
+        }
+        checkAgreement(WritableComparator.get(BookKey.class), bookKeys);
+        checkAgreement(WritableComparator.get(TrendKey.class), trendKeys);
+    }
+
+    private static void checkAgreement(WritableComparator raw, List<? extends Writable> keys) throws IOException {
+        DataOutputBuffer out = new DataOutputBuffer();
+        int[] keyOffsets = new int[keys.size()];
+        int[] keyLengths = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            keyOffsets[i] = out.getLength();
+            keys.get(i).write(out);
+            keyLengths[i] = out.getLength() - keyOffsets[i];
+        }
+        WritableComparator deserializing = new WritableComparator(raw.getKeyClass(), true) { };
+        checkAgreement(raw, deserializing, out.getData(), keyOffsets, keyLengths);
+    }
+
+    /**
+     * Sort the spill with both comparators and check that every position holds an equal key,
+     * which allows for equal keys to end up in a different order.
+     */
+    private static void checkAgreement(WritableComparator raw, WritableComparator deserializing, byte[] buffer,
+            int[] offsets, int[] lengths) {
+        int[] rawOrder = identity(offsets.length);
+        sort(raw, buffer, offsets, lengths, rawOrder);
+        int[] deserializedOrder = identity(offsets.length);
+        sort(deserializing, buffer, offsets, lengths, deserializedOrder);
+        for (int i = 0; i < rawOrder.length; i++) {
+            int a = rawOrder[i];
+            int b = deserializedOrder[i];
+            if (deserializing.compare(buffer, offsets[a], lengths[a], buffer, offsets[b], lengths[b]) != 0) {
+                throw new IllegalStateException("Raw comparator of " + raw.getKeyClass().getSimpleName()
+                        + " disagrees with compareTo at position " + i + " of " + rawOrder.length);
+            }
+        }
+    }
+
+    private static int[] identity(int length) {
+        int[] order = new int[length];
+        Arrays.setAll(order, i -> i);
+        return order;
+    }
+
+    @Setup(Level.Invocation)
+    public void resetOrder() {
+        Arrays.setAll(order, i -> i);
+    }
+
+    @Benchmark
+    public int rawComparatorSort() {
+        return sort(rawComparator, buffer, offsets, lengths, order);
+    }
+
+    @Benchmark
+    public int deserializingComparatorSort() {
+        return sort(deserializingComparator, buffer, offsets, lengths, order);
+    }
+
+    private static int sort(final WritableComparator comparator, final byte[] buffer, final int[] offsets,
+            final int[] lengths, final int[] order) {
+        new QuickSort().sort(new IndexedSortable() {
+            @Override
+            public int compare(int i, int j) {
+                int a = order[i];
+                int b = order[j];
+                return comparator.compare(buffer, offsets[a], lengths[a], buffer, offsets[b], lengths[b]);
+            }
+
+            @Override
+            public void swap(int i, int j) {
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+        }, 0, order.length);
+        return order[0];
+    }
+}
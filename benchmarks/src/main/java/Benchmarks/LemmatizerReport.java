@@ -0,0 +1,217 @@
+package Benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+
+import Task2.Lemmatizer;
+
+/**
+ * Compares lemmatization engines (see Task2.Lemmatizer) on the Task 1 output of the inputs/
+ * corpus: the throughput of each, and how far its lemmas are from those of CoreNLP.
+ *
+ * Every engine lemmatizes the first wordsPerBook words of each book in 1000-word segments, once
+ * to warm up and once timed on a new instance. Lemmas are filtered and lowercased as the Task 2 mapper does. Then
+ * for each engine other than the first (the reference):
+ *   token agreement - share of the reference lemmas the engine matches, token by token, once
+ *                     each segment is aligned with the fewest edits
+ *   count agreement - share of the reference lemma counts the engine reproduces, which is what
+ *                     the Task 2 output is made of
+ * followed by the lemma pairs it most often gets different from the reference. Token agreement
+ * assumes lemmas come in text order; lemma.cache.mode=surface emits the cached words of a text
+ * first, so only its count agreement is meaningful.
+ *
+ * Engines are lemma.engine values, optionally followed by comma-separated options, e.g.
+ * "corenlp,lemma.cache.mode=surface". Needs the CoreNLP English models on the classpath.
+ *
+ * Run: java -cp target/benchmarks.jar Benchmarks.LemmatizerReport [wordsPerBook, default 20000] [engine ...]
+ *      (default engines: corenlp rules)
+ */
+public final class LemmatizerReport {
+
+    private static final int SEGMENT_WORDS = 1000;
+    private static final int TOP_DIFFERENCES = 15;
+
+    private LemmatizerReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int wordsPerBook = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        List<String> engines = args.length > 1
+                ? Arrays.asList(args).subList(1, args.length) : Arrays.asList("corenlp", "rules");
+
+        List<String> segments = new ArrayList<>();
+        long words = 0;
+        for (Text record : BenchmarkData.task1Segments(wordsPerBook, SEGMENT_WORDS)) {
+            String segment = record.toString().split("\t", 3)[2];
+            segments.add(segment);
+            words += segment.split(" ").length;
+        }
+        System.out.printf("%d segments, %d words%n%n", segments.size(), words);
+
+        List<List<List<String>>> results = new ArrayList<>();
+        System.out.printf("%-40s %10s %12s %10s %10s %10s %10s%n",
+                "engine", "time (ms)", "words/s", "lemmas", "distinct", "token", "count");
+        for (String engine : engines) {
+            // Warm up on one instance and time a new one, so caches start empty
+            Lemmatizer warmup = newLemmatizer(engine);
+            lemmatizeAll(warmup, segments);
+            warmup.close();
+            Lemmatizer lemmatizer = newLemmatizer(engine);
+
+            long start = System.nanoTime();
+            List<List<String>> lemmas = lemmatizeAll(lemmatizer, segments);
+            long millis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+            lemmatizer.close();
+            results.add(lemmas);
+
+            long total = 0;
+            Set<String> distinct = new HashSet<>();
+            for (List<String> segment : lemmas) {
+                total += segment.size();
+                distinct.addAll(segment);
+            }
+            System.out.printf("%-40s %10d %12.0f %10d %10d", engine, millis, words * 1000.0 / millis,
+                    total, distinct.size());
+            if (results.size() > 1) {
+                System.out.printf(" %9.2f%% %9.2f%%", 100 * tokenAgreement(results.get(0), lemmas, null),
+                        100 * countAgreement(results.get(0), lemmas));
+            }
+            System.out.println();
+        }
+
+        for (int e = 1; e < engines.size(); e++) {
+            Map<String, Integer> differences = new HashMap<>();
+            tokenAgreement(results.get(0), results.get(e), differences);
+            List<Map.Entry<String, Integer>> sorted = new ArrayList<>(differences.entrySet());
+            sorted.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+
+            System.out.printf("%nMost frequent differences, %s -> %s:%n", engines.get(0), engines.get(e));
+            for (Map.Entry<String, Integer> difference : sorted.subList(0, Math.min(TOP_DIFFERENCES, sorted.size()))) {
+                System.out.printf("  %-30s %8d%n", difference.getKey(), difference.getValue());
+            }
+        }
+    }
+
+    private static Lemmatizer newLemmatizer(String engine) throws Exception {
+        Configuration conf = configuration(engine);
+        Lemmatizer lemmatizer = Lemmatizer.create(conf);
+        lemmatizer.setup(conf, null);
+        return lemmatizer;
+    }
+
+    private static Configuration configuration(String engine) {
+        Configuration conf = new Configuration(false);
+        String[] parts = engine.split(",");
+        conf.set("lemma.engine", parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            String[] option = parts[i].split("=", 2);
+            conf.set(option[0], option[1]);
+        }
+        return conf;
+    }
+
+    /**
+     * The lemmas of every segment, filtered and lowercased as the Task 2 mapper does
+     */
+    private static List<List<String>> lemmatizeAll(Lemmatizer lemmatizer, List<String> segments) throws Exception {
+        List<List<String>> lemmas = new ArrayList<>(segments.size());
+        for (String segment : segments) {
+            List<String> segmentLemmas = new ArrayList<>(SEGMENT_WORDS);
+            lemmatizer.lemmatize(segment, lemma -> {
+                if (lemma.matches("[a-zA-Z]+") && lemma.length() > 1) {
+                    segmentLemmas.add(lemma.toLowerCase());
+                }
+            });
+            lemmas.add(segmentLemmas);
+        }
+        return lemmas;
+    }
+
+    /**
+     * Share of the reference lemmas matched in a minimum edit alignment of every segment, which
+     * keeps one split or dropped token from shifting the rest; the "reference -> engine" pairs of
+     * substituted tokens are collected
+     */
+    private static double tokenAgreement(List<List<String>> reference, List<List<String>> lemmas,
+            Map<String, Integer> differences) {
+        long total = 0;
+        long agreed = 0;
+        for (int s = 0; s < reference.size(); s++) {
+            List<String> expected = reference.get(s);
+            List<String> actual = lemmas.get(s);
+            int m = expected.size();
+            int n = actual.size();
+
+            // distance[i][j]: edits between the first i expected and the first j actual lemmas
+            int[][] distance = new int[m + 1][n + 1];
+            for (int i = 0; i <= m; i++) {
+                distance[i][0] = i;
+            }
+            for (int j = 0; j <= n; j++) {
+                distance[0][j] = j;
+            }
+            for (int i = 1; i <= m; i++) {
+                for (int j = 1; j <= n; j++) {
+                    int substitute = distance[i - 1][j - 1] + (expected.get(i - 1).equals(actual.get(j - 1)) ? 0 : 1);
+                    distance[i][j] = Math.min(substitute, Math.min(distance[i - 1][j], distance[i][j - 1]) + 1);
+                }
+            }
+
+            // Walk the alignment back, counting matches and substitutions
+            total += m;
+            int i = m;
+            int j = n;
+            while (i > 0 && j > 0) {
+                boolean same = expected.get(i - 1).equals(actual.get(j - 1));
+                if (distance[i][j] == distance[i - 1][j - 1] + (same ? 0 : 1)) {
+                    if (same) {
+                        agreed++;
+                    } else if (differences != null) {
+                        differences.merge(expected.get(i - 1) + " -> " + actual.get(j - 1), 1, Integer::sum);
+                    }
+                    i--;
+                    j--;
+                } else if (distance[i][j] == distance[i - 1][j] + 1) {
+                    i--;
+                } else {
+                    j--;
+                }
+            }
+        }
+        return total > 0 ? (double) agreed / total : 0.0;
+    }
+
+    /**
+     * Share of the reference lemma counts reproduced: the sum over lemmas of the smaller of the
+     * two counts, over the number of reference lemmas
+     */
+    private static double countAgreement(List<List<String>> reference, List<List<String>> lemmas) {
+        Map<String, Long> expected = counts(reference);
+        Map<String, Long> actual = counts(lemmas);
+        long total = 0;
+        long matched = 0;
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            total += entry.getValue();
+            matched += Math.min(entry.getValue(), actual.getOrDefault(entry.getKey(), 0L));
+        }
+        return total > 0 ? (double) matched / total : 0.0;
+    }
+
+    private static Map<String, Long> counts(List<List<String>> lemmas) {
+        Map<String, Long> counts = new HashMap<>();
+        for (List<String> segment : lemmas) {
+            for (String lemma : segment) {
+                counts.merge(lemma, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+}
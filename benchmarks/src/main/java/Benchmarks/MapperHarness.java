@@ -0,0 +1,240 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+
+/**
+ * Runs a Mapper in-process over in-memory records, the way a map task would
+ * (setup, map for every record, cleanup), and counts what it writes, or collects it
+ * serialized and sorted as reduce input for ReducerHarness.
+ */
+final class MapperHarness {
+
+    private MapperHarness() {
+    }
+
+    /**
+     * Run the mapper over the records and return the task counters.
+     * The number of records written is reported under HarnessCounters.OUTPUT_RECORDS.
+     */
+    static <KI, VI, KO, VO> Counters run(Mapper<KI, VI, KO, VO> mapper, Configuration conf, InputSplit split,
+            List<KI> keys, List<VI> values) throws IOException, InterruptedException {
+        Counters counters = new Counters();
+        MapContextImpl<KI, VI, KO, VO> mapContext = new MapContextImpl<>(conf, new TaskAttemptID(),
+                new ListRecordReader<>(keys, values), new CountingRecordWriter<KO, VO>(counters), null,
+                new CountersReporter(counters), split);
+        mapper.run(new WrappedMapper<KI, VI, KO, VO>().getMapContext(mapContext));
+        return counters;
+    }
+
+    /**
+     * Run the mapper over the records and return what it wrote, serialized and sorted by the
+     * registered comparator of the key class, as the shuffle would hand it to one reducer
+     */
+    static <KI, VI, KO, VO> MapOutput collect(Mapper<KI, VI, KO, VO> mapper, Configuration conf, List<KI> keys,
+            List<VI> values, Class<KO> keyClass, Class<VO> valueClass) throws IOException, InterruptedException {
+        return collect(() -> mapper, conf, Collections.singletonList(keys), Collections.singletonList(values),
+                keyClass, valueClass);
+    }
+
+    /**
+     * Run one map task per list of records, each with a new mapper, and return what they wrote
+     * together, sorted as the shuffle would hand it to one reducer
+     */
+    static <KI, VI, KO, VO> MapOutput collect(Supplier<Mapper<KI, VI, KO, VO>> mappers, Configuration conf,
+            List<List<KI>> keys, List<List<VI>> values, Class<KO> keyClass, Class<VO> valueClass)
+            throws IOException, InterruptedException {
+        Counters counters = new Counters();
+        CollectingRecordWriter<KO, VO> writer = new CollectingRecordWriter<>(conf, keyClass, valueClass);
+        for (int task = 0; task < values.size(); task++) {
+            MapContextImpl<KI, VI, KO, VO> mapContext = new MapContextImpl<>(conf, new TaskAttemptID(),
+                    new ListRecordReader<>(keys.get(task), values.get(task)), writer, null,
+                    new CountersReporter(counters), null);
+            mappers.get().run(new WrappedMapper<KI, VI, KO, VO>().getMapContext(mapContext));
+        }
+        return writer.sorted(WritableComparator.get(keyClass.asSubclass(WritableComparable.class), conf));
+    }
+
+    enum HarnessCounters {
+        OUTPUT_RECORDS
+    }
+
+    /**
+     * Serialized map output records in shuffle order
+     */
+    static final class MapOutput {
+        final List<byte[]> keys;
+        final List<byte[]> values;
+
+        MapOutput(List<byte[]> keys, List<byte[]> values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        int size() {
+            return keys.size();
+        }
+    }
+
+    private static class ListRecordReader<K, V> extends RecordReader<K, V> {
+        private final List<K> keys;
+        private final List<V> values;
+        private int index = -1;
+
+        ListRecordReader(List<K> keys, List<V> values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) {
+        }
+
+        @Override
+        public boolean nextKeyValue() {
+            return ++index < values.size();
+        }
+
+        @Override
+        public K getCurrentKey() {
+            return keys.get(index);
+        }
+
+        @Override
+        public V getCurrentValue() {
+            return values.get(index);
+        }
+
+        @Override
+        public float getProgress() {
+            return values.isEmpty() ? 1.0f : (float) index / values.size();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class CollectingRecordWriter<K, V> extends RecordWriter<K, V> {
+        private final DataOutputBuffer keyBuffer = new DataOutputBuffer();
+        private final DataOutputBuffer valueBuffer = new DataOutputBuffer();
+        private final Serializer<K> keySerializer;
+        private final Serializer<V> valueSerializer;
+        private final List<byte[]> keys = new ArrayList<>();
+        private final List<byte[]> values = new ArrayList<>();
+
+        CollectingRecordWriter(Configuration conf, Class<K> keyClass, Class<V> valueClass) throws IOException {
+            SerializationFactory serialization = new SerializationFactory(conf);
+            keySerializer = serialization.getSerializer(keyClass);
+            keySerializer.open(keyBuffer);
+            valueSerializer = serialization.getSerializer(valueClass);
+            valueSerializer.open(valueBuffer);
+        }
+
+        @Override
+        public void write(K key, V value) throws IOException {
+            keyBuffer.reset();
+            keySerializer.serialize(key);
+            keys.add(Arrays.copyOf(keyBuffer.getData(), keyBuffer.getLength()));
+            valueBuffer.reset();
+            valueSerializer.serialize(value);
+            values.add(Arrays.copyOf(valueBuffer.getData(), valueBuffer.getLength()));
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) {
+        }
+
+        MapOutput sorted(RawComparator<?> comparator) {
+            // Stable, so the values of a key stay in output order
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                byte[] key1 = keys.get(a);
+                byte[] key2 = keys.get(b);
+                return comparator.compare(key1, 0, key1.length, key2, 0, key2.length);
+            });
+
+            List<byte[]> sortedKeys = new ArrayList<>(order.length);
+            List<byte[]> sortedValues = new ArrayList<>(order.length);
+            for (Integer i : order) {
+                sortedKeys.add(keys.get(i));
+                sortedValues.add(values.get(i));
+            }
+            return new MapOutput(sortedKeys, sortedValues);
+        }
+    }
+
+    static class CountingRecordWriter<K, V> extends RecordWriter<K, V> {
+        private final Counter written;
+
+        CountingRecordWriter(Counters counters) {
+            this.written = counters.findCounter(HarnessCounters.OUTPUT_RECORDS);
+        }
+
+        @Override
+        public void write(K key, V value) {
+            written.increment(1);
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) {
+        }
+    }
+
+    static class CountersReporter extends StatusReporter {
+        private final Counters counters;
+
+        CountersReporter(Counters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public Counter getCounter(Enum<?> name) {
+            return counters.findCounter(name);
+        }
+
+        @Override
+        public Counter getCounter(String group, String name) {
+            return counters.findCounter(group, name);
+        }
+
+        @Override
+        public void progress() {
+        }
+
+        @Override
+        public float getProgress() {
+            return 0;
+        }
+
+        @Override
+        public void setStatus(String status) {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import task5.NGramCount;
+import task5.NGramMapper;
+import task5.NGramReducer;
+
+/**
+ * Task 5 n-gram map and reduce tasks over the Task 1 output (output/part-r-00000), cut into
+ * 1000-word segments.
+ *
+ * map runs NGramMapper over every segment for n-grams of n words, with in-mapper combining.
+ * reduce runs NGramReducer (top 20) over the sorted map output of that mapper, grouped by
+ * (bookID, decade) and decade.
+ *
+ * Run: java -jar target/benchmarks.jar NGramBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class NGramBenchmark {
+
+    @Param({"2", "3"})
+    private int n;
+
+    private Configuration conf;
+    private List<Object> keys;
+    private List<Text> segments;
+    private MapperHarness.MapOutput mapOutput;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, InterruptedException {
+        conf = new Configuration(false);
+        conf.setInt("ngram.n", n);
+
+        segments = BenchmarkData.task1Segments(Integer.MAX_VALUE, 1000);
+        keys = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            keys.add(new LongWritable(i));
+        }
+        mapOutput = MapperHarness.collect(new NGramMapper(), conf, keys, segments,
+                NGramMapper.NGramKey.class, NGramCount.class);
+    }
+
+    @Benchmark
+    public long map() throws IOException, InterruptedException {
+        return MapperHarness.run(new NGramMapper(), conf, null, keys, segments)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    @Benchmark
+    public long reduce() throws IOException, InterruptedException {
+        return ReducerHarness.run(new NGramReducer(), conf, mapOutput, new NGramMapper.NGramKey.GroupingComparator(),
+                NGramMapper.NGramKey.class, NGramCount.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+}
@@ -0,0 +1,89 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task1.PreprocessingMapper;
+import Task1.PreprocessingReducer;
+
+/**
+ * Task 1 map and reduce tasks over the raw books in inputs/.
+ *
+ * map runs PreprocessingMapper once per book over all its lines (keyed by line number, as
+ * plain text input without a BookSplit, so the mapper also finds the metadata itself).
+ * reduce runs PreprocessingReducer over the sorted output of those map tasks, grouped by book,
+ * writing one record per book or, with segmentBytes above 0, segments of that size.
+ *
+ * Run: java -jar target/benchmarks.jar PreprocessingBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class PreprocessingBenchmark {
+
+    @Param({"0", "65536"})
+    private int segmentBytes;
+
+    private Configuration conf;
+    private List<List<LongWritable>> keys;
+    private List<List<Text>> books;
+    private MapperHarness.MapOutput mapOutput;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, InterruptedException {
+        conf = new Configuration(false);
+        conf.setInt("preprocess.segment.bytes", segmentBytes);
+
+        books = BenchmarkData.rawBooks();
+        keys = new ArrayList<>(books.size());
+        for (List<Text> book : books) {
+            List<LongWritable> lineKeys = new ArrayList<>(book.size());
+            for (int i = 0; i < book.size(); i++) {
+                lineKeys.add(new LongWritable(i));
+            }
+            keys.add(lineKeys);
+        }
+
+        // Reduce input: the map output of every book, sorted as the shuffle would
+        mapOutput = MapperHarness.collect(PreprocessingMapper::new, conf, keys, books,
+                PreprocessingMapper.BookLineKey.class, Text.class);
+    }
+
+    @Benchmark
+    public long map() throws IOException, InterruptedException {
+        long written = 0;
+        for (int i = 0; i < books.size(); i++) {
+            written += MapperHarness.run(new PreprocessingMapper(), conf, null, keys.get(i), books.get(i))
+                    .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+        }
+        return written;
+    }
+
+    @Benchmark
+    public long reduce() throws IOException, InterruptedException {
+        return ReducerHarness.run(new PreprocessingReducer(), conf, mapOutput,
+                new PreprocessingMapper.BookLineKey.GroupComparator(), PreprocessingMapper.BookLineKey.class, Text.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+}
@@ -0,0 +1,92 @@
+package Benchmarks;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.lib.reduce.WrappedReducer;
+import org.apache.hadoop.mapreduce.task.ReduceContextImpl;
+import org.apache.hadoop.util.Progress;
+
+/**
+ * Runs a Reducer in-process over map output collected by MapperHarness, the way a reduce task
+ * would (setup, reduce for every group of keys, cleanup), and counts what it writes.
+ *
+ * The input is deserialized and grouped by Hadoop's own ReduceContextImpl, so the cost of
+ * reading keys and values and of the grouping comparator is measured along with the reducer.
+ */
+final class ReducerHarness {
+
+    private ReducerHarness() {
+    }
+
+    /**
+     * Run the reducer over the sorted map output and return the task counters.
+     * The number of records written is reported under HarnessCounters.OUTPUT_RECORDS.
+     * The grouping comparator must compare keys of keyClass; WritableComparator.get only
+     * returns it as a comparator of WritableComparable.
+     */
+    static <KI, VI, KO, VO> Counters run(Reducer<KI, VI, KO, VO> reducer, Configuration conf,
+            MapperHarness.MapOutput input, RawComparator<?> groupingComparator, Class<KI> keyClass,
+            Class<VI> valueClass) throws IOException, InterruptedException {
+        @SuppressWarnings("unchecked")
+        RawComparator<KI> comparator = (RawComparator<KI>) groupingComparator;
+        Counters counters = new Counters();
+        ReduceContextImpl<KI, VI, KO, VO> reduceContext = new ReduceContextImpl<>(conf, new TaskAttemptID(),
+                new ListIterator(input), counters.findCounter(TaskCounter.REDUCE_INPUT_GROUPS),
+                counters.findCounter(TaskCounter.REDUCE_INPUT_RECORDS),
+                new MapperHarness.CountingRecordWriter<KO, VO>(counters), null,
+                new MapperHarness.CountersReporter(counters), comparator, keyClass, valueClass);
+        reducer.run(new WrappedReducer<KI, VI, KO, VO>().getReducerContext(reduceContext));
+        return counters;
+    }
+
+    private static class ListIterator implements RawKeyValueIterator {
+        private final MapperHarness.MapOutput input;
+        private final DataInputBuffer key = new DataInputBuffer();
+        private final DataInputBuffer value = new DataInputBuffer();
+        private final Progress progress = new Progress();
+        private int index = -1;
+
+        ListIterator(MapperHarness.MapOutput input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean next() {
+            if (++index >= input.size()) {
+                return false;
+            }
+            byte[] keyBytes = input.keys.get(index);
+            key.reset(keyBytes, keyBytes.length);
+            byte[] valueBytes = input.values.get(index);
+            value.reset(valueBytes, valueBytes.length);
+            return true;
+        }
+
+        @Override
+        public DataInputBuffer getKey() {
+            return key;
+        }
+
+        @Override
+        public DataInputBuffer getValue() {
+            return value;
+        }
+
+        @Override
+        public Progress getProgress() {
+            return progress;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
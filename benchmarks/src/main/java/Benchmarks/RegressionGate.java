@@ -0,0 +1,123 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with -rf csv and fails if any benchmark got slower,
+ * or allocates more per operation, by more than a threshold.
+ *
+ * Rows are matched on benchmark name and parameters. Scores in time/op or B/op (average time,
+ * and gc.alloc.rate.norm with -prof gc) regress when they grow; scores in ops/time (throughput)
+ * regress when they shrink. Other secondary results (GC counts and rates) are ignored.
+ *
+ * Run: java -cp target/benchmarks.jar Benchmarks.RegressionGate baseline.csv current.csv [max regression %, default 10]
+ */
+public final class RegressionGate {
+
+    private RegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RegressionGate <baseline.csv> <current.csv> [max regression percent]");
+            System.exit(2);
+        }
+        double maxRegression = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null || before.score == 0 || !before.unit.equals(after.unit)) {
+                continue;
+            }
+
+            double change;
+            if (after.unit.endsWith("/op")) {
+                change = 100.0 * (after.score - before.score) / before.score;
+            } else if (after.unit.startsWith("ops/")) {
+                change = 100.0 * (before.score - after.score) / before.score;
+            } else {
+                continue;
+            }
+
+            boolean regressed = change > maxRegression;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-8s %-90s %12.3f -> %12.3f %-10s %+7.1f%%%n", regressed ? "WORSE" : "ok",
+                    entry.getKey(), before.score, after.score, after.unit, change);
+        }
+
+        System.out.println(regressions + " regression(s) above " + maxRegression + "%");
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static final class Result {
+        final double score;
+        final String unit;
+
+        Result(double score, String unit) {
+            this.score = score;
+            this.unit = unit;
+        }
+    }
+
+    /**
+     * Rows of a JMH CSV file keyed on benchmark name and parameter values
+     */
+    private static Map<String, Result> read(String file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            List<String> header = split(reader.readLine());
+            int scoreColumn = header.indexOf("Score");
+            int unitColumn = header.indexOf("Unit");
+            if (scoreColumn < 0 || unitColumn < 0) {
+                throw new IOException(file + " is not a JMH CSV result file");
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = split(line);
+                StringBuilder key = new StringBuilder(fields.get(0));
+                for (int i = unitColumn + 1; i < fields.size(); i++) {
+                    if (!fields.get(i).isEmpty()) {
+                        key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+                    }
+                }
+                results.put(key.toString(), new Result(Double.parseDouble(fields.get(scoreColumn)), fields.get(unitColumn)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Fields of a CSV line, with surrounding quotes removed
+     */
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,202 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import Task3.SentimentLexicon;
+
+/**
+ * Sentiment lexicon lookup benchmark for the Task 3 mapper.
+ *
+ * Scores every word of the Task 1 output (output/part-r-00000), once the way the mapper used
+ * to (StringTokenizer, toLowerCase and a HashMap<String, Double>) and once with SentimentLexicon
+ * on the bytes of each record. Setup checks that both give the same total and prints the heap
+ * footprint of both structures. scanner scores the same tokens through SentimentLexicon.Scanner,
+ * the phrase-matching automaton the mapper uses, to show what matching phrases costs over
+ * single-word lookups; on a lexicon without phrases it gives the same total.
+ *
+ * The lexicon is read from -Dbench.lexicon=/path/to/AFINN-165.txt (word [tab] score). Without
+ * it, a synthetic lexicon of the same size (3382 words taken from the corpus vocabulary, scores
+ * -5..5) is used.
+ *
+ * Run: java -jar target/benchmarks.jar SentimentLexiconBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SentimentLexiconBenchmark {
+
+    private static final int AFINN_SIZE = 3382;
+
+    private List<Text> records;
+    private Map<String, Double> hashMapLexicon;
+    private SentimentLexicon compactLexicon;
+
+    @Setup(Level.Trial)
+    public void loadLexicon() throws IOException {
+        records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(BenchmarkData.task1Output()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 2);
+                if (parts.length == 2) {
+                    records.add(new Text(parts[1]));
+                }
+            }
+        }
+
+        hashMapLexicon = new HashMap<>();
+        String lexiconFile = System.getProperty("bench.lexicon");
+        if (lexiconFile != null) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(lexiconFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split("\t");
+                    if (parts.length == 2) {
+                        hashMapLexicon.put(parts[0].trim().toLowerCase(), Double.parseDouble(parts[1].trim()));
+                    }
+                }
+            }
+        } else {
+            syntheticLexicon();
+        }
+
+        SentimentLexicon.Builder builder = new SentimentLexicon.Builder();
+        for (Map.Entry<String, Double> entry : hashMapLexicon.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        compactLexicon = builder.build();
+
+        double hashMapTotal = hashMap();
+        double compactTotal = compact();
+        if (hashMapTotal != compactTotal) {
+            throw new IllegalStateException("Lexicons disagree: " + hashMapTotal + " vs " + compactTotal);
+        }
+        double scannerTotal = scanner();
+        if (compactLexicon.maxPhraseLength() == 1 && scannerTotal != compactTotal) {
+            throw new IllegalStateException("Scanner disagrees: " + scannerTotal + " vs " + compactTotal);
+        }
+
+        System.out.println();
+        System.out.println("Lexicon: " + hashMapLexicon.size() + " words"
+                + (lexiconFile == null ? " (synthetic)" : " from " + lexiconFile));
+        System.out.println("HashMap<String, Double> footprint: " + GraphLayout.parseInstance(hashMapLexicon).totalSize() + " bytes");
+        System.out.println("SentimentLexicon footprint:        " + GraphLayout.parseInstance(compactLexicon).totalSize() + " bytes");
+    }
+
+    @Benchmark
+    public double hashMap() {
+        double total = 0;
+        for (Text record : records) {
+            StringTokenizer tokenizer = new StringTokenizer(record.toString());
+            while (tokenizer.hasMoreTokens()) {
+                total += hashMapLexicon.getOrDefault(tokenizer.nextToken().toLowerCase(), 0.0);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double compact() {
+        double total = 0;
+        for (Text record : records) {
+            byte[] bytes = record.getBytes();
+            int end = record.getLength();
+            int tokenEnd = 0;
+            while (tokenEnd < end) {
+                int tokenStart = tokenEnd;
+                while (tokenStart < end && bytes[tokenStart] == ' ') {
+                    tokenStart++;
+                }
+                tokenEnd = tokenStart;
+                while (tokenEnd < end && bytes[tokenEnd] != ' ') {
+                    tokenEnd++;
+                }
+                total += compactLexicon.score(bytes, tokenStart, tokenEnd - tokenStart);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double scanner() {
+        double total = 0;
+        SentimentLexicon.Scanner scanner = compactLexicon.newScanner();
+        for (Text record : records) {
+            byte[] bytes = record.getBytes();
+            int end = record.getLength();
+            int tokenEnd = 0;
+            scanner.reset();
+            while (tokenEnd < end) {
+                int tokenStart = tokenEnd;
+                while (tokenStart < end && bytes[tokenStart] == ' ') {
+                    tokenStart++;
+                }
+                tokenEnd = tokenStart;
+                while (tokenEnd < end && bytes[tokenEnd] != ' ') {
+                    tokenEnd++;
+                }
+                if (tokenEnd == tokenStart) {
+                    break;
+                }
+                scanner.add(bytes, tokenStart, tokenEnd - tokenStart);
+                for (int entry = scanner.poll(); entry >= 0; entry = scanner.poll()) {
+                    total += compactLexicon.score(entry, 0);
+                }
+            }
+            scanner.finish();
+            for (int entry = scanner.poll(); entry >= 0; entry = scanner.poll()) {
+                total += compactLexicon.score(entry, 0);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * AFINN-sized lexicon: every n-th word of the corpus vocabulary, so lookups see a
+     * realistic mix of hits and misses
+     */
+    private void syntheticLexicon() {
+        TreeMap<String, Integer> vocabulary = new TreeMap<>();
+        for (Text record : records) {
+            StringTokenizer tokenizer = new StringTokenizer(record.toString());
+            while (tokenizer.hasMoreTokens()) {
+                vocabulary.merge(tokenizer.nextToken(), 1, Integer::sum);
+            }
+        }
+
+        int step = Math.max(1, vocabulary.size() / AFINN_SIZE);
+        int i = 0;
+        for (String word : vocabulary.keySet()) {
+            if (i++ % step == 0 && hashMapLexicon.size() < AFINN_SIZE) {
+                int score = Math.floorMod(word.hashCode(), 10) - 5;
+                hashMapLexicon.put(word, (double) (score >= 0 ? score + 1 : score));
+            }
+        }
+    }
+}
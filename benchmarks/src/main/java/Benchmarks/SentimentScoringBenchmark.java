@@ -0,0 +1,90 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task3.SentimentAggregate;
+import Task3.WordSentimentScoreMapper;
+import Task3.WordSentimentScoreReducer;
+
+/**
+ * Task 3 map and reduce tasks over the Task 2 output (output/task2/part-r-00000), one lemma
+ * count per line, as the job reads it without the pipeline.
+ *
+ * map runs WordSentimentScoreMapper over every line, with and without in-mapper combining.
+ * reduce runs WordSentimentScoreReducer over the sorted map output of that mapper, which is
+ * one aggregate per line without in-mapper combining.
+ *
+ * The built-in lexicon is used unless -jvmArgs -Dbench.lexicon=/path/to/afinn.txt names an AFINN
+ * file (its name must end in afinn.txt, as for the job's distributed cache).
+ *
+ * Run: java -jar target/benchmarks.jar SentimentScoringBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SentimentScoringBenchmark {
+
+    @Param({"true", "false"})
+    private boolean inMapperCombine;
+
+    private Configuration conf;
+    private List<Object> keys;
+    private List<Writable> lines;
+    private MapperHarness.MapOutput mapOutput;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, InterruptedException {
+        conf = new Configuration(false);
+        conf.setBoolean("sentiment.inmapper.combine", inMapperCombine);
+        String lexiconFile = System.getProperty("bench.lexicon");
+        if (lexiconFile != null) {
+            conf.set("mapreduce.job.cache.files", new java.io.File(lexiconFile).toURI().toString());
+        }
+
+        lines = new ArrayList<>(BenchmarkData.lines(BenchmarkData.task2Output()));
+        keys = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            keys.add(new LongWritable(i));
+        }
+        mapOutput = MapperHarness.collect(new WordSentimentScoreMapper(), conf, keys, lines,
+                WordSentimentScoreMapper.BookKey.class, SentimentAggregate.class);
+    }
+
+    @Benchmark
+    public long map() throws IOException, InterruptedException {
+        return MapperHarness.run(new WordSentimentScoreMapper(), conf, null, keys, lines)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    @Benchmark
+    public long reduce() throws IOException, InterruptedException {
+        return ReducerHarness.run(new WordSentimentScoreReducer(), conf, mapOutput,
+                WritableComparator.get(WordSentimentScoreMapper.BookKey.class, conf),
+                WordSentimentScoreMapper.BookKey.class, SentimentAggregate.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+}
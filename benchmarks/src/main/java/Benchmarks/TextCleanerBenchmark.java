@@ -0,0 +1,104 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import Task1.TextCleaner;
+
+/**
+ * Line cleaning benchmark for the preprocessing mapper.
+ *
+ * Cleans every line of the raw books in inputs/, once with the regex and String based cleaner
+ * the mapper used to have (reproduced below) and once with the byte-level TextCleaner writing
+ * into a reused Text. Setup checks that both give the same output for every line, and for
+ * lines longer than the cleaner's initial buffer.
+ *
+ * Run: java -jar target/benchmarks.jar TextCleanerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TextCleanerBenchmark {
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "the", "and", "of", "to", "in", "a", "is", "it", "that", "with"));
+
+    private List<Text> lines;
+    private final TextCleaner cleaner = new TextCleaner();
+    private final Text cleaned = new Text();
+
+    @Setup(Level.Trial)
+    public void loadLines() throws IOException {
+        lines = BenchmarkData.rawLines();
+
+        for (Text line : lines) {
+            checkAgreement(cleaner, line);
+        }
+
+        // Lines that fill and overflow the initial buffer of a new cleaner, ending inside a word
+        StringBuilder word = new StringBuilder();
+        for (int length = 1; length <= 600; length++) {
+            word.append((char) ('a' + length % 26));
+            if (length >= 250) {
+                checkAgreement(new TextCleaner(), new Text(word.toString()));
+                checkAgreement(new TextCleaner(), new Text("The " + word + " and it"));
+            }
+        }
+    }
+
+    private void checkAgreement(TextCleaner textCleaner, Text line) {
+        textCleaner.clean(line, cleaned);
+        String expected = regexClean(line.toString());
+        if (!expected.equals(cleaned.toString())) {
+            throw new IllegalStateException("Cleaners disagree on \"" + line + "\": \""
+                    + expected + "\" vs \"" + cleaned + "\"");
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (Text line : lines) {
+            blackhole.consume(new Text(regexClean(line.toString())));
+        }
+    }
+
+    @Benchmark
+    public void bytes(Blackhole blackhole) {
+        for (Text line : lines) {
+            cleaner.clean(line, cleaned);
+            blackhole.consume(cleaned);
+        }
+    }
+
+    private static String regexClean(String text) {
+        text = text.toLowerCase().replaceAll("[^a-z\\s]", "");
+        StringBuilder cleanedText = new StringBuilder();
+        for (String word : text.split("\\s+")) {
+            if (!STOP_WORDS.contains(word) && !word.isEmpty()) {
+                cleanedText.append(word).append(" ");
+            }
+        }
+        return cleanedText.toString().trim();
+    }
+}
@@ -0,0 +1,82 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import Task4.TrendStats;
+import Task4.WordTrendAnalysisMapper;
+import Task4.WordTrendAnalysisReducer;
+
+/**
+ * Task 4 map and reduce tasks over the Task 2 output (output/task2/part-r-00000), with the
+ * lemma frequencies as scores.
+ *
+ * map runs WordTrendAnalysisMapper over every line at book and decade level, with and without
+ * in-mapper combining. reduce runs WordTrendAnalysisReducer over the sorted map output of that
+ * mapper, which is one TrendStats per line and level without in-mapper combining.
+ *
+ * Run: java -jar target/benchmarks.jar TrendAnalysisBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class TrendAnalysisBenchmark {
+
+    @Param({"true", "false"})
+    private boolean inMapperCombine;
+
+    private Configuration conf;
+    private List<Object> keys;
+    private List<Writable> lines;
+    private MapperHarness.MapOutput mapOutput;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException, InterruptedException {
+        conf = new Configuration(false);
+        conf.setBoolean("trend.inmapper.combine", inMapperCombine);
+
+        lines = new ArrayList<>(BenchmarkData.lines(BenchmarkData.task2Output()));
+        keys = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            keys.add(new LongWritable(i));
+        }
+        mapOutput = MapperHarness.collect(new WordTrendAnalysisMapper(), conf, keys, lines,
+                WordTrendAnalysisMapper.TrendKey.class, TrendStats.class);
+    }
+
+    @Benchmark
+    public long map() throws IOException, InterruptedException {
+        return MapperHarness.run(new WordTrendAnalysisMapper(), conf, null, keys, lines)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+
+    @Benchmark
+    public long reduce() throws IOException, InterruptedException {
+        return ReducerHarness.run(new WordTrendAnalysisReducer(), conf, mapOutput,
+                WritableComparator.get(WordTrendAnalysisMapper.TrendKey.class, conf),
+                WordTrendAnalysisMapper.TrendKey.class, TrendStats.class)
+                .findCounter(MapperHarness.HarnessCounters.OUTPUT_RECORDS).getValue();
+    }
+}
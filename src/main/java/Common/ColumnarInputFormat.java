@@ -0,0 +1,145 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * Input format for files written by a ColumnarOutputFormat.
+ *
+ * Blocks are decoded whole, one column at a time, and the records are then handed out from the
+ * decoded columns as typed keys and values. Files are not split, since blocks have no sync
+ * markers; there is one file per reducer of the writing job.
+ */
+public abstract class ColumnarInputFormat<K, V> extends FileInputFormat<K, V> {
+
+    @Override
+    protected boolean isSplitable(JobContext context, Path file) {
+        return false;
+    }
+
+    /**
+     * Reads the blocks of one file. Subclasses decode their own columns in readColumns and
+     * fill the current key and value in setRecord.
+     */
+    public abstract static class BlockReader<K, V> extends RecordReader<K, V> {
+        private final String formatName;
+
+        private FSDataInputStream fileIn;
+        private DataInputStream in;
+        private long length;
+
+        private String[] bookIds = new String[0];
+        private int[] years = new int[0];
+        private int records = 0;
+        private int next = 0;
+        private boolean finished = false;
+
+        protected BlockReader(String formatName) {
+            this.formatName = formatName;
+        }
+
+        /**
+         * Decode the subclass columns of a block of the given number of records
+         */
+        protected abstract void readColumns(DataInputStream in, int records) throws IOException;
+
+        /**
+         * Make record i of the current block the current key and value
+         */
+        protected abstract void setRecord(int i, String bookId, int year);
+
+        @Override
+        public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+            Configuration conf = context.getConfiguration();
+            Path path = ((FileSplit) split).getPath();
+            length = ((FileSplit) split).getLength();
+
+            fileIn = path.getFileSystem(conf).open(path);
+            CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+            // Values are decoded a byte at a time, so the decompressed stream is buffered
+            in = codec == null ? fileIn
+                    : new DataInputStream(new BufferedInputStream(codec.createInputStream(fileIn), 64 * 1024));
+
+            String name = Text.readString(in);
+            if (!formatName.equals(name)) {
+                throw new IOException(path + " is not a " + formatName + " file: " + name);
+            }
+        }
+
+        @Override
+        public boolean nextKeyValue() throws IOException, InterruptedException {
+            if (next == records) {
+                if (finished || !readBlock()) {
+                    finished = true;
+                    return false;
+                }
+            }
+            setRecord(next, bookIds[next], years[next]);
+            next++;
+            return true;
+        }
+
+        private boolean readBlock() throws IOException {
+            records = WritableUtils.readVInt(in);
+            next = 0;
+            if (records == 0) {
+                return false;
+            }
+            if (bookIds.length < records) {
+                bookIds = new String[records];
+                years = new int[records];
+            }
+
+            // Book IDs as runs of equal IDs
+            int runs = WritableUtils.readVInt(in);
+            int record = 0;
+            for (int r = 0; r < runs; r++) {
+                String bookId = Text.readString(in);
+                int runLength = WritableUtils.readVInt(in);
+                for (int i = 0; i < runLength; i++) {
+                    bookIds[record++] = bookId;
+                }
+            }
+
+            // Years as differences from the previous record
+            int year = 0;
+            for (int i = 0; i < records; i++) {
+                year += WritableUtils.readVInt(in);
+                years[i] = year;
+            }
+
+            readColumns(in, records);
+            return true;
+        }
+
+        @Override
+        public float getProgress() throws IOException {
+            if (finished || length == 0) {
+                return 1.0f;
+            }
+            return Math.min(1.0f, fileIn.getPos() / (float) length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
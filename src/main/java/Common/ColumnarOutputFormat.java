@@ -0,0 +1,158 @@
+package Common;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Output format for per-book records stored column by column in blocks, read back by
+ * ColumnarInputFormat.
+ *
+ * A file starts with the format name and holds blocks of up to columnar.block.records records
+ * (default 4096), ended by an empty block. Every block stores the book IDs as runs of equal
+ * IDs and the years as differences from the previous record, followed by the columns of the
+ * subclass. Reducer output is sorted by book, so both columns shrink to a few bytes per block
+ * and the values are stored in binary, with nothing to parse when they are read.
+ *
+ * With mapreduce.output.fileoutputformat.compress=true the whole file is compressed with the
+ * configured codec (DefaultCodec unless set otherwise).
+ */
+public abstract class ColumnarOutputFormat<K, V> extends FileOutputFormat<K, V> {
+    public static final String BLOCK_RECORDS = "columnar.block.records";
+
+    /**
+     * Name written at the start of every file, checked by the matching ColumnarInputFormat
+     */
+    protected abstract String formatName();
+
+    protected abstract BlockWriter<K, V> createWriter(DataOutputStream out, Configuration conf);
+
+    @Override
+    public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+
+        CompressionCodec codec = null;
+        String extension = "";
+        if (getCompressOutput(context)) {
+            Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(context, DefaultCodec.class);
+            codec = ReflectionUtils.newInstance(codecClass, conf);
+            extension = codec.getDefaultExtension();
+        }
+
+        Path file = getDefaultWorkFile(context, extension);
+        FSDataOutputStream fileOut = file.getFileSystem(conf).create(file, false);
+        DataOutputStream out = codec == null ? fileOut
+                : new DataOutputStream(new BufferedOutputStream(codec.createOutputStream(fileOut), 64 * 1024));
+
+        Text.writeString(out, formatName());
+        return createWriter(out, conf);
+    }
+
+    /**
+     * Collects records into column buffers and writes them out one block at a time.
+     * Subclasses add their own columns with append, writeColumns and resetColumns.
+     */
+    public abstract static class BlockWriter<K, V> extends RecordWriter<K, V> {
+        private final DataOutputStream out;
+        private final int blockRecords;
+
+        private final DataOutputBuffer bookRuns = new DataOutputBuffer();
+        private final DataOutputBuffer years = new DataOutputBuffer();
+        private int records = 0;
+        private int runs = 0;
+        private String runBookId = null;
+        private int runLength = 0;
+        private int previousYear = 0;
+
+        protected BlockWriter(DataOutputStream out, Configuration conf) {
+            this.out = out;
+            this.blockRecords = conf.getInt(BLOCK_RECORDS, 4096);
+        }
+
+        /**
+         * Add the record's own columns; must call appendBookYear once
+         */
+        protected abstract void append(K key, V value) throws IOException;
+
+        /**
+         * Write the subclass columns of the current block
+         */
+        protected abstract void writeColumns(DataOutputStream out) throws IOException;
+
+        /**
+         * Clear the subclass columns for the next block
+         */
+        protected abstract void resetColumns();
+
+        protected void appendBookYear(String bookId, int year) throws IOException {
+            if (!bookId.equals(runBookId)) {
+                endRun();
+                runBookId = bookId;
+            }
+            runLength++;
+
+            WritableUtils.writeVInt(years, year - previousYear);
+            previousYear = year;
+        }
+
+        @Override
+        public void write(K key, V value) throws IOException, InterruptedException {
+            append(key, value);
+            if (++records == blockRecords) {
+                writeBlock();
+            }
+        }
+
+        private void endRun() throws IOException {
+            if (runLength > 0) {
+                Text.writeString(bookRuns, runBookId);
+                WritableUtils.writeVInt(bookRuns, runLength);
+                runs++;
+            }
+            runLength = 0;
+        }
+
+        private void writeBlock() throws IOException {
+            if (records == 0) {
+                return;
+            }
+            endRun();
+
+            // [records][runs][(bookId, length)...][year deltas...][subclass columns]
+            WritableUtils.writeVInt(out, records);
+            WritableUtils.writeVInt(out, runs);
+            out.write(bookRuns.getData(), 0, bookRuns.getLength());
+            out.write(years.getData(), 0, years.getLength());
+            writeColumns(out);
+
+            bookRuns.reset();
+            years.reset();
+            resetColumns();
+            records = 0;
+            runs = 0;
+            runBookId = null;
+            previousYear = 0;
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+            writeBlock();
+            // An empty block marks the end of the file
+            WritableUtils.writeVInt(out, 0);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package Common;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-record instrumentation for map and reduce tasks: every event is counted in a Hadoop
+ * counter, and only a sample of them is written to the task log.
+ *
+ * Logging is off unless debug.sample.every > 0. Then the 1st, (N+1)th, (2N+1)th, ... event of
+ * each counter is logged, up to debug.sample.max messages per task (default 100), so the log
+ * stays small however large the input is. Messages use SLF4J {} placeholders, so arguments are
+ * only turned into strings when a message is actually written.
+ *
+ * One instance per task; not thread-safe.
+ */
+public class SampledLog {
+    public static final String SAMPLE_EVERY = "debug.sample.every";
+    public static final String SAMPLE_MAX = "debug.sample.max";
+
+    private final Logger log;
+    private final long every;
+    private final long max;
+    private long logged = 0;
+
+    private final Map<Enum<?>, Event> events = new HashMap<>();
+
+    public SampledLog(Class<?> owner, Configuration conf) {
+        this.log = LoggerFactory.getLogger(owner);
+        this.every = conf.getLong(SAMPLE_EVERY, 0);
+        this.max = conf.getLong(SAMPLE_MAX, 100);
+    }
+
+    /**
+     * Count one event and log it if it falls in the sample
+     */
+    public void event(TaskAttemptContext context, Enum<?> counter, String format, Object... args) {
+        if (count(context, counter)) {
+            log.info(counter + ": " + format, args);
+        }
+    }
+
+    /**
+     * Count one failed record and log it, with the stack trace, if it falls in the sample
+     */
+    public void error(TaskAttemptContext context, Enum<?> counter, Object record, Throwable error) {
+        if (count(context, counter)) {
+            log.warn(counter + ": " + record, error);
+        }
+    }
+
+    /**
+     * Whether sampled messages can be written at all
+     */
+    public boolean isEnabled() {
+        return every > 0 && logged < max;
+    }
+
+    private boolean count(TaskAttemptContext context, Enum<?> counter) {
+        Event event = events.get(counter);
+        if (event == null) {
+            event = new Event(context.getCounter(counter));
+            events.put(counter, event);
+        }
+        event.counter.increment(1);
+
+        if (isEnabled() && event.seen++ % every == 0) {
+            logged++;
+            return true;
+        }
+        return false;
+    }
+
+    private static class Event {
+        final Counter counter;
+        long seen = 0;
+
+        Event(Counter counter) {
+            this.counter = counter;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package Pipeline;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import Task1.BookInputFormat;
+import Task1.BookMetadata;
+
+/**
+ * Checkpoint of the books the incremental pipeline has processed: one line per input file with
+ * the MD5 of its content and its book ID, as path [tab] md5 [tab] bookId ("-" for a file with
+ * no book ID anywhere, which Task 1 skips, so it has no stored results).
+ *
+ * scan() compares the manifest with the current input files and collects the files that are
+ * new or whose content changed, and the book IDs whose stored results must be replaced because
+ * their file changed or disappeared. The manifest is only written back with save() once the
+ * pipeline has succeeded, so a failed run is retried in full on the next attempt.
+ */
+public class BookManifest {
+    private static final String NO_BOOK_ID = "-";
+
+    private final Map<String, Entry> entries = new TreeMap<>();
+    private final List<Path> changedFiles = new ArrayList<>();
+    private final Set<String> replacedBooks = new LinkedHashSet<>();
+
+    private static class Entry {
+        final String hash;
+        final String bookId;
+
+        Entry(String hash, String bookId) {
+            this.hash = hash;
+            this.bookId = bookId;
+        }
+    }
+
+    /**
+     * Read a manifest, or start an empty one if there is none yet
+     */
+    public static BookManifest load(FileSystem fs, Path path) throws IOException {
+        BookManifest manifest = new BookManifest();
+        if (!fs.exists(path)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(fs.open(path), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    manifest.entries.put(parts[0], new Entry(parts[1], parts[2]));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Compare the manifest with the files under the input path and record what changed.
+     * The entries are updated in memory; call save() once their results are stored.
+     */
+    public void scan(FileSystem fs, Path input, Configuration conf) throws IOException {
+        changedFiles.clear();
+        replacedBooks.clear();
+
+        Set<String> seen = new LinkedHashSet<>();
+        for (FileStatus status : fs.listStatus(input)) {
+            String name = status.getPath().getName();
+            if (status.isDirectory() || name.startsWith("_") || name.startsWith(".")) {
+                continue; // Same files FileInputFormat skips
+            }
+
+            Path file = status.getPath();
+            String key = file.toString();
+            seen.add(key);
+
+            String hash = hash(fs, file);
+            Entry previous = entries.get(key);
+            if (previous != null && previous.hash.equals(hash)) {
+                continue;
+            }
+
+            String bookId = bookId(file, conf);
+            if (previous != null) {
+                replaceBook(previous.bookId);
+            }
+            replaceBook(bookId);
+
+            changedFiles.add(file);
+            entries.put(key, new Entry(hash, bookId));
+        }
+
+        // Files that are gone take their results with them
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (!seen.contains(entry.getKey())) {
+                replaceBook(entry.getValue().bookId);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Book ID of a file as Task 1 finds it: from the header, or else from any line of the book
+     */
+    private static String bookId(Path file, Configuration conf) throws IOException {
+        BookMetadata metadata = BookInputFormat.readMetadata(file, conf);
+        if (metadata.getBookId() == null) {
+            metadata = BookInputFormat.readMetadata(file, conf, Integer.MAX_VALUE);
+        }
+        return metadata.getBookId() != null ? metadata.getBookId() : NO_BOOK_ID;
+    }
+
+    private void replaceBook(String bookId) {
+        if (!NO_BOOK_ID.equals(bookId)) {
+            replacedBooks.add(bookId);
+        }
+    }
+
+    /**
+     * Write the manifest through a temporary file so a failure never leaves half of it behind
+     */
+    public void save(FileSystem fs, Path path) throws IOException {
+        Path tmp = new Path(path.getParent(), "_" + path.getName() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(fs.create(tmp, true), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "\t" + entry.getValue().hash + "\t" + entry.getValue().bookId + "\n");
+            }
+        }
+        fs.delete(path, false);
+        if (!fs.rename(tmp, path)) {
+            throw new IOException("Could not rename " + tmp + " to " + path);
+        }
+    }
+
+    /**
+     * Files that are new or changed since the manifest was written, as found by the last scan
+     */
+    public List<Path> getChangedFiles() {
+        return changedFiles;
+    }
+
+    /**
+     * Book IDs whose stored results are out of date, as found by the last scan
+     */
+    public Set<String> getReplacedBooks() {
+        return replacedBooks;
+    }
+
+    /**
+     * Hex MD5 of the file content
+     */
+    static String hash(FileSystem fs, Path file) throws IOException {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = fs.open(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md5.update(buffer, 0, n);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder(32);
+        for (byte b : md5.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
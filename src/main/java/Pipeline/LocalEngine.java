@@ -0,0 +1,501 @@
+package Pipeline;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.serializer.SerializationFactory;
+import org.apache.hadoop.io.serializer.Serializer;
+import org.apache.hadoop.mapred.RawKeyValueIterator;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.Partitioner;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.StatusReporter;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.lib.reduce.WrappedReducer;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.apache.hadoop.mapreduce.task.MapContextImpl;
+import org.apache.hadoop.mapreduce.task.ReduceContextImpl;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.hadoop.util.Progress;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process engine that runs a configured MapReduce Job on the cores of one machine, without
+ * a cluster or the Hadoop local job runner.
+ *
+ * The job's own input format, mapper, partitioner, comparators, reducer and output format are
+ * used unchanged, so the output files are the same as those of the cluster job:
+ * 1. The input splits (one per book or segment for Task 1) are mapped as fork/join tasks,
+ *    local.parallelism at a time (default: all cores). When there are fewer file splits than
+ *    that, the input is split into smaller pieces, unless a maximum split size is configured
+ * 2. Instead of being spilled, sorted and merged, the map output is serialized into a concurrent
+ *    hash table of key bytes -> values per partition, so equal keys are aggregated as they arrive
+ * 3. Each partition then sorts only its distinct keys with the job's sort comparator, and runs
+ *    the reducer over them, grouped by the job's grouping comparator, as another fork/join task
+ *
+ * Values of a key are handed to the reducer in map task order, and in output order within a
+ * task, so repeated runs give identical output. The combiner is not run, as Hadoop is free to
+ * skip it; the mappers already combine in memory. All map output is held on the heap, so the
+ * engine is meant for small corpora and regression runs, not for inputs that need a cluster.
+ */
+public class LocalEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LocalEngine.class);
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+    private int jobNumber;
+
+    public LocalEngine(Configuration conf) {
+        parallelism = conf.getInt("local.parallelism", Runtime.getRuntime().availableProcessors());
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("local.parallelism must be at least 1: " + parallelism);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Run a job to completion, logging its counters
+     *
+     * @return true if every task succeeded and the output was committed; otherwise the job is
+     *         aborted through its output committer, which removes its temporary output
+     */
+    public boolean run(Job job) throws IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        Configuration conf = job.getConfiguration();
+        JobID jobId = new JobID("local" + start, ++jobNumber);
+        int reducers = job.getNumReduceTasks();
+        List<InputSplit> splits = getSplits(job);
+
+        // Commit through the job's output committer, as the cluster job would
+        TaskAttemptID setupId = new TaskAttemptID(jobId.getJtIdentifier(), jobId.getId(), TaskType.JOB_SETUP, 0, 0);
+        OutputCommitter jobCommitter = newOutputFormat(job, conf)
+                .getOutputCommitter(new TaskAttemptContextImpl(conf, setupId));
+        JobContextImpl jobContext = new JobContextImpl(conf, jobId);
+        jobCommitter.setupJob(jobContext);
+
+        try {
+
+            // Map phase: one fork/join task per split
+            MapOutput mapOutput = reducers > 0 ? new MapOutput(reducers) : null;
+            List<ForkJoinTask<Counters>> mapTasks = new ArrayList<>();
+            for (int i = 0; i < splits.size(); i++) {
+                final int task = i;
+                mapTasks.add(pool.submit(() -> runMapTask(job, jobId, task, splits.get(task), mapOutput)));
+            }
+            Counters counters = new Counters();
+            for (ForkJoinTask<Counters> mapTask : mapTasks) {
+                counters.incrAllCounters(mapTask.get());
+            }
+
+            // Reduce phase: one fork/join task per partition
+            List<ForkJoinTask<Counters>> reduceTasks = new ArrayList<>();
+            for (int partition = 0; partition < reducers; partition++) {
+                final int task = partition;
+                reduceTasks.add(pool.submit(() -> runReduceTask(job, jobId, task, mapOutput.partitions[task])));
+            }
+            for (ForkJoinTask<Counters> reduceTask : reduceTasks) {
+                counters.incrAllCounters(reduceTask.get());
+            }
+
+            jobCommitter.commitJob(jobContext);
+            logSummary(job, splits.size(), reducers, System.currentTimeMillis() - start, counters);
+            return true;
+        } catch (ExecutionException e) {
+            LOG.error("Local job {} failed", job.getJobName(), e.getCause());
+            jobCommitter.abortJob(jobContext, JobStatus.State.FAILED);
+            return false;
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The job's input splits, cut smaller when there are too few files to keep every core busy
+     */
+    private List<InputSplit> getSplits(Job job) throws IOException, InterruptedException {
+        InputFormat<?, ?> inputFormat = ReflectionUtils.newInstance(getInputFormatClass(job), job.getConfiguration());
+        List<InputSplit> splits = inputFormat.getSplits(job);
+        if (splits.size() >= parallelism || !(inputFormat instanceof FileInputFormat)
+                || job.getConfiguration().get(FileInputFormat.SPLIT_MAXSIZE) != null) {
+            return splits;
+        }
+
+        long totalLength = 0;
+        for (InputSplit split : splits) {
+            totalLength += split.getLength();
+        }
+        long maxSize = Math.max(1, (totalLength + parallelism - 1) / parallelism);
+        Job smallerSplits = Job.getInstance(job.getConfiguration());
+        FileInputFormat.setMaxInputSplitSize(smallerSplits, maxSize);
+        return inputFormat.getSplits(smallerSplits);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Counters runMapTask(Job job, JobID jobId, int task, InputSplit split, MapOutput output) throws Exception {
+        Configuration conf = taskConf(job, TaskType.MAP, jobId, task);
+        TaskAttemptID attemptId = TaskAttemptID.forName(conf.get(MRJobConfig.TASK_ATTEMPT_ID));
+        Counters counters = new Counters();
+        StatusReporter reporter = new CounterReporter(counters);
+        TaskAttemptContext taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+
+        InputFormat inputFormat = ReflectionUtils.newInstance(getInputFormatClass(job), conf);
+        RecordReader reader = inputFormat.createRecordReader(split, taskContext);
+
+        // Map-only jobs write through the output format; otherwise collect for the reducers
+        OutputFormat outputFormat = null;
+        OutputCommitter committer = null;
+        RecordWriter writer;
+        if (output == null) {
+            outputFormat = newOutputFormat(job, conf);
+            committer = outputFormat.getOutputCommitter(taskContext);
+            committer.setupTask(taskContext);
+            writer = outputFormat.getRecordWriter(taskContext);
+        } else {
+            writer = new CollectingWriter(job, conf, task, output);
+        }
+
+        Mapper mapper = ReflectionUtils.newInstance(job.getMapperClass(), conf);
+        MapContextImpl mapContext = new MapContextImpl(conf, attemptId, reader, writer, committer, reporter, split);
+        Mapper.Context context = new WrappedMapper().getMapContext(mapContext);
+        reader.initialize(split, context);
+        try {
+            mapper.run(context);
+        } finally {
+            reader.close();
+            writer.close(taskContext);
+        }
+
+        if (committer != null && committer.needsTaskCommit(taskContext)) {
+            committer.commitTask(taskContext);
+        }
+        return counters;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Counters runReduceTask(Job job, JobID jobId, int task, ConcurrentHashMap<KeyBytes, Values> partition)
+            throws Exception {
+        Configuration conf = taskConf(job, TaskType.REDUCE, jobId, task);
+        TaskAttemptID attemptId = TaskAttemptID.forName(conf.get(MRJobConfig.TASK_ATTEMPT_ID));
+        Counters counters = new Counters();
+        StatusReporter reporter = new CounterReporter(counters);
+        TaskAttemptContext taskContext = new TaskAttemptContextImpl(conf, attemptId, reporter);
+
+        // Only the distinct keys are sorted; their values are already together
+        RawComparator sortComparator = job.getSortComparator();
+        List<KeyBytes> keys = new ArrayList<>(partition.keySet());
+        keys.sort((a, b) -> sortComparator.compare(a.bytes, 0, a.bytes.length, b.bytes, 0, b.bytes.length));
+
+        OutputFormat outputFormat = newOutputFormat(job, conf);
+        OutputCommitter committer = outputFormat.getOutputCommitter(taskContext);
+        committer.setupTask(taskContext);
+        RecordWriter writer = outputFormat.getRecordWriter(taskContext);
+
+        Reducer reducer = ReflectionUtils.newInstance(job.getReducerClass(), conf);
+        ReduceContextImpl reduceContext = new ReduceContextImpl(conf, attemptId, new SortedInput(keys, partition),
+                counters.findCounter(TaskCounter.REDUCE_INPUT_GROUPS), counters.findCounter(TaskCounter.REDUCE_INPUT_RECORDS),
+                writer, committer, reporter, job.getGroupingComparator(),
+                job.getMapOutputKeyClass(), job.getMapOutputValueClass());
+        try {
+            reducer.run(new WrappedReducer().getReducerContext(reduceContext));
+        } finally {
+            writer.close(taskContext);
+        }
+
+        if (committer.needsTaskCommit(taskContext)) {
+            committer.commitTask(taskContext);
+        }
+        return counters;
+    }
+
+    /**
+     * A copy of the job configuration with the task identity set, as a task JVM would see it
+     */
+    private static Configuration taskConf(Job job, TaskType type, JobID jobId, int task) {
+        Configuration conf = new Configuration(job.getConfiguration());
+        TaskAttemptID attemptId = new TaskAttemptID(jobId.getJtIdentifier(), jobId.getId(), type, task, 0);
+        conf.set(MRJobConfig.TASK_ATTEMPT_ID, attemptId.toString());
+        conf.set(MRJobConfig.TASK_ID, attemptId.getTaskID().toString());
+        conf.setInt(MRJobConfig.TASK_PARTITION, task);
+        conf.setBoolean(MRJobConfig.TASK_ISMAP, type == TaskType.MAP);
+        return conf;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Class<? extends InputFormat> getInputFormatClass(Job job) throws IOException {
+        try {
+            return job.getInputFormatClass();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Input format of " + job.getJobName() + " not found", e);
+        }
+    }
+
+    /**
+     * A new output format per task: FileOutputFormat keeps the committer of the task that first used it
+     */
+    @SuppressWarnings("rawtypes")
+    private static OutputFormat newOutputFormat(Job job, Configuration conf) throws IOException {
+        try {
+            return ReflectionUtils.newInstance(job.getOutputFormatClass(), conf);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Output format of " + job.getJobName() + " not found", e);
+        }
+    }
+
+    private static void logSummary(Job job, int maps, int reducers, long millis, Counters counters) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Local job ").append(job.getJobName()).append(": ").append(maps).append(" map tasks, ")
+                .append(reducers).append(" reduce tasks, ").append(millis).append(" ms");
+        for (CounterGroup group : counters) {
+            for (Counter counter : group) {
+                if (counter.getValue() != 0) {
+                    summary.append("\n\t").append(counter.getName()).append('=').append(counter.getValue());
+                }
+            }
+        }
+        LOG.info(summary.toString());
+    }
+
+    /**
+     * Serialized map output key, compared and hashed by its bytes
+     */
+    private static final class KeyBytes {
+        final byte[] bytes;
+        private final int hash;
+
+        KeyBytes(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof KeyBytes && Arrays.equals(bytes, ((KeyBytes) obj).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Serialized values of one key, tagged with the map task that wrote them
+     */
+    private static final class Values {
+        private final List<byte[]> values = new ArrayList<>(2);
+        private final List<Integer> tasks = new ArrayList<>(2);
+
+        synchronized void add(int task, byte[] value) {
+            values.add(value);
+            tasks.add(task);
+        }
+
+        /**
+         * The values in map task order; a task adds its values in output order
+         */
+        List<byte[]> inTaskOrder() {
+            Integer[] order = new Integer[values.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(tasks.get(a), tasks.get(b)));
+            List<byte[]> sorted = new ArrayList<>(order.length);
+            for (Integer i : order) {
+                sorted.add(values.get(i));
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * The map output of a job: one concurrent table of key bytes -> values per partition
+     */
+    private static final class MapOutput {
+        final ConcurrentHashMap<KeyBytes, Values>[] partitions;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        MapOutput(int reducers) {
+            partitions = new ConcurrentHashMap[reducers];
+            for (int i = 0; i < reducers; i++) {
+                partitions[i] = new ConcurrentHashMap<>();
+            }
+        }
+    }
+
+    /**
+     * Map output collector: partitions each pair and serializes it into the concurrent tables
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final class CollectingWriter extends RecordWriter<Object, Object> {
+        private final int task;
+        private final MapOutput output;
+        private final Partitioner partitioner;
+        private final int reducers;
+        private final DataOutputBuffer keyBuffer = new DataOutputBuffer();
+        private final DataOutputBuffer valueBuffer = new DataOutputBuffer();
+        private final Serializer keySerializer;
+        private final Serializer valueSerializer;
+
+        CollectingWriter(Job job, Configuration conf, int task, MapOutput output) throws IOException {
+            this.task = task;
+            this.output = output;
+            this.reducers = job.getNumReduceTasks();
+            try {
+                this.partitioner = ReflectionUtils.newInstance(job.getPartitionerClass(), conf);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Partitioner of " + job.getJobName() + " not found", e);
+            }
+
+            SerializationFactory serialization = new SerializationFactory(conf);
+            keySerializer = serialization.getSerializer(job.getMapOutputKeyClass());
+            keySerializer.open(keyBuffer);
+            valueSerializer = serialization.getSerializer(job.getMapOutputValueClass());
+            valueSerializer.open(valueBuffer);
+        }
+
+        @Override
+        public void write(Object key, Object value) throws IOException {
+            // Like MapTask, a single reducer gets everything without asking the partitioner
+            int partition = reducers == 1 ? 0 : partitioner.getPartition(key, value, reducers);
+
+            keyBuffer.reset();
+            keySerializer.serialize(key);
+            valueBuffer.reset();
+            valueSerializer.serialize(value);
+
+            KeyBytes keyBytes = new KeyBytes(Arrays.copyOf(keyBuffer.getData(), keyBuffer.getLength()));
+            output.partitions[partition].computeIfAbsent(keyBytes, k -> new Values())
+                    .add(task, Arrays.copyOf(valueBuffer.getData(), valueBuffer.getLength()));
+        }
+
+        @Override
+        public void close(TaskAttemptContext context) throws IOException {
+            keySerializer.close();
+            valueSerializer.close();
+        }
+    }
+
+    /**
+     * Reduce input: the sorted distinct keys of a partition, each followed by its values
+     */
+    private static final class SortedInput implements RawKeyValueIterator {
+        private final List<KeyBytes> keys;
+        private final ConcurrentHashMap<KeyBytes, Values> partition;
+        private final DataInputBuffer key = new DataInputBuffer();
+        private final DataInputBuffer value = new DataInputBuffer();
+        private final Progress progress = new Progress();
+        private int keyIndex = -1;
+        private List<byte[]> values = new ArrayList<>();
+        private int valueIndex;
+
+        SortedInput(List<KeyBytes> keys, ConcurrentHashMap<KeyBytes, Values> partition) {
+            this.keys = keys;
+            this.partition = partition;
+        }
+
+        @Override
+        public boolean next() {
+            if (++valueIndex >= values.size()) {
+                if (++keyIndex >= keys.size()) {
+                    return false;
+                }
+                KeyBytes current = keys.get(keyIndex);
+                key.reset(current.bytes, current.bytes.length);
+                values = partition.get(current).inTaskOrder();
+                valueIndex = 0;
+            }
+            byte[] bytes = values.get(valueIndex);
+            value.reset(bytes, bytes.length);
+            return true;
+        }
+
+        @Override
+        public DataInputBuffer getKey() {
+            // The reduce context reads the key in place, so hand it a fresh view each time
+            KeyBytes current = keys.get(keyIndex);
+            key.reset(current.bytes, current.bytes.length);
+            return key;
+        }
+
+        @Override
+        public DataInputBuffer getValue() {
+            return value;
+        }
+
+        @Override
+        public Progress getProgress() {
+            return progress;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Counts into the task's Counters; progress and status have nowhere to go
+     */
+    private static final class CounterReporter extends StatusReporter {
+        private final Counters counters;
+
+        CounterReporter(Counters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public Counter getCounter(Enum<?> name) {
+            return counters.findCounter(name);
+        }
+
+        @Override
+        public Counter getCounter(String group, String name) {
+            return counters.findCounter(group, name);
+        }
+
+        @Override
+        public void progress() {
+        }
+
+        @Override
+        public float getProgress() {
+            return 0;
+        }
+
+        @Override
+        public void setStatus(String status) {
+        }
+    }
+}
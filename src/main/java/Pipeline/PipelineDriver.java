@@ -0,0 +1,482 @@
+package Pipeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.jobcontrol.ControlledJob;
+import org.apache.hadoop.mapreduce.lib.jobcontrol.JobControl;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import Task1.BookInputFormat;
+import Task1.PreprocessingMapper;
+import Task1.PreprocessingReducer;
+import Task2.LemmaFrequencyInputFormat;
+import Task2.LemmaFrequencyOutputFormat;
+import Task2.WordFreqLemmatizationCombiner;
+import Task2.WordFreqLemmatizationMapper;
+import Task2.WordFreqLemmatizationReducer;
+import Task3.SentimentAggregate;
+import Task3.SentimentScoreInputFormat;
+import Task3.SentimentScoreOutputFormat;
+import Task3.WordSentimentScoreCombiner;
+import Task3.WordSentimentScoreMapper;
+import Task3.WordSentimentScoreReducer;
+import Task4.TrendStateMapper;
+import Task4.TrendStats;
+import Task4.WordTrendAnalysisCombiner;
+import Task4.WordTrendAnalysisMapper;
+import Task4.WordTrendAnalysisReducer;
+import Task4.WordTrendMergeMapper;
+
+/**
+ * Driver that runs Task 1 through Task 4 as one chained pipeline.
+ *
+ * This job:
+ * 1. Submits preprocessing, lemma counting, sentiment scoring and trend analysis
+ *    as dependent jobs in a single JobControl, so the whole chain is scheduled at once
+ * 2. Passes intermediate results between stages as block-compressed SequenceFiles,
+ *    so no stage has to re-split the previous stage's text output into records
+ * 3. Writes the final trends as text to <output>/task4; intermediate stages go to
+ *    <output>/task1..task3 and are removed on success unless -materialize=true.
+ *    With -columnar=true the Task 2 and Task 3 results are passed on as typed columns
+ *    (LemmaFrequencyOutputFormat, SentimentScoreOutputFormat) instead of SequenceFiles
+ * 4. With -salts=N above 1, adds a merge stage after trend analysis that combines the
+ *    salted partial statistics of the overall decade keys (see WordTrendAnalysisDriver)
+ * 5. With -incremental=true, keeps the output directory between runs and only runs Task 1-3
+ *    on the input files that are new or changed since the last run (see BookManifest). The
+ *    per-book trend statistics are kept in <output>/state/trends; the stored statistics of
+ *    changed or removed books are replaced by the new ones, and the final trends are rebuilt
+ *    from the per-book statistics (see TrendStateMapper). Only task4 is maintained this way:
+ *    with -materialize=true, task1..task3 hold the results of this run's books alone
+ * 6. With -local=true, runs the same stages one after another in this JVM on all cores
+ *    (see LocalEngine) instead of submitting them to the cluster
+ * 7. With -text=true, scores the cleaned Task 1 text word by word instead of the Task 2 lemma
+ *    counts, so phrases and sentiment.modifiers apply; the lemma stage is then skipped
+ *
+ * Command: hadoop jar yourjar.jar Pipeline.PipelineDriver /input /output [lexicon path] [options]
+ */
+public class PipelineDriver extends Configured implements Tool {
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: PipelineDriver <input path> <output path> [lexicon path] [options]");
+            System.err.println("Options:");
+            System.err.println("  -materialize=true|false  Keep intermediate stage outputs as text (default: false)");
+            System.err.println("  -columnar=true|false     Pass Task 2 and Task 3 results on as columns (default: false)");
+            System.err.println("  -book=true|false         Include book-level trends (default: true)");
+            System.err.println("  -overall=true|false      Include overall decade trends (default: true)");
+            System.err.println("  -average=true|false      Use average instead of sum for aggregation (default: true)");
+            System.err.println("  -reducers=N              Number of trend analysis reducers (default: 1)");
+            System.err.println("  -salts=N                 Split each overall decade key over N salted keys (default: 1)");
+            System.err.println("  -incremental=true|false  Only process new or changed books, keeping earlier results (default: false)");
+            System.err.println("  -local=true|false        Run the stages in this JVM instead of on the cluster (default: false)");
+            System.err.println("  -text=true|false         Score the Task 1 text instead of the Task 2 lemmas (default: false)");
+            System.err.println("Example: PipelineDriver /input /output hdfs:///lexicons/afinn.txt -materialize=true");
+            return -1;
+        }
+
+        Configuration conf = getConf();
+
+        // Set default options
+        String lexiconPath = null;
+        boolean materialize = false;
+        boolean columnar = false;
+        boolean includeBookLevel = true;
+        boolean includeOverallLevel = true;
+        boolean useAverage = true;
+        int trendReducers = 1;
+        int salts = 1;
+        boolean incremental = false;
+        boolean local = false;
+        boolean scoreText = false;
+
+        // Parse optional arguments
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.startsWith("-materialize=")) {
+                materialize = Boolean.parseBoolean(arg.substring(13));
+            } else if (arg.startsWith("-columnar=")) {
+                columnar = Boolean.parseBoolean(arg.substring(10));
+            } else if (arg.startsWith("-book=")) {
+                includeBookLevel = Boolean.parseBoolean(arg.substring(6));
+            } else if (arg.startsWith("-overall=")) {
+                includeOverallLevel = Boolean.parseBoolean(arg.substring(9));
+            } else if (arg.startsWith("-average=")) {
+                useAverage = Boolean.parseBoolean(arg.substring(9));
+            } else if (arg.startsWith("-reducers=")) {
+                trendReducers = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("-salts=")) {
+                salts = Integer.parseInt(arg.substring(7));
+            } else if (arg.startsWith("-incremental=")) {
+                incremental = Boolean.parseBoolean(arg.substring(13));
+            } else if (arg.startsWith("-local=")) {
+                local = Boolean.parseBoolean(arg.substring(7));
+            } else if (arg.startsWith("-text=")) {
+                scoreText = Boolean.parseBoolean(arg.substring(6));
+            } else if (!arg.startsWith("-")) {
+                lexiconPath = arg;
+            }
+        }
+
+        // Task 4 trends one sentiment score per book
+        if (WordSentimentScoreMapper.lexiconNames(conf).length > 1) {
+            throw new IllegalArgumentException("The pipeline scores one lexicon; run Task3.WordSentimentScoreDriver "
+                    + "to score several in sentiment.lexicons");
+        }
+
+        // Modifiers need the words around a sentiment word, which only the Task 1 text has
+        if (conf.getBoolean("sentiment.modifiers", false) && !scoreText) {
+            throw new IllegalArgumentException("sentiment.modifiers applies to the Task 1 text; add -text=true "
+                    + "to score it instead of the Task 2 lemmas");
+        }
+
+        // Set Task 4 options in configuration
+        conf.setBoolean("trend.include.book", includeBookLevel);
+        conf.setBoolean("trend.include.overall", includeOverallLevel);
+        conf.setBoolean("trend.use.average", useAverage);
+        conf.setInt("trend.overall.salts", salts);
+
+        Path outputPath = new Path(args[1]);
+        FileSystem fs = outputPath.getFileSystem(conf);
+        Path task1Output = new Path(outputPath, "task1");
+        Path task2Output = new Path(outputPath, "task2");
+        Path task3Output = new Path(outputPath, "task3");
+        Path task4Output = new Path(outputPath, "task4");
+        Path task4Partials = new Path(outputPath, "task4_partials");
+        Path manifestPath = new Path(outputPath, "state/manifest");
+        Path trendState = new Path(outputPath, "state/trends");
+        Path nextTrendState = new Path(outputPath, "state/trends.next");
+
+        BookManifest manifest = null;
+        boolean hasDelta = true;
+        if (incremental) {
+            // Find the books that need processing against the manifest of the last run. Without
+            // the stored statistics the manifest is worthless, so then every book is processed.
+            manifest = fs.exists(trendState) ? BookManifest.load(fs, manifestPath) : new BookManifest();
+            manifest.scan(fs, new Path(args[0]), conf);
+            hasDelta = !manifest.getChangedFiles().isEmpty();
+            if (!hasDelta && (manifest.getReplacedBooks().isEmpty() || !fs.exists(trendState))) {
+                System.out.println("No new, changed or removed books; " + task4Output + " is up to date.");
+                return 0;
+            }
+            System.out.println(manifest.getChangedFiles().size() + " new or changed input files, "
+                    + manifest.getReplacedBooks().size() + " books to replace.");
+
+            // Keep the stored state, clear only what this run writes again
+            for (Path stale : Arrays.asList(task1Output, task2Output, task3Output, task4Output, task4Partials, nextTrendState)) {
+                fs.delete(stale, true);
+            }
+        } else if (fs.exists(outputPath)) {
+            // Check if output directory exists and delete it if it does
+            fs.delete(outputPath, true);
+            System.out.println("Output directory " + outputPath + " deleted.");
+        }
+
+        // Task 2 and Task 3 results as columns, unless they are materialized as text
+        boolean columnarStages = columnar && !materialize;
+
+        // Task 1: preprocessing
+        Job preprocessing = Job.getInstance(conf, "Pipeline: Preprocessing");
+        preprocessing.setJarByClass(PipelineDriver.class);
+        preprocessing.setMapperClass(PreprocessingMapper.class);
+        preprocessing.setReducerClass(PreprocessingReducer.class);
+        preprocessing.setMapOutputKeyClass(PreprocessingMapper.BookLineKey.class);
+        preprocessing.setMapOutputValueClass(Text.class);
+        preprocessing.setPartitionerClass(PreprocessingMapper.BookLineKey.BookPartitioner.class);
+        preprocessing.setGroupingComparatorClass(PreprocessingMapper.BookLineKey.GroupComparator.class);
+        preprocessing.setOutputKeyClass(Text.class);
+        preprocessing.setOutputValueClass(Text.class);
+        preprocessing.setInputFormatClass(BookInputFormat.class);
+        if (incremental) {
+            for (Path changed : manifest.getChangedFiles()) {
+                FileInputFormat.addInputPath(preprocessing, changed);
+            }
+        } else {
+            FileInputFormat.addInputPath(preprocessing, new Path(args[0]));
+        }
+        setStageOutput(preprocessing, task1Output, materialize);
+
+        // Task 2: lemma frequency
+        Job lemmas = Job.getInstance(conf, "Pipeline: Lemma Frequency Analysis");
+        lemmas.setJarByClass(PipelineDriver.class);
+        lemmas.setMapperClass(WordFreqLemmatizationMapper.class);
+        lemmas.setReducerClass(WordFreqLemmatizationReducer.class);
+        lemmas.setCombinerClass(WordFreqLemmatizationCombiner.class);
+        lemmas.setMapOutputKeyClass(WordFreqLemmatizationMapper.LemmaKey.class);
+        lemmas.setMapOutputValueClass(IntWritable.class);
+        lemmas.setOutputKeyClass(WordFreqLemmatizationMapper.LemmaKey.class);
+        lemmas.setOutputValueClass(IntWritable.class);
+        setStageInput(lemmas, task1Output, materialize);
+        if (columnarStages) {
+            setStageOutput(lemmas, task2Output, LemmaFrequencyOutputFormat.class);
+        } else {
+            setStageOutput(lemmas, task2Output, materialize);
+        }
+
+        // Task 3: sentiment scoring
+        Job sentiment = Job.getInstance(conf, "Pipeline: Sentiment Scoring");
+        sentiment.setJarByClass(PipelineDriver.class);
+        sentiment.setMapperClass(WordSentimentScoreMapper.class);
+        sentiment.setCombinerClass(WordSentimentScoreCombiner.class);
+        sentiment.setReducerClass(WordSentimentScoreReducer.class);
+        sentiment.setMapOutputKeyClass(WordSentimentScoreMapper.BookKey.class);
+        sentiment.setMapOutputValueClass(SentimentAggregate.class);
+        sentiment.setOutputKeyClass(WordSentimentScoreMapper.BookKey.class);
+        sentiment.setOutputValueClass(DoubleWritable.class);
+        if (lexiconPath != null) {
+            sentiment.addCacheFile(new Path(lexiconPath).toUri());
+        }
+        if (scoreText) {
+            // Task 1 records are told from Task 2 ones by the mapper (see WordSentimentScoreMapper)
+            setStageInput(sentiment, task1Output, materialize);
+        } else if (columnarStages) {
+            setStageInput(sentiment, task2Output, LemmaFrequencyInputFormat.class);
+        } else {
+            setStageInput(sentiment, task2Output, materialize);
+        }
+        if (columnarStages) {
+            setStageOutput(sentiment, task3Output, SentimentScoreOutputFormat.class);
+        } else {
+            setStageOutput(sentiment, task3Output, materialize);
+        }
+
+        // Task 4: trend analysis, always written as text. Salted overall keys are written
+        // as partial statistics and merged by an extra stage.
+        boolean salted = salts > 1;
+        Job trends = Job.getInstance(conf, "Pipeline: Trend Analysis");
+        trends.setJarByClass(PipelineDriver.class);
+        trends.setMapperClass(WordTrendAnalysisMapper.class);
+        trends.setCombinerClass(WordTrendAnalysisCombiner.class);
+        trends.setReducerClass(salted ? WordTrendAnalysisCombiner.class : WordTrendAnalysisReducer.class);
+        trends.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        trends.setMapOutputValueClass(TrendStats.class);
+        trends.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        trends.setNumReduceTasks(trendReducers);
+        if (columnarStages) {
+            setStageInput(trends, task3Output, SentimentScoreInputFormat.class);
+        } else {
+            setStageInput(trends, task3Output, materialize);
+        }
+        if (salted) {
+            trends.setOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+            trends.setOutputValueClass(TrendStats.class);
+            trends.setOutputFormatClass(SequenceFileOutputFormat.class);
+            FileOutputFormat.setOutputPath(trends, task4Partials);
+        } else {
+            trends.setOutputKeyClass(Text.class);
+            trends.setOutputValueClass(Text.class);
+            FileOutputFormat.setOutputPath(trends, task4Output);
+        }
+
+        // Task 4 merge: drop the salts and merge the partial statistics
+        Job trendMerge = Job.getInstance(conf, "Pipeline: Trend Merge");
+        trendMerge.setJarByClass(PipelineDriver.class);
+        trendMerge.setMapperClass(WordTrendMergeMapper.class);
+        trendMerge.setCombinerClass(WordTrendAnalysisCombiner.class);
+        trendMerge.setReducerClass(WordTrendAnalysisReducer.class);
+        trendMerge.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        trendMerge.setMapOutputValueClass(TrendStats.class);
+        trendMerge.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        trendMerge.setNumReduceTasks(trendReducers);
+        trendMerge.setOutputKeyClass(Text.class);
+        trendMerge.setOutputValueClass(Text.class);
+        setStageInput(trendMerge, task4Partials, false);
+        FileOutputFormat.setOutputPath(trendMerge, task4Output);
+
+        // Incremental Task 4: per-book statistics of the new books merged with the stored ones
+        // of the unchanged books, then the final trends rebuilt from them
+        Job trendStateUpdate = Job.getInstance(conf, "Pipeline: Trend State Update");
+        trendStateUpdate.setJarByClass(PipelineDriver.class);
+        trendStateUpdate.setCombinerClass(WordTrendAnalysisCombiner.class);
+        trendStateUpdate.setReducerClass(WordTrendAnalysisCombiner.class);
+        trendStateUpdate.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        trendStateUpdate.setMapOutputValueClass(TrendStats.class);
+        trendStateUpdate.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        trendStateUpdate.setNumReduceTasks(trendReducers);
+        trendStateUpdate.setOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        trendStateUpdate.setOutputValueClass(TrendStats.class);
+        trendStateUpdate.getConfiguration().setBoolean("trend.include.book", true);
+        trendStateUpdate.getConfiguration().setBoolean("trend.include.overall", false);
+        if (incremental) {
+            trendStateUpdate.getConfiguration().setStrings("trend.state.drop.books",
+                    manifest.getReplacedBooks().toArray(new String[0]));
+            if (hasDelta) {
+                MultipleInputs.addInputPath(trendStateUpdate, task3Output, materialize ? TextInputFormat.class
+                        : columnarStages ? SentimentScoreInputFormat.class : SequenceFileInputFormat.class,
+                        WordTrendAnalysisMapper.class);
+            }
+            if (fs.exists(trendState)) {
+                MultipleInputs.addInputPath(trendStateUpdate, trendState, SequenceFileInputFormat.class, TrendStateMapper.class);
+            }
+        }
+        setStageOutput(trendStateUpdate, nextTrendState, false);
+
+        Job trendOutput = Job.getInstance(conf, "Pipeline: Trend Analysis");
+        trendOutput.setJarByClass(PipelineDriver.class);
+        trendOutput.setMapperClass(TrendStateMapper.class);
+        trendOutput.setCombinerClass(WordTrendAnalysisCombiner.class);
+        trendOutput.setReducerClass(WordTrendAnalysisReducer.class);
+        trendOutput.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        trendOutput.setMapOutputValueClass(TrendStats.class);
+        trendOutput.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        trendOutput.setNumReduceTasks(trendReducers);
+        trendOutput.setOutputKeyClass(Text.class);
+        trendOutput.setOutputValueClass(Text.class);
+        setStageInput(trendOutput, nextTrendState, false);
+        FileOutputFormat.setOutputPath(trendOutput, task4Output);
+
+        // Chain the stages so each one is submitted as soon as its input is complete
+        JobControl control = new JobControl("Sentiment Trend Pipeline");
+        List<ControlledJob> stages = new ArrayList<>(); // In dependency order
+        List<ControlledJob> task4Dependencies = new ArrayList<>();
+        if (hasDelta) {
+            ControlledJob step1 = new ControlledJob(preprocessing, null);
+            stages.add(step1);
+            ControlledJob step3;
+            if (scoreText) {
+                step3 = new ControlledJob(sentiment, Arrays.asList(step1));
+            } else {
+                ControlledJob step2 = new ControlledJob(lemmas, Arrays.asList(step1));
+                stages.add(step2);
+                step3 = new ControlledJob(sentiment, Arrays.asList(step2));
+            }
+            stages.add(step3);
+            task4Dependencies.add(step3);
+        }
+
+        if (incremental) {
+            ControlledJob stateStep = new ControlledJob(trendStateUpdate, task4Dependencies);
+            stages.add(stateStep);
+            stages.add(new ControlledJob(trendOutput, Arrays.asList(stateStep)));
+        } else {
+            ControlledJob step4 = new ControlledJob(trends, task4Dependencies);
+            stages.add(step4);
+            if (salted) {
+                stages.add(new ControlledJob(trendMerge, Arrays.asList(step4)));
+            }
+        }
+        for (ControlledJob stage : stages) {
+            control.addJob(stage);
+        }
+
+        if (local) {
+            // Run the stages one after another in this JVM
+            LocalEngine engine = new LocalEngine(conf);
+            try {
+                for (ControlledJob stage : stages) {
+                    if (!engine.run(stage.getJob())) {
+                        System.err.println("Pipeline stage failed: " + stage.getJobName());
+                        return 1;
+                    }
+                }
+            } finally {
+                engine.shutdown();
+            }
+        } else {
+            Thread controlThread = new Thread(control, "pipeline-jobcontrol");
+            controlThread.setDaemon(true);
+            controlThread.start();
+
+            // Wait for all stages to finish
+            while (!control.allFinished()) {
+                Thread.sleep(1000);
+            }
+            control.stop();
+
+            if (!control.getFailedJobList().isEmpty()) {
+                for (ControlledJob failed : control.getFailedJobList()) {
+                    System.err.println("Pipeline stage failed: " + failed.getJobName() + " - " + failed.getMessage());
+                }
+                return 1;
+            }
+        }
+
+        // Drop the binary intermediates unless they were requested for debugging
+        if (!materialize) {
+            fs.delete(task1Output, true);
+            fs.delete(task2Output, true);
+            fs.delete(task3Output, true);
+        }
+        fs.delete(task4Partials, true);
+
+        if (incremental) {
+            // Commit the new state, then the manifest that describes it. If this is interrupted,
+            // the next run sees the old manifest (or no state) and processes the books again.
+            fs.delete(trendState, true);
+            if (!fs.rename(nextTrendState, trendState)) {
+                System.err.println("Could not move " + nextTrendState + " to " + trendState);
+                return 1;
+            }
+            manifest.save(fs, manifestPath);
+        }
+
+        return 0;
+    }
+
+    /**
+     * Configure an intermediate stage to write either compressed SequenceFiles or readable text
+     */
+    private static void setStageOutput(Job job, Path output, boolean materialize) {
+        if (materialize) {
+            job.setOutputFormatClass(TextOutputFormat.class);
+            FileOutputFormat.setOutputPath(job, output);
+        } else {
+            job.setOutputFormatClass(SequenceFileOutputFormat.class);
+            setCompressedOutput(job, output);
+        }
+    }
+
+    /**
+     * Configure an intermediate stage to write compressed with the given (binary) format
+     */
+    private static void setStageOutput(Job job, Path output, Class<? extends OutputFormat<?, ?>> format) {
+        job.setOutputFormatClass(format);
+        setCompressedOutput(job, output);
+    }
+
+    private static void setCompressedOutput(Job job, Path output) {
+        FileOutputFormat.setCompressOutput(job, true);
+        SequenceFileOutputFormat.setOutputCompressionType(job, CompressionType.BLOCK);
+        FileOutputFormat.setOutputPath(job, output);
+    }
+
+    /**
+     * Configure a stage to read the previous stage's output in the matching format
+     */
+    private static void setStageInput(Job job, Path input, boolean materialize) throws Exception {
+        job.setInputFormatClass(materialize ? TextInputFormat.class : SequenceFileInputFormat.class);
+        FileInputFormat.addInputPath(job, input);
+    }
+
+    private static void setStageInput(Job job, Path input, Class<? extends InputFormat<?, ?>> format) throws Exception {
+        job.setInputFormatClass(format);
+        FileInputFormat.addInputPath(job, input);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exitCode = ToolRunner.run(new PipelineDriver(), args);
+        System.exit(exitCode);
+    }
+}
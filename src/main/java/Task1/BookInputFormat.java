@@ -0,0 +1,126 @@
+package Task1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.util.LineReader;
+
+/**
+ * Line-based input format for Gutenberg books that can split one book across many mappers.
+ *
+ * The header of every input file is read once while computing splits (at most
+ * preprocess.header.max.lines lines, default 1000), and every split of that file is handed
+ * the resulting book ID, title and year in a BookSplit. Mappers therefore no longer depend on
+ * seeing the header themselves.
+ */
+public class BookInputFormat extends FileInputFormat<LongWritable, Text> {
+
+    @Override
+    public RecordReader<LongWritable, Text> createRecordReader(InputSplit split, TaskAttemptContext context) {
+        return new BookRecordReader();
+    }
+
+    @Override
+    protected boolean isSplitable(JobContext context, Path file) {
+        CompressionCodec codec = new CompressionCodecFactory(context.getConfiguration()).getCodec(file);
+        return codec == null || codec instanceof SplittableCompressionCodec;
+    }
+
+    @Override
+    public List<InputSplit> getSplits(JobContext job) throws IOException {
+        Configuration conf = job.getConfiguration();
+        int maxHeaderLines = conf.getInt("preprocess.header.max.lines", 1000);
+
+        // Header metadata per file, so each book is read only once however many splits it has
+        Map<Path, HeaderInfo> headers = new HashMap<>();
+
+        List<InputSplit> bookSplits = new ArrayList<>();
+        for (InputSplit split : super.getSplits(job)) {
+            FileSplit fileSplit = (FileSplit) split;
+            Path path = fileSplit.getPath();
+
+            HeaderInfo header = headers.get(path);
+            if (header == null) {
+                header = readHeader(path, conf, maxHeaderLines);
+                headers.put(path, header);
+            }
+
+            bookSplits.add(new BookSplit(path, fileSplit.getStart(), fileSplit.getLength(),
+                    fileSplit.getLocations(), header.metadata, header.headerEnd));
+        }
+        return bookSplits;
+    }
+
+    /**
+     * Book ID, title and year from the header of a book, with whatever parts were found
+     */
+    public static BookMetadata readMetadata(Path path, Configuration conf) throws IOException {
+        return readMetadata(path, conf, conf.getInt("preprocess.header.max.lines", 1000));
+    }
+
+    /**
+     * Book ID, title and year from the first maxLines lines of a book, with whatever parts were found
+     */
+    public static BookMetadata readMetadata(Path path, Configuration conf, int maxLines) throws IOException {
+        return readHeader(path, conf, maxLines).metadata;
+    }
+
+    /**
+     * Scan the start of a book until its ID, title and year are all known
+     */
+    private static HeaderInfo readHeader(Path path, Configuration conf, int maxHeaderLines) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+
+        BookMetadata metadata = new BookMetadata();
+        long offset = 0;
+        try (InputStream in = codec == null ? fs.open(path) : codec.createInputStream(fs.open(path))) {
+            LineReader reader = new LineReader(in, conf);
+            Text line = new Text();
+            for (int i = 0; i < maxHeaderLines; i++) {
+                int bytesRead = reader.readLine(line);
+                if (bytesRead == 0) {
+                    break;
+                }
+
+                metadata.scan(line.toString());
+                if (metadata.isComplete()) {
+                    // The line that completes the metadata is the first line of content
+                    return new HeaderInfo(metadata, offset);
+                }
+                offset += bytesRead;
+            }
+        }
+
+        // No complete header: leave metadata discovery to the mapper
+        return new HeaderInfo(metadata, 0);
+    }
+
+    private static class HeaderInfo {
+        final BookMetadata metadata;
+        final long headerEnd;
+
+        HeaderInfo(BookMetadata metadata, long headerEnd) {
+            this.metadata = metadata;
+            this.headerEnd = headerEnd;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package Task1;
+
+/**
+ * Book ID, title and year of a Gutenberg book, discovered from its header lines.
+ *
+ * The same extraction rules are used by PreprocessingMapper when it scans lines itself and by
+ * BookInputFormat when it reads the header once per file.
+ */
+public class BookMetadata {
+    private String bookId;
+    private String title;
+    private String year;
+
+    public BookMetadata() {
+    }
+
+    public BookMetadata(String bookId, String title, String year) {
+        this.bookId = bookId;
+        this.title = title;
+        this.year = year;
+    }
+
+    /**
+     * Pick up any metadata that is still missing from a header line
+     */
+    public void scan(String line) {
+        // Extract book ID if not already found
+        if (bookId == null && line.contains("eBook #")) {
+            bookId = extractBookId(line);
+        }
+
+        // Extract title if not already found
+        if (title == null && line.contains("Title:")) {
+            title = extractTitle(line);
+        }
+
+        // Extract year if not already found
+        if (year == null && line.contains("Release date:")) {
+            year = extractYear(line);
+        }
+    }
+
+    public boolean isComplete() {
+        return bookId != null && title != null && year != null;
+    }
+
+    // Getters
+    public String getBookId() {
+        return bookId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    static String extractBookId(String line) {
+        // Extract Book ID from the line (e.g., "eBook #14800")
+        String[] parts = line.split("eBook #");
+        if (parts.length > 1) {
+            String bookId = parts[1].split("\\s")[0];  // Extract the number after "eBook #"
+            // Remove any non-numeric characters (e.g., ] or other symbols)
+            return bookId.replaceAll("[^0-9]", "");
+        }
+        return null;
+    }
+
+    static String extractTitle(String line) {
+        // Extract the title part after "Title:"
+        String titlePart = line.split("Title:")[1].trim();
+        // Remove any trailing metadata like "(1711)" or ", and excerpts..."
+        titlePart = titlePart.split("\\(")[0].trim();  // Remove "(1711)"
+        titlePart = titlePart.split(",")[0].trim();   // Remove ", and excerpts..."
+        return titlePart;
+    }
+
+    static String extractYear(String line) {
+        // Extract the year from the release date
+        String[] parts = line.split(" ");
+        for (String part : parts) {
+            if (part.matches("\\d{4}")) {  // Match 4-digit year like "2005"
+                return part;
+            }
+        }
+        return null;
+    }
+}
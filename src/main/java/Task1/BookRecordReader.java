@@ -0,0 +1,55 @@
+package Task1;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+
+/**
+ * Record reader for BookSplits: reads lines like TextInputFormat, but skips the header lines
+ * of the book (everything before BookSplit.getHeaderEnd()) so only content reaches the mapper.
+ */
+public class BookRecordReader extends RecordReader<LongWritable, Text> {
+    private final LineRecordReader lineReader = new LineRecordReader();
+    private long headerEnd;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+        lineReader.initialize(split, context);
+        headerEnd = split instanceof BookSplit ? ((BookSplit) split).getHeaderEnd() : 0;
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        while (lineReader.nextKeyValue()) {
+            if (lineReader.getCurrentKey().get() >= headerEnd) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public LongWritable getCurrentKey() {
+        return lineReader.getCurrentKey();
+    }
+
+    @Override
+    public Text getCurrentValue() {
+        return lineReader.getCurrentValue();
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+        return lineReader.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lineReader.close();
+    }
+}
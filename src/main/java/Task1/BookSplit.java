@@ -0,0 +1,60 @@
+package Task1;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+/**
+ * File split that carries the identity of the book it belongs to.
+ *
+ * headerEnd is the byte offset of the line on which the book's metadata became complete;
+ * lines before it are header lines that the preprocessing job skips.
+ */
+public class BookSplit extends FileSplit {
+    private String bookId;
+    private String title;
+    private String year;
+    private long headerEnd;
+
+    // Default constructor required for Hadoop serialization
+    public BookSplit() {
+    }
+
+    public BookSplit(Path file, long start, long length, String[] hosts, BookMetadata metadata, long headerEnd) {
+        super(file, start, length, hosts);
+        this.bookId = metadata.getBookId();
+        this.title = metadata.getTitle();
+        this.year = metadata.getYear();
+        this.headerEnd = headerEnd;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        super.write(out);
+        WritableUtils.writeString(out, bookId);
+        WritableUtils.writeString(out, title);
+        WritableUtils.writeString(out, year);
+        out.writeLong(headerEnd);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        super.readFields(in);
+        bookId = WritableUtils.readString(in);
+        title = WritableUtils.readString(in);
+        year = WritableUtils.readString(in);
+        headerEnd = in.readLong();
+    }
+
+    public BookMetadata getMetadata() {
+        return new BookMetadata(bookId, title, year);
+    }
+
+    public long getHeaderEnd() {
+        return headerEnd;
+    }
+}
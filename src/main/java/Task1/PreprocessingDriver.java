@@ -0,0 +1,52 @@
+package Task1;
+
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+public class PreprocessingDriver extends Configured implements Tool {
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: PreprocessingDriver [-D preprocess.segment.bytes=<n>] <input directory> <output directory>");
+            return -1;
+        }
+
+        // Create a new Hadoop job
+        Job job = Job.getInstance(getConf());
+        job.setJarByClass(PreprocessingDriver.class);
+        job.setJobName("Preprocessing Job");
+
+        // Set input and output paths
+        job.setInputFormatClass(BookInputFormat.class); // Splittable, book-aware line input
+        FileInputFormat.addInputPath(job, new Path(args[0])); // Input directory
+        FileOutputFormat.setOutputPath(job, new Path(args[1])); // Output directory
+
+        // Set Mapper and Reducer classes
+        job.setMapperClass(PreprocessingMapper.class);
+        job.setReducerClass(PreprocessingReducer.class);
+
+        // Secondary sort: one reduce call per book, with its lines in file order
+        job.setMapOutputKeyClass(PreprocessingMapper.BookLineKey.class);
+        job.setMapOutputValueClass(Text.class);
+        job.setPartitionerClass(PreprocessingMapper.BookLineKey.BookPartitioner.class);
+        job.setGroupingComparatorClass(PreprocessingMapper.BookLineKey.GroupComparator.class);
+
+        // Set output key and value types
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(Text.class);
+
+        // Submit the job and wait for completion
+        return job.waitForCompletion(true) ? 0 : 1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(ToolRunner.run(new PreprocessingDriver(), args));
+    }
+}
@@ -0,0 +1,238 @@
+package Task1;
+
+import java.io.IOException;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import Common.SampledLog;
+
+/**
+ * Mapper for preprocessing raw Gutenberg books.
+ *
+ * Input: Lines of the raw book files (byte offset, line)
+ * Output: Key-value pairs where the key is (bookId,title,year, line offset) and the value is
+ *         the cleaned line; the offset lets the reducer see each book's lines in file order
+ *
+ * Lines read, emitted and skipped are counted in PreprocessCounters; set debug.sample.every
+ * to log a sample of them (see SampledLog).
+ */
+public class PreprocessingMapper extends Mapper<LongWritable, Text, PreprocessingMapper.BookLineKey, Text> {
+
+    /**
+     * Counters of the preprocessing job, shared by the mapper and the reducer
+     */
+    public enum PreprocessCounters {
+        LINES_READ,
+        LINES_EMITTED,
+        LINES_SKIPPED_NO_METADATA,
+        METADATA_FROM_LINES,
+        EMPTY_LINES_DROPPED,
+        BOOKS_WRITTEN,
+        SEGMENTS_WRITTEN
+    }
+
+    /**
+     * Composite key of the book metadata and the byte offset of a line within the book.
+     * Partitioning and grouping use only the metadata, sorting also uses the offset.
+     */
+    public static class BookLineKey implements WritableComparable<BookLineKey> {
+        private String metadata;
+        private long offset;
+
+        // Default constructor required for Hadoop serialization
+        public BookLineKey() {
+        }
+
+        public BookLineKey(String metadata, long offset) {
+            this.metadata = metadata;
+            this.offset = offset;
+        }
+
+        public void set(String metadata, long offset) {
+            this.metadata = metadata;
+            this.offset = offset;
+        }
+
+        @Override
+        public void write(java.io.DataOutput out) throws IOException {
+            WritableUtils.writeString(out, metadata);
+            out.writeLong(offset);
+        }
+
+        @Override
+        public void readFields(java.io.DataInput in) throws IOException {
+            metadata = WritableUtils.readString(in);
+            offset = in.readLong();
+        }
+
+        @Override
+        public int compareTo(BookLineKey other) {
+            int cmp = this.metadata.compareTo(other.metadata);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Long.compare(this.offset, other.offset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof BookLineKey) {
+                BookLineKey other = (BookLineKey) obj;
+                return this.metadata.equals(other.metadata) && this.offset == other.offset;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return metadata.hashCode() * 163 + Long.hashCode(offset);
+        }
+
+        @Override
+        public String toString() {
+            return metadata;
+        }
+
+        // Getters
+        public String getMetadata() {
+            return metadata;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Raw comparator that orders serialized keys without deserializing them.
+         * Layout: [int length][metadata UTF-8][long offset]
+         */
+        public static class Comparator extends WritableComparator {
+            public Comparator() {
+                super(BookLineKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                // Compare metadata bytes
+                int metaLen1 = Math.max(readInt(b1, s1), 0);
+                int metaLen2 = Math.max(readInt(b2, s2), 0);
+                int cmp = compareBytes(b1, s1 + 4, metaLen1, b2, s2 + 4, metaLen2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Compare line offset
+                return Long.compare(readLong(b1, s1 + 4 + metaLen1), readLong(b2, s2 + 4 + metaLen2));
+            }
+        }
+
+        /**
+         * Grouping comparator: all lines of one book go to a single reduce call
+         */
+        public static class GroupComparator extends WritableComparator {
+            public GroupComparator() {
+                super(BookLineKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                int metaLen1 = Math.max(readInt(b1, s1), 0);
+                int metaLen2 = Math.max(readInt(b2, s2), 0);
+                return compareBytes(b1, s1 + 4, metaLen1, b2, s2 + 4, metaLen2);
+            }
+        }
+
+        /**
+         * Partitioner: all lines of one book go to the same reducer
+         */
+        public static class BookPartitioner extends Partitioner<BookLineKey, Text> {
+            @Override
+            public int getPartition(BookLineKey key, Text value, int numPartitions) {
+                return (key.getMetadata().hashCode() & Integer.MAX_VALUE) % numPartitions;
+            }
+        }
+
+        static {
+            // Register the raw comparator so the shuffle sort uses it
+            WritableComparator.define(BookLineKey.class, new Comparator());
+        }
+    }
+
+    private BookLineKey compositeKey = new BookLineKey();
+    private Text cleanedText = new Text();
+    private TextCleaner cleaner = new TextCleaner();
+    private SampledLog sampledLog;
+    private Counter linesRead;
+    private Counter linesEmitted;
+
+    // Variables to track metadata
+    private String title = null;
+    private String year = null;
+    private String bookId = null;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        sampledLog = new SampledLog(PreprocessingMapper.class, context.getConfiguration());
+        linesRead = context.getCounter(PreprocessCounters.LINES_READ);
+        linesEmitted = context.getCounter(PreprocessCounters.LINES_EMITTED);
+
+        // BookInputFormat hands every split the metadata read from its book's header
+        InputSplit split = context.getInputSplit();
+        if (split instanceof BookSplit) {
+            BookMetadata metadata = ((BookSplit) split).getMetadata();
+            if (metadata.isComplete()) {
+                bookId = metadata.getBookId();
+                title = metadata.getTitle();
+                year = metadata.getYear();
+            }
+        }
+    }
+
+    @Override
+    public void map(LongWritable key, Text value, Context context) 
+            throws IOException, InterruptedException {
+        linesRead.increment(1);
+
+        // Without a BookSplit (plain text input), look for the metadata in the lines themselves
+        if (bookId == null || title == null || year == null) {
+            findMetadata(value.toString(), context);
+        }
+
+        // If Book ID, Title, and Year are found, emit the key-value pair
+        if (bookId != null && title != null && year != null) {
+            cleaner.clean(value, cleanedText);  // Lowercase, strip non-letters and stop words
+            compositeKey.set(bookId + "," + title + "," + year, key.get());  // Composite key: Book ID, Title, Year, line offset
+            context.write(compositeKey, cleanedText);
+            linesEmitted.increment(1);
+        } else {
+            sampledLog.event(context, PreprocessCounters.LINES_SKIPPED_NO_METADATA, "{}", value);
+        }
+    }
+
+    private void findMetadata(String line, Context context) {
+        // Extract book ID if not already found
+        if (bookId == null && line.contains("eBook #")) {
+            bookId = BookMetadata.extractBookId(line);
+            sampledLog.event(context, PreprocessCounters.METADATA_FROM_LINES, "Book ID {}", bookId);
+        }
+
+        // Extract title if not already found
+        if (title == null && line.contains("Title:")) {
+            title = BookMetadata.extractTitle(line);
+            sampledLog.event(context, PreprocessCounters.METADATA_FROM_LINES, "Title {}", title);
+        }
+
+        // Extract year if not already found
+        if (year == null && line.contains("Release date:")) {
+            year = BookMetadata.extractYear(line);
+            sampledLog.event(context, PreprocessCounters.METADATA_FROM_LINES, "Year {}", year);
+        }
+    }
+}
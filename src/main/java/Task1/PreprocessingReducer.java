@@ -0,0 +1,90 @@
+package Task1;
+
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Reducer for preprocessing: joins the cleaned lines of each book in file order.
+ *
+ * Input: Key-value pairs where the key is (bookId,title,year, line offset) grouped per book
+ *        and the values are the cleaned lines, sorted by offset
+ * Output: By default one record per book: bookId,title,year [tab] cleaned_text.
+ *         With preprocess.segment.bytes > 0 the book is streamed out as ordered segments of
+ *         roughly that many bytes: bookId,title,year [tab] segmentNo [tab] cleaned_text,
+ *         so reducer memory stays bounded and later tasks can split work within a book.
+ */
+public class PreprocessingReducer extends Reducer<PreprocessingMapper.BookLineKey, Text, Text, Text> {
+    private int segmentBytes = 0;
+    private final Text outputKey = new Text();
+    private final Text outputValue = new Text();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        // Get configuration for segmented output (0 = one record per book)
+        segmentBytes = context.getConfiguration().getInt("preprocess.segment.bytes", 0);
+    }
+
+    @Override
+    public void reduce(PreprocessingMapper.BookLineKey key, Iterable<Text> values, Context context)
+            throws IOException, InterruptedException {
+        if (segmentBytes > 0) {
+            reduceSegments(key, values, context);
+            return;
+        }
+
+        // Aggregate cleaned text for the same key
+        StringBuilder aggregatedText = new StringBuilder();
+        for (Text value : values) {
+            aggregatedText.append(value.toString()).append(" ");
+        }
+
+        // Emit the composite key and aggregated cleaned text
+        outputKey.set(key.getMetadata());
+        context.write(outputKey, new Text(aggregatedText.toString().trim()));
+        context.getCounter(PreprocessingMapper.PreprocessCounters.BOOKS_WRITTEN).increment(1);
+    }
+
+    /**
+     * Emit the book's lines as consecutive segments, never splitting a line between two segments
+     */
+    private void reduceSegments(PreprocessingMapper.BookLineKey key, Iterable<Text> values, Context context)
+            throws IOException, InterruptedException {
+        // The key object is updated while iterating, so take the metadata up front
+        String metadata = key.getMetadata();
+        StringBuilder segment = new StringBuilder(segmentBytes + 256);
+        int segmentNo = 0;
+        long emptyLines = 0;
+
+        for (Text value : values) {
+            if (value.getLength() == 0) {
+                emptyLines++;
+                continue; // Nothing left of this line after cleaning
+            }
+            if (segment.length() > 0) {
+                segment.append(' ');
+            }
+            segment.append(value.toString());
+
+            if (segment.length() >= segmentBytes) {
+                writeSegment(metadata, segmentNo++, segment, context);
+            }
+        }
+
+        if (segment.length() > 0) {
+            writeSegment(metadata, segmentNo, segment, context);
+        }
+
+        context.getCounter(PreprocessingMapper.PreprocessCounters.EMPTY_LINES_DROPPED).increment(emptyLines);
+        context.getCounter(PreprocessingMapper.PreprocessCounters.BOOKS_WRITTEN).increment(1);
+    }
+
+    private void writeSegment(String metadata, int segmentNo, StringBuilder segment, Context context)
+            throws IOException, InterruptedException {
+        outputKey.set(metadata + "\t" + segmentNo);
+        outputValue.set(segment.toString());
+        context.write(outputKey, outputValue);
+        context.getCounter(PreprocessingMapper.PreprocessCounters.SEGMENTS_WRITTEN).increment(1);
+        segment.setLength(0);
+    }
+}
@@ -0,0 +1,102 @@
+package Task1;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Byte-level line cleaner working directly on the UTF-8 bytes of a Text.
+ *
+ * ASCII letters are lowercased, whitespace separates words, every other byte (digits,
+ * punctuation, all non-ASCII characters) is dropped, stop words are removed and the remaining
+ * words are joined by single spaces. For ASCII input this is exactly the regex cleaning
+ * (lowercase, strip [^a-z\s], split on \s+) the mapper used before.
+ *
+ * Stop words are found through a perfect hash on (first byte, last byte, length) of the word,
+ * so a lookup is one table probe and a byte compare. The output is written into a buffer that
+ * is reused from line to line; one cleaner per mapper, not thread-safe.
+ */
+public class TextCleaner {
+
+    // Predefined list of stop words
+    private static final String[] STOP_WORDS = {
+        "the", "and", "of", "to", "in", "a", "is", "it", "that", "with"
+    };
+
+    // Perfect hash table of the stop words, indexed by hash()
+    private static final int TABLE_BITS = 5;
+    private static final byte[][] STOP_WORD_TABLE = new byte[1 << TABLE_BITS][];
+
+    static {
+        for (String word : STOP_WORDS) {
+            byte[] bytes = word.getBytes(StandardCharsets.US_ASCII);
+            int slot = hash(bytes, 0, bytes.length);
+            if (STOP_WORD_TABLE[slot] != null) {
+                throw new IllegalStateException("Stop word hash collision: " + word);
+            }
+            STOP_WORD_TABLE[slot] = bytes;
+        }
+    }
+
+    private byte[] buffer = new byte[256];
+
+    /**
+     * Clean the line in "in" and store the result in "out" (which may not be the same Text)
+     */
+    public void clean(Text in, Text out) {
+        byte[] bytes = in.getBytes();
+        int length = in.getLength();
+        // One byte more than the line for the separator written after the last word
+        if (buffer.length < length + 1) {
+            buffer = new byte[Math.max(length + 1, buffer.length * 2)];
+        }
+
+        int outLength = 0;
+        int wordStart = 0;
+        for (int i = 0; i <= length; i++) {
+            byte b = i < length ? bytes[i] : (byte) ' ';
+            if (b >= 'a' && b <= 'z') {
+                buffer[outLength++] = b;
+            } else if (b >= 'A' && b <= 'Z') {
+                buffer[outLength++] = (byte) (b + ('a' - 'A'));
+            } else if (isWhitespace(b)) {
+                // End of a word: keep it unless it is empty or a stop word
+                if (outLength > wordStart && isStopWord(buffer, wordStart, outLength - wordStart)) {
+                    outLength = wordStart;
+                }
+                if (outLength > wordStart) {
+                    buffer[outLength++] = ' ';
+                    wordStart = outLength;
+                }
+            }
+            // Any other byte is dropped without ending the word
+        }
+
+        // Drop the trailing separator
+        out.set(buffer, 0, outLength > 0 ? outLength - 1 : 0);
+    }
+
+    /**
+     * Whitespace as matched by \s: space, tab, newline, vertical tab, form feed, carriage return
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    static boolean isStopWord(byte[] bytes, int start, int length) {
+        byte[] candidate = STOP_WORD_TABLE[hash(bytes, start, length)];
+        if (candidate == null || candidate.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (candidate[i] != bytes[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int start, int length) {
+        return (bytes[start] * 2 + bytes[start + length - 1] + length) & ((1 << TABLE_BITS) - 1);
+    }
+}
@@ -0,0 +1,226 @@
+package Task2;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.process.Morphology;
+
+import Task2.WordFreqLemmatizationMapper.LemmaCounters;
+
+/**
+ * Lemmatizer running the Stanford CoreNLP tokenize/ssplit/pos/lemma pipeline.
+ *
+ * With lemma.annotate.threads > 1 each text is cut into batches of lemma.annotate.batch.tokens
+ * tokens that are annotated concurrently on that many worker threads (see ParallelAnnotator).
+ *
+ * lemma.cache.mode puts a LemmaCache in front of CoreNLP:
+ *   off     - every token goes through tokenize/ssplit/pos/lemma (default)
+ *   pos     - tokens are still POS tagged, but lemmas come from a cache keyed on (form, POS)
+ *             and only misses run the morphological analyzer
+ *   surface - tokens found in the cache (keyed on the surface form) skip CoreNLP entirely;
+ *             only the distinct misses of a text are annotated, and a form keeps the first
+ *             lemma seen
+ * A precomputed dictionary (form [tab] lemma) named *lemmas.txt in the distributed cache is
+ * consulted before the cache in both modes.
+ */
+public class CoreNlpLemmatizer implements Lemmatizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CoreNlpLemmatizer.class);
+
+    private StanfordCoreNLP pipeline;
+    private ParallelAnnotator parallelAnnotator;
+    private String cacheMode = "off";
+    private LemmaCache lemmaCache;
+    private Morphology morphology;
+
+    // Work since the last reportCounters
+    private long annotationBatches = 0;
+    private long annotationMillis = 0;
+
+    @Override
+    public void setup(Configuration conf, URI[] cacheFiles) throws IOException {
+        // Get configuration for the lemma cache
+        cacheMode = conf.get("lemma.cache.mode", "off");
+        if (!"off".equals(cacheMode)) {
+            Map<String, String> dictionary = new HashMap<>();
+            if (cacheFiles != null) {
+                for (URI cacheFile : cacheFiles) {
+                    if (cacheFile.getPath().endsWith("lemmas.txt")) {
+                        dictionary.putAll(LemmaCache.loadDictionary(cacheFile, conf));
+                    }
+                }
+            }
+            lemmaCache = new LemmaCache(conf.getInt("lemma.cache.max.entries", 50000), dictionary);
+        }
+        if ("pos".equals(cacheMode)) {
+            morphology = new Morphology();
+        }
+
+        // Initialize Stanford CoreNLP pipeline for lemmatization
+        // (in pos cache mode the lemmas are computed here from the POS tags)
+        Properties props = new Properties();
+        props.setProperty("annotators", morphology != null ? "tokenize,ssplit,pos" : "tokenize,ssplit,pos,lemma");
+        props.setProperty("tokenize.language", "en");
+        props.setProperty("pos.model", "edu/stanford/nlp/models/pos-tagger/english-left3words-distsim.tagger");
+
+        // Setting these options to speed up processing
+        props.setProperty("tokenize.options", "untokenizable=noneKeep");
+        props.setProperty("ssplit.eolonly", "true");  // Only split on newlines
+
+        pipeline = new StanfordCoreNLP(props);
+
+        // Annotate on a pool of worker threads if configured
+        int threads = conf.getInt("lemma.annotate.threads", 1);
+        if (threads > 1) {
+            parallelAnnotator = new ParallelAnnotator(pipeline, threads, conf.getInt("lemma.annotate.batch.tokens", 2000));
+        }
+    }
+
+    @Override
+    public void lemmatize(String text, Consumer consumer) throws Exception {
+        if ("surface".equals(cacheMode)) {
+            lemmatizeWithSurfaceCache(text, consumer);
+            return;
+        }
+
+        for (List<CoreLabel> tokens : annotate(text)) {
+            for (CoreLabel token : tokens) {
+                consumer.accept(lemmaOf(token));
+            }
+        }
+    }
+
+    @Override
+    public void reportCounters(TaskAttemptContext context) {
+        context.getCounter(LemmaCounters.ANNOTATION_BATCHES).increment(annotationBatches);
+        context.getCounter(LemmaCounters.ANNOTATION_TIME_MS).increment(annotationMillis);
+        annotationBatches = 0;
+        annotationMillis = 0;
+
+        if (parallelAnnotator != null) {
+            context.getCounter(LemmaCounters.ANNOTATION_TIME_MS).increment(parallelAnnotator.drainAnnotationMillis());
+            // The task's counter holds its own maximum; the job's is the sum over its tasks
+            Counter maxQueue = context.getCounter(LemmaCounters.MAX_ANNOTATION_QUEUE);
+            maxQueue.setValue(Math.max(maxQueue.getValue(), parallelAnnotator.getMaxQueueDepth()));
+        }
+
+        if (lemmaCache != null) {
+            context.getCounter(LemmaCounters.LEMMA_DICTIONARY_HITS).increment(lemmaCache.drainDictionaryHits());
+            context.getCounter(LemmaCounters.LEMMA_CACHE_HITS).increment(lemmaCache.drainCacheHits());
+            context.getCounter(LemmaCounters.LEMMA_CACHE_MISSES).increment(lemmaCache.drainMisses());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (parallelAnnotator != null) {
+            LOG.info("Deepest annotation queue of this task: {} batches", parallelAnnotator.getMaxQueueDepth());
+            parallelAnnotator.shutdown();
+        }
+    }
+
+    /**
+     * Run CoreNLP over the text, on the worker threads if configured, returning the tokens in text order
+     */
+    private List<List<CoreLabel>> annotate(String text) throws Exception {
+        if (parallelAnnotator != null) {
+            List<List<CoreLabel>> batches = parallelAnnotator.annotate(text);
+            annotationBatches += batches.size();
+            return batches;
+        }
+
+        long start = System.nanoTime();
+        CoreDocument document = new CoreDocument(text);
+        pipeline.annotate(document);
+        annotationBatches++;
+        annotationMillis += (System.nanoTime() - start) / 1000000L;
+        return Collections.singletonList(document.tokens());
+    }
+
+    /**
+     * Lemma of an annotated token, through the (form, POS) cache in pos cache mode
+     */
+    private String lemmaOf(CoreLabel token) {
+        if (morphology == null) {
+            return token.lemma();
+        }
+
+        String word = token.word();
+        String cacheKey = word + "/" + token.tag();
+        String lemma = lemmaCache.get(word, cacheKey);
+        if (lemma == null) {
+            lemma = morphology.lemma(word, token.tag());
+            lemmaCache.put(cacheKey, lemma);
+        }
+        return lemma;
+    }
+
+    /**
+     * Lemmatize cached words directly and send only the distinct misses through CoreNLP
+     */
+    private void lemmatizeWithSurfaceCache(String text, Consumer consumer) throws Exception {
+        // Distinct missed words in order of first appearance, with their number of occurrences
+        Map<String, Integer> missedWords = new LinkedHashMap<>();
+
+        for (String word : text.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String lemma = lemmaCache.get(word, word);
+            if (lemma != null) {
+                consumer.accept(lemma);
+            } else {
+                missedWords.merge(word, 1, Integer::sum);
+            }
+        }
+
+        if (missedWords.isEmpty()) {
+            return;
+        }
+
+        // Annotate every distinct miss once
+        List<CoreLabel> tokens = new ArrayList<>();
+        for (List<CoreLabel> batch : annotate(String.join(" ", missedWords.keySet()))) {
+            tokens.addAll(batch);
+        }
+
+        // Tokens come back in word order; a word CoreNLP splits into several tokens
+        // (e.g. "cannot") takes tokens until their text covers it, and is not cached
+        int next = 0;
+        for (Map.Entry<String, Integer> missed : missedWords.entrySet()) {
+            String word = missed.getKey();
+            List<String> lemmas = new ArrayList<>(1);
+            int covered = 0;
+            while (covered < word.length() && next < tokens.size()) {
+                CoreLabel token = tokens.get(next++);
+                lemmas.add(token.lemma());
+                covered += token.originalText().length();
+            }
+
+            if (lemmas.size() == 1) {
+                lemmaCache.put(word, lemmas.get(0));
+            }
+            for (int n = missed.getValue(); n > 0; n--) {
+                for (String lemma : lemmas) {
+                    consumer.accept(lemma);
+                }
+            }
+        }
+    }
+}
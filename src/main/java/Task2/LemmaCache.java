@@ -0,0 +1,104 @@
+package Task2;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Cache in front of the lemmatizer for repeated words.
+ *
+ * Lookups first consult an optional precomputed dictionary (read-only, from the distributed
+ * cache) and then a bounded LRU map of lemmas computed earlier in this task. Keys are either
+ * the surface form or "form/POS", depending on the mapper's cache mode.
+ */
+class LemmaCache {
+    private final Map<String, String> dictionary;
+    private final LinkedHashMap<String, String> recent;
+
+    private long dictionaryHits = 0;
+    private long cacheHits = 0;
+    private long misses = 0;
+
+    LemmaCache(final int maxEntries, Map<String, String> dictionary) {
+        this.dictionary = dictionary;
+
+        // Access-ordered map that drops the least recently used entry once full
+        this.recent = new LinkedHashMap<String, String>(Math.min(maxEntries, 1 << 16) * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Look up a lemma, returning null on a miss. The dictionary is keyed on the surface form,
+     * the LRU map on the cache key.
+     */
+    String get(String surfaceForm, String key) {
+        String lemma = dictionary.get(surfaceForm);
+        if (lemma != null) {
+            dictionaryHits++;
+            return lemma;
+        }
+
+        lemma = recent.get(key);
+        if (lemma != null) {
+            cacheHits++;
+            return lemma;
+        }
+
+        misses++;
+        return null;
+    }
+
+    void put(String key, String lemma) {
+        recent.put(key, lemma);
+    }
+
+    /**
+     * Load a precomputed dictionary in format: form [tab] lemma
+     */
+    static Map<String, String> loadDictionary(URI dictionaryUri, Configuration conf) throws IOException {
+        Map<String, String> dictionary = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                FileSystem.get(dictionaryUri, conf).open(new Path(dictionaryUri)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 2) {
+                    dictionary.put(parts[0].trim().toLowerCase(), parts[1].trim().toLowerCase());
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    // Hit statistics since the last drain
+    long drainDictionaryHits() {
+        long value = dictionaryHits;
+        dictionaryHits = 0;
+        return value;
+    }
+
+    long drainCacheHits() {
+        long value = cacheHits;
+        cacheHits = 0;
+        return value;
+    }
+
+    long drainMisses() {
+        long value = misses;
+        misses = 0;
+        return value;
+    }
+}
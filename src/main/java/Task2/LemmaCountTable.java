@@ -0,0 +1,110 @@
+package Task2;
+
+import java.io.IOException;
+
+/**
+ * Bounded open-addressing table of (bookId, lemma, year) -> count used for in-mapper combining.
+ *
+ * Keys are kept in parallel arrays with a primitive int count per slot, so adding an occurrence
+ * of a lemma that is already in the table allocates nothing. The table never grows: once it
+ * holds maxEntries keys the mapper has to flush it. estimatedBytes() tells the mapper how much
+ * heap the held lemmas take, so it can flush earlier when they are long.
+ */
+class LemmaCountTable {
+
+    /**
+     * Receives the aggregated entries when the table is flushed
+     */
+    interface Sink {
+        void accept(String bookId, String lemma, int year, int count) throws IOException, InterruptedException;
+    }
+
+    // Heap estimate of a lemma String besides its characters (object and array headers, fields)
+    private static final int STRING_BYTES = 40;
+
+    private final int maxEntries;
+    private final int mask;
+    private final String[] bookIds;
+    private final String[] lemmas;
+    private final int[] years;
+    private final int[] hashes;
+    private final int[] counts;
+    private int size;
+    private long lemmaBytes; // Estimated heap of the held lemmas
+
+    LemmaCountTable(int maxEntries) {
+        this.maxEntries = maxEntries;
+
+        // Keep the load factor at or below 0.5 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(maxEntries, 8) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.bookIds = new String[capacity];
+        this.lemmas = new String[capacity];
+        this.years = new int[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new int[capacity];
+    }
+
+    /**
+     * Add one or more occurrences of a key
+     *
+     * @return false if the key is new and the table is full; the caller must flush and retry
+     */
+    boolean add(String bookId, String lemma, int year, int count) {
+        int hash = hash(bookId, lemma, year);
+        int slot = hash & mask;
+        while (counts[slot] != 0) {
+            if (hashes[slot] == hash && years[slot] == year
+                    && lemmas[slot].equals(lemma) && bookIds[slot].equals(bookId)) {
+                counts[slot] += count;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= maxEntries) {
+            return false;
+        }
+
+        bookIds[slot] = bookId;
+        lemmas[slot] = lemma;
+        years[slot] = year;
+        hashes[slot] = hash;
+        counts[slot] = count;
+        size++;
+        lemmaBytes += STRING_BYTES + lemma.length();
+        return true;
+    }
+
+    /**
+     * Hand every entry to the sink and empty the table
+     */
+    void flush(Sink sink) throws IOException, InterruptedException {
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] != 0) {
+                sink.accept(bookIds[slot], lemmas[slot], years[slot], counts[slot]);
+                bookIds[slot] = null;
+                lemmas[slot] = null;
+                counts[slot] = 0;
+            }
+        }
+        size = 0;
+        lemmaBytes = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Estimated heap held by the entries, not counting the preallocated slot arrays
+     */
+    long estimatedBytes() {
+        return lemmaBytes;
+    }
+
+    private static int hash(String bookId, String lemma, int year) {
+        int h = bookId.hashCode() * 163 + lemma.hashCode() * 13 + year;
+        return h ^ (h >>> 16);
+    }
+}
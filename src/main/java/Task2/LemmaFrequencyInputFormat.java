@@ -0,0 +1,81 @@
+package Task2;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import Common.ColumnarInputFormat;
+
+/**
+ * Reads LemmaFrequencyOutputFormat files as typed (bookID, lemma, year) -> frequency records.
+ * The key and value objects are reused between records.
+ */
+public class LemmaFrequencyInputFormat
+        extends ColumnarInputFormat<WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+
+    @Override
+    public RecordReader<WordFreqLemmatizationMapper.LemmaKey, IntWritable> createRecordReader(InputSplit split,
+            TaskAttemptContext context) {
+        return new Reader();
+    }
+
+    private static class Reader extends BlockReader<WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+        private final List<String> dictionary = new ArrayList<>();
+        private String[] lemmas = new String[0];
+        private int[] frequencies = new int[0];
+
+        private final WordFreqLemmatizationMapper.LemmaKey key = new WordFreqLemmatizationMapper.LemmaKey();
+        private final IntWritable value = new IntWritable();
+
+        Reader() {
+            super(LemmaFrequencyOutputFormat.FORMAT_NAME);
+        }
+
+        @Override
+        protected void readColumns(DataInputStream in, int records) throws IOException {
+            if (lemmas.length < records) {
+                lemmas = new String[records];
+                frequencies = new int[records];
+            }
+
+            if (in.readBoolean()) {
+                dictionary.clear();
+            }
+            int newLemmaCount = WritableUtils.readVInt(in);
+            for (int i = 0; i < newLemmaCount; i++) {
+                dictionary.add(Text.readString(in));
+            }
+
+            for (int i = 0; i < records; i++) {
+                lemmas[i] = dictionary.get(WritableUtils.readVInt(in));
+            }
+            for (int i = 0; i < records; i++) {
+                frequencies[i] = WritableUtils.readVInt(in);
+            }
+        }
+
+        @Override
+        protected void setRecord(int i, String bookId, int year) {
+            key.set(bookId, lemmas[i], year);
+            value.set(frequencies[i]);
+        }
+
+        @Override
+        public WordFreqLemmatizationMapper.LemmaKey getCurrentKey() {
+            return key;
+        }
+
+        @Override
+        public IntWritable getCurrentValue() {
+            return value;
+        }
+    }
+}
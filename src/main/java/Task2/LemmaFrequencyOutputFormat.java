@@ -0,0 +1,95 @@
+package Task2;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import Common.ColumnarOutputFormat;
+
+/**
+ * Columnar output of the lemma frequencies: (bookID, lemma, year) -> frequency records stored
+ * as book ID runs, year differences, dictionary-encoded lemmas and frequencies.
+ *
+ * Each distinct lemma is written once per file, in the block where it first appears, and
+ * referred to by its dictionary index after that. The dictionary starts over once it holds
+ * columnar.dictionary.max.entries lemmas (default 1048576). Read with LemmaFrequencyInputFormat.
+ */
+public class LemmaFrequencyOutputFormat
+        extends ColumnarOutputFormat<WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+    public static final String FORMAT_NAME = "lemma-frequency-1";
+    public static final String DICTIONARY_MAX_ENTRIES = "columnar.dictionary.max.entries";
+
+    @Override
+    protected String formatName() {
+        return FORMAT_NAME;
+    }
+
+    @Override
+    protected BlockWriter<WordFreqLemmatizationMapper.LemmaKey, IntWritable> createWriter(DataOutputStream out,
+            Configuration conf) {
+        return new Writer(out, conf);
+    }
+
+    private static class Writer extends BlockWriter<WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+        private final int maxDictionaryEntries;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private boolean dictionaryReset = false;
+        private int newLemmaCount = 0;
+
+        private final DataOutputBuffer newLemmas = new DataOutputBuffer();
+        private final DataOutputBuffer lemmaIds = new DataOutputBuffer();
+        private final DataOutputBuffer frequencies = new DataOutputBuffer();
+
+        Writer(DataOutputStream out, Configuration conf) {
+            super(out, conf);
+            this.maxDictionaryEntries = conf.getInt(DICTIONARY_MAX_ENTRIES, 1 << 20);
+        }
+
+        @Override
+        protected void append(WordFreqLemmatizationMapper.LemmaKey key, IntWritable value) throws IOException {
+            appendBookYear(key.getBookId(), key.getYear());
+
+            // The dictionary can only start over between blocks
+            if (lemmaIds.getLength() == 0 && dictionary.size() >= maxDictionaryEntries) {
+                dictionary.clear();
+                dictionaryReset = true;
+            }
+
+            Integer id = dictionary.get(key.getLemma());
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(key.getLemma(), id);
+                Text.writeString(newLemmas, key.getLemma());
+                newLemmaCount++;
+            }
+            WritableUtils.writeVInt(lemmaIds, id);
+            WritableUtils.writeVInt(frequencies, value.get());
+        }
+
+        @Override
+        protected void writeColumns(DataOutputStream out) throws IOException {
+            // [reset][new lemma count][new lemmas...][lemma ids...][frequencies...]
+            out.writeBoolean(dictionaryReset);
+            WritableUtils.writeVInt(out, newLemmaCount);
+            out.write(newLemmas.getData(), 0, newLemmas.getLength());
+            out.write(lemmaIds.getData(), 0, lemmaIds.getLength());
+            out.write(frequencies.getData(), 0, frequencies.getLength());
+        }
+
+        @Override
+        protected void resetColumns() {
+            dictionaryReset = false;
+            newLemmaCount = 0;
+            newLemmas.reset();
+            lemmaIds.reset();
+            frequencies.reset();
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package Task2;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Space-Saving summary of the most frequent lemmas of a stream, in at most capacity counters.
+ *
+ * Every lemma kept has an estimated count that is never below its true frequency, and an error
+ * such that count - error is never above it. A lemma that is not kept occurred at most
+ * getFloor() times. When the sketch is full, a new lemma replaces the one with the lowest count
+ * and inherits that count as its error, so the error of any count is at most N / capacity for a
+ * stream of N lemmas, and lemmas more frequent than that are never lost.
+ *
+ * Merging two sketches gives a sketch of both streams with the same guarantees, so sketches
+ * can be built in the mapper and merged in the combiner and reducer. The counters are kept in
+ * a min-heap on the count, indexed by lemma.
+ */
+public class LemmaSketch implements Writable {
+    // Heap estimate per counter: the lemma array slot, count and error, and a lemma kept in the
+    // index (a String of a typical lemma, its HashMap node and boxed position)
+    private static final int SLOT_BYTES = 4 + 8 + 8;
+    private static final int LEMMA_BYTES = 48 + 32 + 16;
+
+    private int capacity;
+    private int size;
+    private String[] lemmas;
+    private long[] counts;
+    private long[] errors;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private long floor; // Upper bound on the frequency of any lemma not kept
+
+    // Default constructor required for Hadoop serialization
+    public LemmaSketch() {
+        this(16);
+    }
+
+    public LemmaSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Sketch capacity must be at least 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.lemmas = new String[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+    }
+
+    /**
+     * Count occurrences of a lemma
+     */
+    public void add(String lemma, long count) {
+        Integer position = positions.get(lemma);
+        if (position != null) {
+            counts[position] += count;
+            siftDown(position);
+            return;
+        }
+
+        if (size < capacity) {
+            place(size, lemma, count, 0);
+            positions.put(lemma, size);
+            siftUp(size++);
+            return;
+        }
+
+        // Full: the least frequent lemma makes room, and its count becomes the new one's error
+        long least = counts[0];
+        floor = Math.max(floor, least);
+        positions.remove(lemmas[0]);
+        place(0, lemma, least + count, least);
+        positions.put(lemma, 0);
+        siftDown(0);
+    }
+
+    /**
+     * Merge another sketch into this one, keeping the capacity of this one
+     */
+    public void merge(LemmaSketch other) {
+        // A lemma missing from one sketch may still have occurred up to that sketch's floor times
+        List<String> mergedLemmas = new ArrayList<>(size + other.size);
+        List<long[]> mergedCounts = new ArrayList<>(size + other.size);
+        for (int i = 0; i < size; i++) {
+            Integer j = other.positions.get(lemmas[i]);
+            long count = counts[i] + (j != null ? other.counts[j] : other.floor);
+            long error = errors[i] + (j != null ? other.errors[j] : other.floor);
+            mergedLemmas.add(lemmas[i]);
+            mergedCounts.add(new long[] {count, error});
+        }
+        for (int j = 0; j < other.size; j++) {
+            if (!positions.containsKey(other.lemmas[j])) {
+                mergedLemmas.add(other.lemmas[j]);
+                mergedCounts.add(new long[] {other.counts[j] + floor, other.errors[j] + floor});
+            }
+        }
+        long mergedFloor = floor + other.floor;
+
+        // Keep the capacity lemmas with the highest counts; the dropped ones raise the floor
+        Integer[] order = new Integer[mergedLemmas.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(mergedCounts.get(b)[0], mergedCounts.get(a)[0]));
+        for (int i = capacity; i < order.length; i++) {
+            mergedFloor = Math.max(mergedFloor, mergedCounts.get(order[i])[0]);
+        }
+
+        clear();
+        floor = mergedFloor;
+        for (int i = 0; i < order.length && i < capacity; i++) {
+            long[] countAndError = mergedCounts.get(order[i]);
+            place(size, mergedLemmas.get(order[i]), countAndError[0], countAndError[1]);
+            positions.put(lemmas[size], size);
+            siftUp(size++);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(lemmas, 0, size, null);
+        positions.clear();
+        size = 0;
+        floor = 0;
+    }
+
+    /**
+     * The kept lemmas ordered by count, highest first (ties by lemma), at most k of them
+     */
+    public List<Entry> top(int k) {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry(lemmas[i], counts[i], errors[i]));
+        }
+        entries.sort((a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : a.lemma.compareTo(b.lemma));
+        return entries.size() > k ? entries.subList(0, k) : entries;
+    }
+
+    /**
+     * Estimated heap held by the sketch, from its capacity and the lemmas it keeps
+     */
+    public long estimatedBytes() {
+        return (long) capacity * SLOT_BYTES + (long) size * LEMMA_BYTES;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getFloor() {
+        return floor;
+    }
+
+    /**
+     * A kept lemma with its estimated count; the true frequency is between count - error and count
+     */
+    public static final class Entry {
+        public final String lemma;
+        public final long count;
+        public final long error;
+
+        Entry(String lemma, long count, long error) {
+            this.lemma = lemma;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, capacity);
+        WritableUtils.writeVLong(out, floor);
+        WritableUtils.writeVInt(out, size);
+        for (int i = 0; i < size; i++) {
+            WritableUtils.writeString(out, lemmas[i]);
+            WritableUtils.writeVLong(out, counts[i]);
+            WritableUtils.writeVLong(out, errors[i]);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int newCapacity = WritableUtils.readVInt(in);
+        if (newCapacity != capacity) {
+            capacity = newCapacity;
+            lemmas = new String[capacity];
+            counts = new long[capacity];
+            errors = new long[capacity];
+        }
+        clear();
+        floor = WritableUtils.readVLong(in);
+
+        // Written in heap order, so the array is already a valid heap
+        size = WritableUtils.readVInt(in);
+        for (int i = 0; i < size; i++) {
+            place(i, WritableUtils.readString(in), WritableUtils.readVLong(in), WritableUtils.readVLong(in));
+            positions.put(lemmas[i], i);
+        }
+    }
+
+    private void place(int i, String lemma, long count, long error) {
+        lemmas[i] = lemma;
+        counts[i] = count;
+        errors[i] = error;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[parent] <= counts[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && counts[child + 1] < counts[child]) {
+                child++;
+            }
+            if (counts[i] <= counts[child]) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        String lemma = lemmas[i];
+        long count = counts[i];
+        long error = errors[i];
+        place(i, lemmas[j], counts[j], errors[j]);
+        place(j, lemma, count, error);
+        positions.put(lemmas[i], i);
+        positions.put(lemmas[j], j);
+    }
+}
@@ -0,0 +1,39 @@
+package Task2;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner for the top-k lemma mode of word frequency analysis.
+ *
+ * Input: Key-value pairs where key is (bookID,decade) or decade, and values are partial
+ *        LemmaSketch summaries of its lemmas
+ * Output: The same key with the partial sketches merged into one
+ *
+ * LemmaTopKReducer cannot be used as the combiner because it writes the final top-k lines
+ * as text; the combiner has to pass a sketch on so the reducer can keep merging.
+ */
+public class LemmaTopKCombiner extends Reducer<Text, LemmaSketch, Text, LemmaSketch> {
+
+    private LemmaSketch merged;
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        merged = new LemmaSketch(WordFreqLemmatizationMapper.sketchCapacity(context.getConfiguration()));
+    }
+
+    @Override
+    public void reduce(Text key, Iterable<LemmaSketch> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Merge the partial sketches for this key
+        merged.clear();
+        for (LemmaSketch val : values) {
+            merged.merge(val);
+        }
+
+        context.write(key, merged);
+    }
+}
@@ -0,0 +1,45 @@
+package Task2;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Reducer for the top-k lemma mode of word frequency analysis.
+ *
+ * Input: Key-value pairs where key is (bookID,decade) or decade, and values are partial
+ *        LemmaSketch summaries of its lemmas
+ * Output: The lemma.topk most frequent lemmas of each key, most frequent first, one per line:
+ *         key [tab] lemma [tab] count [tab] error
+ *         The true frequency of the lemma is between count - error and count.
+ */
+public class LemmaTopKReducer extends Reducer<Text, LemmaSketch, Text, Text> {
+
+    private int topK;
+    private LemmaSketch merged;
+    private final Text outputValue = new Text();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        topK = context.getConfiguration().getInt("lemma.topk", 0);
+        merged = new LemmaSketch(WordFreqLemmatizationMapper.sketchCapacity(context.getConfiguration()));
+    }
+
+    @Override
+    public void reduce(Text key, Iterable<LemmaSketch> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Merge the partial sketches for this key
+        merged.clear();
+        for (LemmaSketch val : values) {
+            merged.merge(val);
+        }
+
+        // Emit the most frequent lemmas with their error bounds
+        for (LemmaSketch.Entry entry : merged.top(topK)) {
+            outputValue.set(entry.lemma + "\t" + entry.count + "\t" + entry.error);
+            context.write(key, outputValue);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package Task2;
+
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/**
+ * Lemmatization engine of the Task 2 mapper, chosen with lemma.engine:
+ *   corenlp - the Stanford CoreNLP pipeline with POS tagging (CoreNlpLemmatizer, default)
+ *   rules   - dictionary lookup and suffix rules, without POS tagging (RuleLemmatizer)
+ * or the name of any other class implementing this interface with a public no-argument
+ * constructor.
+ *
+ * An engine is set up once per task and then used by one thread at a time. The mapper filters
+ * and lowercases the lemmas it is given, so engines need not.
+ */
+public interface Lemmatizer {
+
+    /**
+     * Receives the lemmas of a text, in text order
+     */
+    interface Consumer {
+        void accept(String lemma) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Prepare the engine for a task
+     *
+     * @param cacheFiles the distributed cache files of the task, or null
+     */
+    void setup(Configuration conf, URI[] cacheFiles) throws IOException;
+
+    /**
+     * Pass the lemma of every token of the text to the consumer
+     */
+    void lemmatize(String text, Consumer consumer) throws Exception;
+
+    /**
+     * Add the work done since the last call to the task's counters
+     */
+    default void reportCounters(TaskAttemptContext context) {
+    }
+
+    /**
+     * Release the engine's threads and other resources
+     */
+    default void close() {
+    }
+
+    /**
+     * The engine named by lemma.engine, not yet set up
+     */
+    static Lemmatizer create(Configuration conf) {
+        String engine = conf.get("lemma.engine", "corenlp");
+        if (engine.equals("corenlp")) {
+            return new CoreNlpLemmatizer();
+        } else if (engine.equals("rules")) {
+            return new RuleLemmatizer();
+        }
+        try {
+            return ReflectionUtils.newInstance(conf.getClassByName(engine).asSubclass(Lemmatizer.class), conf);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalArgumentException("lemma.engine must be corenlp, rules or a Lemmatizer class: " + engine, e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package Task2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.CoreDocument;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Runs CoreNLP annotation of one record on a fixed pool of worker threads.
+ *
+ * The text is cut on whitespace into batches of about batchTokens tokens, every batch is
+ * annotated as its own document by the shared (thread-safe) pipeline, and the annotated
+ * tokens are returned batch by batch in text order. Annotation time and the deepest work
+ * queue seen are tracked so the mapper can report them as counters.
+ */
+class ParallelAnnotator {
+    private final StanfordCoreNLP pipeline;
+    private final int batchTokens;
+    private final ThreadPoolExecutor workers;
+
+    private final AtomicLong annotationNanos = new AtomicLong();
+    private int maxQueueDepth = 0;
+
+    ParallelAnnotator(StanfordCoreNLP pipeline, int threads, int batchTokens) {
+        this.pipeline = pipeline;
+        this.batchTokens = batchTokens;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+                    Thread thread = new Thread(runnable, "corenlp-annotator-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Annotate the text, returning the tokens of each batch in order
+     */
+    List<List<CoreLabel>> annotate(String text) throws InterruptedException, ExecutionException {
+        List<Future<List<CoreLabel>>> pending = new ArrayList<>();
+        for (final String batch : split(text)) {
+            pending.add(workers.submit(new Callable<List<CoreLabel>>() {
+                @Override
+                public List<CoreLabel> call() {
+                    return annotateBatch(batch);
+                }
+            }));
+            maxQueueDepth = Math.max(maxQueueDepth, workers.getQueue().size());
+        }
+
+        List<List<CoreLabel>> tokens = new ArrayList<>(pending.size());
+        for (Future<List<CoreLabel>> future : pending) {
+            tokens.add(future.get());
+        }
+        return tokens;
+    }
+
+    /**
+     * Time spent annotating since the last call, summed over all workers
+     */
+    long drainAnnotationMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(annotationNanos.getAndSet(0));
+    }
+
+    int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private List<CoreLabel> annotateBatch(String batch) {
+        long start = System.nanoTime();
+        CoreDocument document = new CoreDocument(batch);
+        pipeline.annotate(document);
+        annotationNanos.addAndGet(System.nanoTime() - start);
+        return document.tokens();
+    }
+
+    /**
+     * Cut the text into batches of about batchTokens whitespace-separated tokens
+     */
+    private List<String> split(String text) {
+        List<String> batches = new ArrayList<>();
+        int batchStart = 0;
+        int tokens = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ' ' && ++tokens >= batchTokens) {
+                batches.add(text.substring(batchStart, i));
+                batchStart = i + 1;
+                tokens = 0;
+            }
+        }
+        if (batchStart < text.length()) {
+            batches.add(text.substring(batchStart));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,402 @@
+package Task2;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Lemmatizer that needs no POS tags: each word is looked up in a table of irregular forms and
+ * otherwise stripped of its inflectional suffix (-s, -es, -ies, -ed, -ing) by rules.
+ *
+ * Words are runs of letters and apostrophes; a contraction is split into its word and clitic
+ * (don't gives do and not), as CoreNLP's tokenizer does. Words of three letters or fewer, and
+ * words such as "thing" or "always" whose ending only looks inflected, are kept as they are.
+ * Only the comparatives and superlatives of a list of common adjectives are lemmatized, since
+ * without POS tags "longer" and "number" cannot be told apart.
+ *
+ * A precomputed dictionary (form [tab] lemma) named *lemmas.txt in the distributed cache is
+ * consulted before the rules, so the lemmas CoreNLP gives the most frequent words of a corpus
+ * can be fixed in advance.
+ *
+ * Without POS tags a word gets the same lemma everywhere, so the results differ from CoreNLP
+ * where the tag changes the lemma (e.g. "building" as a noun or a verb); see LemmatizerReport
+ * in the benchmarks module for how often that happens and how much faster this engine is.
+ */
+public class RuleLemmatizer implements Lemmatizer {
+
+    /**
+     * Irregular forms and clitics, as form:lemma (a lemma of several words is written with +)
+     */
+    private static final String[] IRREGULAR = {
+        // be, have, do, go and the modals
+        "am:be", "is:be", "are:be", "was:be", "were:be", "been:be", "being:be",
+        "has:have", "had:have", "having:have", "hath:have",
+        "does:do", "did:do", "done:do", "doing:do", "doth:do",
+        "goes:go", "went:go", "gone:go", "going:go",
+        "ca:can", "wo:will", "sha:shall", "cannot:can+not", "dont:do+not",
+        "gonna:go+to", "wanna:want+to", "gotta:get+ta", "shes:she", "hes:he", "lets:let",
+        // clitics
+        "n't:not", "'ll:will", "'re:be", "'ve:have", "'m:be", "'d:would", "'s:'s",
+        // pronouns and determiners
+        "me:i", "him:he", "his:he", "her:she", "us:we", "our:we", "them:they", "their:they",
+        "your:you", "these:this", "those:that",
+        // irregular comparatives and superlatives
+        "better:good", "best:good", "worse:bad", "worst:bad", "farther:far", "farthest:far",
+        // irregular verbs
+        "arose:arise", "arisen:arise", "awoke:awake", "bore:bear", "borne:bear", "born:bear",
+        "beat:beat", "beaten:beat", "became:become", "began:begin", "begun:begin",
+        "bent:bend", "bet:bet", "bound:bind", "becoming:become", "bit:bite", "bitten:bite",
+        "bled:bleed", "blew:blow", "blown:blow", "broke:break", "broken:break", "bred:breed",
+        "brought:bring", "built:build", "burnt:burn", "burst:burst", "bought:buy",
+        "caught:catch", "chose:choose", "chosen:choose", "clung:cling", "came:come",
+        "crept:creep", "dealt:deal", "dug:dig", "drew:draw", "drawn:draw", "dreamt:dream",
+        "drank:drink", "drunk:drink", "drove:drive", "driven:drive", "dwelt:dwell",
+        "ate:eat", "eaten:eat", "fell:fall", "fallen:fall", "fed:feed", "felt:feel",
+        "fought:fight", "found:find", "fled:flee", "flung:fling", "flew:fly", "flown:fly",
+        "forbade:forbid", "forbidden:forbid", "forgot:forget", "forgotten:forget",
+        "forgave:forgive", "forgiven:forgive", "forsook:forsake", "forsaken:forsake",
+        "froze:freeze", "frozen:freeze", "got:get", "gotten:get", "gave:give", "given:give",
+        "grew:grow", "grown:grow", "hung:hang", "heard:hear", "hid:hide",
+        "hidden:hide", "held:hold", "kept:keep", "knelt:kneel", "knew:know", "known:know",
+        "laid:lay", "led:lead", "leapt:leap", "learnt:learn", "left:leave", "lent:lend",
+        "lain:lie", "agreed:agree", "freed:free", "decreed:decree", "lit:light", "lost:lose", "made:make", "meant:mean",
+        "met:meet", "mistook:mistake", "mistaken:mistake", "overcame:overcome",
+        "paid:pay", "ran:run", "rang:ring", "rung:ring", "rode:ride", "ridden:ride",
+        "rose:rise", "risen:rise", "said:say", "saw:see", "seen:see", "sought:seek",
+        "sold:sell", "sent:send", "shook:shake", "shaken:shake", "shown:show", "shone:shine", "shot:shoot",
+        "shrank:shrink", "shrunk:shrink", "sang:sing", "sung:sing", "sank:sink", "sunk:sink",
+        "sat:sit", "slew:slay", "slain:slay", "slept:sleep", "slid:slide", "slung:sling",
+        "smote:smite", "smitten:smite", "spoke:speak", "spoken:speak", "sped:speed",
+        "spent:spend", "spun:spin", "spat:spit", "split:split", "sprang:spring",
+        "sprung:spring", "stood:stand", "stole:steal", "stolen:steal", "stuck:stick",
+        "stung:sting", "strode:stride", "struck:strike", "stricken:strike", "strove:strive",
+        "striven:strive", "swore:swear", "sworn:swear", "swept:sweep", "swam:swim",
+        "swum:swim", "swung:swing", "took:take", "taken:take", "taught:teach", "tore:tear",
+        "torn:tear", "told:tell", "thought:think", "threw:throw", "thrown:throw",
+        "trod:tread", "trodden:tread", "understood:understand", "undertook:undertake",
+        "undertaken:undertake", "upheld:uphold", "woke:wake", "woken:wake", "wore:wear",
+        "worn:wear", "wove:weave", "woven:weave", "wept:weep", "won:win",
+        "withdrew:withdraw", "withdrawn:withdraw", "wrung:wring", "wrote:write",
+        "written:write", "overtook:overtake", "overtaken:overtake", "beheld:behold",
+        "betook:betake", "foresaw:foresee", "foreseen:foresee", "forgone:forgo",
+        "misunderstood:misunderstand", "undid:undo", "undone:undo",
+        // irregular plurals
+        "men:man", "women:woman", "children:child", "feet:foot", "teeth:tooth",
+        "geese:goose", "mice:mouse", "lice:louse", "oxen:ox", "people:person",
+        "wives:wife", "knives:knife", "lives:life", "wolves:wolf", "halves:half",
+        "selves:self", "shelves:shelf", "thieves:thief", "calves:calf", "loaves:loaf",
+        "leaves:leave", "sheaves:sheaf", "elves:elf", "dwarves:dwarf",
+        "phenomena:phenomenon", "criteria:criterion", "data:datum", "analyses:analysis",
+        "crises:crisis", "bases:basis", "theses:thesis", "hypotheses:hypothesis",
+        // regular-looking forms the suffix rules get wrong
+        "created:create", "creating:create", "bias:bias", "species:species",
+        "series:series", "news:news", "politics:politics",
+        "physics:physics", "mathematics:mathematics", "ethics:ethics", "economics:economics",
+    };
+
+    /**
+     * Words whose ending only looks like an inflection
+     */
+    private static final String[] KEEP = {
+        "always", "perhaps", "towards", "afterwards", "besides", "sometimes", "whereas",
+        "upwards", "downwards", "backwards", "forwards", "outwards", "indoors", "nowadays",
+        "alas", "atlas", "canvas", "lens", "thus", "yes", "its", "ours", "yours", "hers", "theirs", "gas", "bus", "plus", "manners",
+        "themselves", "ourselves", "yourselves",
+        "thing", "nothing", "something", "anything", "everything", "morning", "evening",
+        "during", "king", "ring", "spring", "string", "sing", "wing", "bring", "sting",
+        "swing", "cling", "fling", "sling", "wring", "ceiling", "wedding", "pudding",
+        "darling", "shilling", "farthing", "sterling", "herring", "lightning", "stocking",
+        "building", "feeling", "meaning", "painting", "wording", "clothing", "interesting",
+        "charming", "understanding", "learning", "amusing", "astonishing",
+        "surprising", "pleasing", "willing", "loving", "striking",
+        "hundred", "sacred", "kindred", "naked", "wicked", "rugged", "ragged", "wretched",
+        "beloved", "crooked", "dogged", "jagged", "aged", "blessed", "cursed", "limited",
+        "distinguished", "interested", "tired", "united", "civilized",
+        "specimen", "abdomen", "omen", "amen", "stamen", "regimen", "acumen",
+    };
+
+    /**
+     * Common adjectives whose comparative and superlative (-er, -est) are lemmatized; for other
+     * words these endings are too often part of the word (number, forest) to strip
+     */
+    private static final String[] ADJECTIVES = {
+        "great", "high", "low", "old", "young", "long", "short", "large", "small", "big",
+        "early", "near", "wide", "broad", "deep", "slight", "strong", "weak", "fine", "true",
+        "wise", "rich", "poor", "dark", "light", "bright", "clear", "close", "happy", "easy",
+        "heavy", "noble", "simple", "gentle", "hard", "soft", "quick", "slow", "warm", "cold",
+        "sweet", "pure", "dear", "fair", "full", "kind", "wild", "grand", "bold", "proud",
+        "plain", "brave", "rare", "safe", "sure", "strange", "tall", "thick", "thin", "hot",
+        "sad", "busy", "pretty", "lovely", "mighty", "holy", "worthy", "ugly", "nice", "vast",
+        "keen", "mild", "firm", "sharp", "humble", "calm", "cheap", "clean", "cruel", "deadly",
+        "faint", "fierce", "fresh", "glad", "harsh", "loud", "merry", "quiet", "rough", "severe",
+        "stern", "stout", "swift", "tender", "wealthy", "wet", "bitter", "narrow",
+    };
+
+    private static final Map<String, String[]> IRREGULAR_LEMMAS = new HashMap<>();
+    private static final Set<String> KEPT = new HashSet<>(Arrays.asList(KEEP));
+
+    static {
+        for (String entry : IRREGULAR) {
+            int colon = entry.indexOf(':', 1);
+            IRREGULAR_LEMMAS.put(entry.substring(0, colon), entry.substring(colon + 1).split("\\+"));
+        }
+        for (String adjective : ADJECTIVES) {
+            String[] lemma = {adjective};
+            int n = adjective.length();
+            String stem;
+            if (adjective.endsWith("e")) {
+                // wide -> wider
+                stem = adjective.substring(0, n - 1);
+            } else if (adjective.endsWith("y")) {
+                // happy -> happier
+                stem = adjective.substring(0, n - 1) + "i";
+            } else if (isShortCvc(adjective)) {
+                // big -> bigger
+                stem = adjective + adjective.charAt(n - 1);
+            } else {
+                stem = adjective;
+            }
+            IRREGULAR_LEMMAS.putIfAbsent(stem + "er", lemma);
+            IRREGULAR_LEMMAS.putIfAbsent(stem + "est", lemma);
+        }
+    }
+
+    private Map<String, String> dictionary = new HashMap<>();
+
+    @Override
+    public void setup(Configuration conf, URI[] cacheFiles) throws IOException {
+        if (cacheFiles != null) {
+            for (URI cacheFile : cacheFiles) {
+                if (cacheFile.getPath().endsWith("lemmas.txt")) {
+                    dictionary.putAll(LemmaCache.loadDictionary(cacheFile, conf));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void lemmatize(String text, Consumer consumer) throws Exception {
+        String lower = text.toLowerCase(Locale.ROOT);
+        int length = lower.length();
+        int i = 0;
+        while (i < length) {
+            // Find the next run of letters and apostrophes
+            while (i < length && !isWordChar(lower.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && isWordChar(lower.charAt(i))) {
+                i++;
+            }
+            // Apostrophes around a word are quotes
+            int end = i;
+            while (start < end && lower.charAt(start) == '\'') {
+                start++;
+            }
+            while (end > start && lower.charAt(end - 1) == '\'') {
+                end--;
+            }
+            if (start < end) {
+                lemmatizeWord(lower.substring(start, end), consumer);
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c) || c == '\'';
+    }
+
+    /**
+     * Lemmatize one word, splitting off the clitic of a contraction
+     */
+    private void lemmatizeWord(String word, Consumer consumer) throws IOException, InterruptedException {
+        int apostrophe = word.indexOf('\'');
+        if (apostrophe < 0) {
+            emit(word, consumer);
+            return;
+        }
+
+        // don't -> do + n't, she'll -> she + 'll
+        int split = word.endsWith("n't") && apostrophe == word.length() - 2 ? apostrophe - 1 : apostrophe;
+        if (split > 0) {
+            emit(word.substring(0, split), consumer);
+        }
+        emit(word.substring(split), consumer);
+    }
+
+    private void emit(String word, Consumer consumer) throws IOException, InterruptedException {
+        String lemma = dictionary.get(word);
+        if (lemma != null) {
+            consumer.accept(lemma);
+            return;
+        }
+        String[] lemmas = IRREGULAR_LEMMAS.get(word);
+        if (lemmas != null) {
+            for (String part : lemmas) {
+                consumer.accept(part);
+            }
+            return;
+        }
+        consumer.accept(stem(word));
+    }
+
+    /**
+     * Lemma of a regular word by its suffix
+     */
+    static String stem(String word) {
+        int n = word.length();
+        if (n <= 3 || KEPT.contains(word)) {
+            return word;
+        }
+
+        if (word.endsWith("s")) {
+            return stripPlural(word);
+        }
+        if (word.endsWith("ied")) {
+            // died -> die, carried -> carry
+            return n == 4 ? word.substring(0, 3) : word.substring(0, n - 3) + "y";
+        }
+        if (word.endsWith("ed") && !word.endsWith("eed")) {
+            return restore(word.substring(0, n - 2), word);
+        }
+        if (word.endsWith("ying") && n == 5) {
+            // dying -> die
+            return word.charAt(0) + "ie";
+        }
+        if (word.endsWith("ing")) {
+            return restore(word.substring(0, n - 3), word);
+        }
+        if (word.endsWith("men") && word.length() > 5) {
+            // gentlemen -> gentleman
+            return word.substring(0, n - 3) + "man";
+        }
+        return word;
+    }
+
+    private static String stripPlural(String word) {
+        int n = word.length();
+        if (word.endsWith("ss") || word.endsWith("us") || word.endsWith("is")) {
+            return word;
+        }
+        if (word.endsWith("ies")) {
+            // ties -> tie, stories -> story
+            return n == 4 ? word.substring(0, 3) : word.substring(0, n - 3) + "y";
+        }
+        if (word.endsWith("sses") || word.endsWith("ches") || word.endsWith("shes")
+                || word.endsWith("xes") || word.endsWith("zzes") || (word.endsWith("oes") && n > 5)) {
+            // passes -> pass, heroes -> hero
+            return word.substring(0, n - 2);
+        }
+        return word.substring(0, n - 1);
+    }
+
+    /**
+     * Undo the spelling changes made when -ed or -ing was added to the stem
+     */
+    private static String restore(String stem, String word) {
+        int n = stem.length();
+        if (!hasVowel(stem)) {
+            // red, sing: not a suffix
+            return word;
+        }
+        char last = stem.charAt(n - 1);
+
+        // stopped -> stop, travelled -> travel, but passed, called, added, spelled
+        if (n >= 4 && last == stem.charAt(n - 2) && !isVowel(last)
+                && last != 'l' && last != 's' && last != 'z' && last != 'f') {
+            return stem.substring(0, n - 1);
+        }
+        if (n >= 6 && stem.endsWith("ell")) {
+            return stem.substring(0, n - 1);
+        }
+
+        // Endings that cannot end an English word: loved, continued, judged, changed, produced, seized
+        if (last == 'v' || last == 'u' || last == 'c' || stem.endsWith("dg")
+                || stem.endsWith("ang") || stem.endsWith("eng") || (last == 'z' && stem.charAt(n - 2) != 'z')) {
+            return stem + "e";
+        }
+        // caused, raised, sensed, but passed
+        if (last == 's' && stem.charAt(n - 2) != 's') {
+            return stem + "e";
+        }
+        // owed, eyed
+        if (n <= 2) {
+            return stem + "e";
+        }
+        // included, provided, described, distributed, required, compared, defined, promoted,
+        // invoked, preceded, renamed, but visited, offered, opened
+        if (endsConsonantVowel(stem, "aiu", "d") || endsConsonantVowel(stem, "i", "b")
+                || endsConsonantVowel(stem, "aiu", "r") || endsConsonantVowel(stem, "u", "t")
+                || endsConsonantVowel(stem, "i", "n") || endsConsonantVowel(stem, "o", "kt")
+                || endsConsonantVowel(stem, "e", "d") || endsConsonantVowel(stem, "aiou", "g")
+                || endsConsonantVowel(stem, "a", "m")) {
+            return stem + "e";
+        }
+        // settled, troubled, but curled, failed
+        if (last == 'l' && n > 2 && !isVowel(stem.charAt(n - 2)) && "lrw".indexOf(stem.charAt(n - 2)) < 0) {
+            return stem + "e";
+        }
+        // related, stated, associated, but treated
+        if (stem.endsWith("at") && n > 3 && "aeo".indexOf(stem.charAt(n - 3)) < 0) {
+            return stem + "e";
+        }
+        // hoped, liked, named: a short stem ending consonant-vowel-consonant
+        if (isShortCvc(stem)) {
+            return stem + "e";
+        }
+        return stem;
+    }
+
+    /**
+     * Whether the stem has one vowel group and ends consonant-vowel-consonant (not w, x or y)
+     */
+    private static boolean isShortCvc(String stem) {
+        int n = stem.length();
+        if (n < 3) {
+            return false;
+        }
+        char c3 = stem.charAt(n - 1);
+        if (isVowel(c3) || c3 == 'w' || c3 == 'x' || c3 == 'y'
+                || !isVowel(stem.charAt(n - 2)) || isVowel(stem.charAt(n - 3))) {
+            return false;
+        }
+        for (int i = 0; i < n - 3; i++) {
+            if (isVowel(stem.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the stem ends with a consonant (or qu), one of the vowels and one of the consonants
+     */
+    private static boolean endsConsonantVowel(String stem, String vowels, String consonants) {
+        int n = stem.length();
+        if (n < 3 || consonants.indexOf(stem.charAt(n - 1)) < 0 || vowels.indexOf(stem.charAt(n - 2)) < 0) {
+            return false;
+        }
+        char before = stem.charAt(n - 3);
+        return !isVowel(before) || (before == 'u' && n > 3 && stem.charAt(n - 4) == 'q');
+    }
+
+    private static boolean hasVowel(String stem) {
+        for (int i = 0; i < stem.length(); i++) {
+            if (isVowel(stem.charAt(i)) || (i > 0 && stem.charAt(i) == 'y')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
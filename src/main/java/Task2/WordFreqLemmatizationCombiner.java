@@ -0,0 +1,35 @@
+package Task2;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner for word frequency analysis with lemmatization.
+ *
+ * Input: Key-value pairs with key as (bookID, lemma, year) and values as partial counts
+ * Output: The same key with the partial counts summed
+ *
+ * It sums like WordFreqLemmatizationReducer, but is kept separate so the combine step does
+ * not depend on what the reducer writes for the output format in use.
+ */
+public class WordFreqLemmatizationCombiner extends Reducer<WordFreqLemmatizationMapper.LemmaKey, IntWritable,
+        WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+
+    private final IntWritable partialCount = new IntWritable();
+
+    @Override
+    public void reduce(WordFreqLemmatizationMapper.LemmaKey key, Iterable<IntWritable> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Sum up the partial counts for this lemma
+        int sum = 0;
+        for (IntWritable val : values) {
+            sum += val.get();
+        }
+
+        partialCount.set(sum);
+        context.write(key, partialCount);
+    }
+}
@@ -12,6 +12,11 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import Task2.LemmaFrequencyOutputFormat;
+import Task2.LemmaSketch;
+import Task2.LemmaTopKCombiner;
+import Task2.LemmaTopKReducer;
+import Task2.WordFreqLemmatizationCombiner;
 import Task2.WordFreqLemmatizationMapper;
 import Task2.WordFreqLemmatizationReducer;
 
@@ -22,6 +27,15 @@ import Task2.WordFreqLemmatizationReducer;
  * 1. Takes the cleaned dataset from Task 1 (output/part-r-00000)
  * 2. Performs sentence splitting and lemmatization
  * 3. Computes frequency of each lemma per book and year
+ *
+ * With -D lemma.output.format=columnar the results are written with LemmaFrequencyOutputFormat
+ * (compressed) instead of as text, for Task 3 or Task 4 to read with LemmaFrequencyInputFormat.
+ *
+ * With -D lemma.engine=rules the lemmas come from RuleLemmatizer (irregular forms and suffix
+ * rules, no POS tagging) instead of CoreNLP; see Lemmatizer.
+ *
+ * With -D lemma.topk=K only the K most frequent lemmas of each (bookID,decade) and decade are
+ * written, as key [tab] lemma [tab] count [tab] error, estimated with LemmaSketch summaries.
  * 
  * Command: hadoop jar yourjar.jar Task2.driver.WordFreqLemmatizationDriver output/part-r-00000 output-lemma
  */
@@ -43,17 +57,45 @@ public class WordFreqLemmatizationDriver extends Configured implements Tool {
         // Set the driver class
         job.setJarByClass(WordFreqLemmatizationDriver.class);
         
-        // Set mapper and reducer classes
+        // Set mapper, combiner and reducer classes
         job.setMapperClass(WordFreqLemmatizationMapper.class);
-        job.setReducerClass(WordFreqLemmatizationReducer.class);
         
-        // Set map output key and value classes
-        job.setMapOutputKeyClass(WordFreqLemmatizationMapper.LemmaKey.class);
-        job.setMapOutputValueClass(IntWritable.class);
+        // Fail now rather than in every map task if lemma.engine is unknown
+        Lemmatizer.create(conf);
         
-        // Set final output key and value classes
-        job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(Text.class);
+        int topK = conf.getInt("lemma.topk", 0);
+        String outputFormat = conf.get("lemma.output.format", "text");
+        if (topK > 0) {
+            // Top-k mode: merge lemma sketches per (bookID,decade) and decade
+            if (!outputFormat.equals("text")) {
+                throw new IllegalArgumentException("lemma.topk is only written as text, not " + outputFormat);
+            }
+            job.setReducerClass(LemmaTopKReducer.class);
+            job.setCombinerClass(LemmaTopKCombiner.class);
+            job.setMapOutputKeyClass(Text.class);
+            job.setMapOutputValueClass(LemmaSketch.class);
+            job.setOutputKeyClass(Text.class);
+            job.setOutputValueClass(Text.class);
+        } else {
+            job.setReducerClass(WordFreqLemmatizationReducer.class);
+            job.setCombinerClass(WordFreqLemmatizationCombiner.class);
+            
+            // Set map output key and value classes
+            job.setMapOutputKeyClass(WordFreqLemmatizationMapper.LemmaKey.class);
+            job.setMapOutputValueClass(IntWritable.class);
+            
+            // Set final output key and value classes
+            job.setOutputKeyClass(WordFreqLemmatizationMapper.LemmaKey.class);
+            job.setOutputValueClass(IntWritable.class);
+        }
+        
+        // Set the output format: text lines (default) or compressed columns
+        if (outputFormat.equals("columnar")) {
+            job.setOutputFormatClass(LemmaFrequencyOutputFormat.class);
+            FileOutputFormat.setCompressOutput(job, true);
+        } else if (!outputFormat.equals("text")) {
+            throw new IllegalArgumentException("lemma.output.format must be text or columnar: " + outputFormat);
+        }
         
         // Set input and output paths
         FileInputFormat.addInputPath(job, new Path(args[1]));
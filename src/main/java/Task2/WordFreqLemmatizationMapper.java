@@ -1,24 +1,44 @@
 package Task2;
 
 import java.io.IOException;
-import java.util.Properties;
-import java.util.StringTokenizer;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Mapper;
 
-import edu.stanford.nlp.pipeline.CoreDocument;
-import edu.stanford.nlp.pipeline.CoreSentence;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import Common.SampledLog;
 
 /**
  * Mapper for word frequency analysis with lemmatization.
  * 
- * Input: The cleaned dataset from Task 1 in format (bookId,year) cleaned_text
- * Output: Key-value pairs with key as (bookID, lemma, year) and value as 1
+ * Input: The cleaned dataset from Task 1 in format bookId,title,year [tab] cleaned_text
+ *        (or bookId,title,year [tab] segmentNo [tab] cleaned_text when segmented),
+ *        either as text lines or as (metadata, text) SequenceFile records
+ * Output: Key-value pairs with key as (bookID, lemma, year) and value as the count
+ *
+ * With lemma.inmapper.combine=true (default) counts are aggregated inside the mapper in a
+ * bounded table that is flushed when it reaches lemma.inmapper.max.entries keys, when the
+ * estimated size of the held counts passes lemma.inmapper.max.mb, and in cleanup. Otherwise every occurrence is
+ * emitted with count 1 and left to WordFreqLemmatizationCombiner.
+ *
+ * Lemmas come from the engine named by lemma.engine (see Lemmatizer): CoreNLP by default, whose
+ * worker threads and lemma cache are set with lemma.annotate.* and lemma.cache.* (see
+ * CoreNlpLemmatizer), or the POS-free dictionary and suffix rules of RuleLemmatizer.
+ *
+ * With lemma.topk=K above 0 only the most frequent lemmas are wanted: instead of counting every
+ * (bookID, lemma, year), the mapper keeps a LemmaSketch of lemma.topk.capacity counters for each
+ * (bookID,decade) and each decade, keyed by their text, and writes the sketches in cleanup or
+ * when their estimated size passes lemma.inmapper.max.mb. They are merged by LemmaTopKCombiner and
+ * LemmaTopKReducer into approximate top-k lists with error bounds.
+ *
+ * Records read, skipped and failed are counted in LemmaCounters; set debug.sample.every to log
+ * a sample of them (see SampledLog).
  */
 public class WordFreqLemmatizationMapper extends Mapper<Object, Text, WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
     
@@ -41,6 +61,12 @@ public class WordFreqLemmatizationMapper extends Mapper<Object, Text, WordFreqLe
             
         }
         
+        public void set(String bookId, String lemma, int year) {
+            this.bookId = bookId;
+            this.lemma = lemma;
+            this.year = year;
+        }
+        
         @Override
         public void write(java.io.DataOutput out) throws IOException {
             WritableUtils.writeString(out, bookId);
@@ -104,79 +130,290 @@ public class WordFreqLemmatizationMapper extends Mapper<Object, Text, WordFreqLe
         public int getYear() {
             return year;
         }
+
+        /**
+         * Raw comparator that orders serialized keys without deserializing them.
+         * Layout: [int length][bookId UTF-8][int length][lemma UTF-8][int year]
+         */
+        public static class Comparator extends WritableComparator {
+            public Comparator() {
+                super(LemmaKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                // Compare bookId bytes
+                int bookLen1 = Math.max(readInt(b1, s1), 0);
+                int bookLen2 = Math.max(readInt(b2, s2), 0);
+                int cmp = compareBytes(b1, s1 + 4, bookLen1, b2, s2 + 4, bookLen2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Compare lemma bytes
+                int lemmaStart1 = s1 + 4 + bookLen1;
+                int lemmaStart2 = s2 + 4 + bookLen2;
+                int lemmaLen1 = Math.max(readInt(b1, lemmaStart1), 0);
+                int lemmaLen2 = Math.max(readInt(b2, lemmaStart2), 0);
+                cmp = compareBytes(b1, lemmaStart1 + 4, lemmaLen1, b2, lemmaStart2 + 4, lemmaLen2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Compare year
+                return Integer.compare(readInt(b1, lemmaStart1 + 4 + lemmaLen1),
+                                       readInt(b2, lemmaStart2 + 4 + lemmaLen2));
+            }
+        }
+
+        static {
+            // Register the raw comparator so the shuffle sort uses it
+            WritableComparator.define(LemmaKey.class, new Comparator());
+        }
+    }
+    
+    /**
+     * Counters for sizing the lemmatization work
+     */
+    public enum LemmaCounters {
+        ANNOTATION_TIME_MS,      // Time spent in CoreNLP annotation, summed over all threads
+        ANNOTATION_BATCHES,      // Documents handed to CoreNLP
+        MAX_ANNOTATION_QUEUE,    // Deepest backlog of batches waiting for a worker thread in a task
+                                 // (summed over the tasks of the job; each task logs its own)
+        IN_MAPPER_FLUSHES,       // Flushes of the in-mapper count table
+        LEMMA_DICTIONARY_HITS,   // Lemmas found in the precomputed dictionary
+        LEMMA_CACHE_HITS,        // Lemmas found in the LRU cache
+        LEMMA_CACHE_MISSES,      // Lemmas that had to be computed
+        RECORDS_READ,            // Input records seen
+        SKIPPED_MALFORMED,       // Records without a tab between metadata and text
+        SKIPPED_BAD_METADATA,    // Metadata without bookId,title,year
+        SKIPPED_BAD_YEAR,        // Year that is not a number
+        RECORD_ERRORS            // Records that failed with an exception
     }
     
     private final static IntWritable ONE = new IntWritable(1);
-    private StanfordCoreNLP pipeline;
+    
+    /**
+     * Counters per sketch in top-k mode: lemma.topk.capacity, or 50 per lemma kept (at least 1000)
+     */
+    static int sketchCapacity(Configuration conf) {
+        int topK = conf.getInt("lemma.topk", 0);
+        return conf.getInt("lemma.topk.capacity", Math.max(1000, 50 * topK));
+    }
+    
+    private Lemmatizer lemmatizer;
+    private SampledLog sampledLog;
+    
+    // Reused output objects
+    private final LemmaKey outputKey = new LemmaKey();
+    private final IntWritable outputCount = new IntWritable();
+    
+    // In-mapper combining state
+    private boolean inMapperCombine = true;
+    private long maxBytes;
+    private LemmaCountTable counts;
+    private LemmaCountTable.Sink flushSink;
+    
+    // Top-k sketch state: one sketch per (bookID,decade) and decade, and those of the current record
+    private int topK;
+    private int sketchCapacity;
+    private final Map<String, LemmaSketch> sketches = new HashMap<>();
+    private LemmaSketch bookSketch;
+    private LemmaSketch decadeSketch;
+    private final Text sketchKey = new Text();
     
     @Override
-    protected void setup(Context context) throws IOException, InterruptedException {
-        // Initialize Stanford CoreNLP pipeline for lemmatization
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
-        props.setProperty("tokenize.language", "en");
-        props.setProperty("pos.model", "edu/stanford/nlp/models/pos-tagger/english-left3words-distsim.tagger");
-        
-        // Setting these options to speed up processing
-        props.setProperty("tokenize.options", "untokenizable=noneKeep");
-        props.setProperty("ssplit.eolonly", "true");  // Only split on newlines
-        
-        pipeline = new StanfordCoreNLP(props);
+    protected void setup(final Context context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+        sampledLog = new SampledLog(WordFreqLemmatizationMapper.class, conf);
+        
+        // Get configuration for in-mapper combining
+        inMapperCombine = conf.getBoolean("lemma.inmapper.combine", true);
+        maxBytes = conf.getLong("lemma.inmapper.max.mb", 64) * 1024 * 1024;
+        
+        // Get configuration for top-k mode, which replaces in-mapper combining
+        topK = conf.getInt("lemma.topk", 0);
+        sketchCapacity = sketchCapacity(conf);
+        if (topK > 0) {
+            inMapperCombine = false;
+        }
+        if (inMapperCombine) {
+            counts = new LemmaCountTable(conf.getInt("lemma.inmapper.max.entries", 100000));
+            flushSink = (bookId, lemma, year, count) -> {
+                outputKey.set(bookId, lemma, year);
+                outputCount.set(count);
+                context.write(outputKey, outputCount);
+            };
+        }
+        
+        // Initialize the lemmatization engine (Stanford CoreNLP unless lemma.engine says otherwise)
+        lemmatizer = Lemmatizer.create(conf);
+        lemmatizer.setup(conf, context.getCacheFiles());
     }
     
     @Override
     public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
+        context.getCounter(LemmaCounters.RECORDS_READ).increment(1);
         try {
-            // Parse input line from Task 1 output
-            // Format: (bookId,year) cleaned_text
-            String line = value.toString();
-            String[] parts = line.split("\t", 2);
+            String metaData;
+            String cleanedText;
 
-            if (parts.length < 2) {
-                return; // Skip malformed lines
-            }
+            if (key instanceof Text) {
+                // SequenceFile record from the pipeline: key is the metadata
+                // (plus the segment number when segmented), value the text
+                String keyPart = key.toString();
+                int tab = keyPart.indexOf('\t');
+                metaData = (tab < 0 ? keyPart : keyPart.substring(0, tab)).trim();
+                cleanedText = value.toString().trim();
+            } else {
+                // Parse input line from Task 1 output
+                // Format: bookId,title,year [tab] cleaned_text
+                //     or: bookId,title,year [tab] segmentNo [tab] cleaned_text
+                // (cleaned text never contains tabs)
+                String line = value.toString();
+                String[] parts = line.split("\t", 3);
 
-            String metaData = parts[0].trim();
-            String cleanedText = parts[1].trim();
+                if (parts.length < 2) {
+                    // Skip malformed lines
+                    sampledLog.event(context, LemmaCounters.SKIPPED_MALFORMED, "{}", value);
+                    return;
+                }
+
+                metaData = parts[0].trim();
+                cleanedText = parts[parts.length - 1].trim();
+            }
 
-            String bookId = metaData.split("],")[0];
-            String title = metaData.split("],")[1].split(",")[0];
-            String yearPart = metaData.split("],")[1].split(",")[1];
+            // Book ID is everything before the first comma (older Task 1 output has a trailing "]"),
+            // year is everything after the last comma
+            int firstComma = metaData.indexOf(',');
+            int lastComma = metaData.lastIndexOf(',');
+            if (firstComma < 0 || lastComma == firstComma) {
+                // Skip malformed metadata
+                sampledLog.event(context, LemmaCounters.SKIPPED_BAD_METADATA, "{}", metaData);
+                return;
+            }
 
-            // int bracketIndex = metaData.indexOf("],");
-            // String bookId = metaData.substring(1, bracketIndex); // Extract bookId
-            // String title = metaData.substring(bracketIndex+1, bracketIndex);
-            // String yearPart = metaData.substring(bracketIndex + 2).trim(); // Extract year
+            String bookId = metaData.substring(0, firstComma).replace("]", "").trim();
+            String yearPart = metaData.substring(lastComma + 1).trim();
 
             int year;
             
             try {
                 year = Integer.parseInt(yearPart);
             } catch (NumberFormatException e) {
-                return; // Skip invalid year values
+                // Skip invalid year values
+                sampledLog.event(context, LemmaCounters.SKIPPED_BAD_YEAR, "{}", metaData);
+                return;
             }
             
-            // Apply lemmatization using Stanford CoreNLP
-            CoreDocument document = new CoreDocument(cleanedText);
-            pipeline.annotate(document);
+            if (topK > 0) {
+                selectSketches(bookId, year);
+            }
             
-            // Process each sentence and token to extract lemmas
-            for (CoreSentence sentence : document.sentences()) {
-                for (String lemma : sentence.lemmas()) {
-                    // Filter out non-alphabetic lemmas and single characters
-                    if (lemma.matches("[a-zA-Z]+") && lemma.length() > 1) {
-                        // Create composite key (bookId, lemma, year)
-                        LemmaKey outputKey = new LemmaKey(bookId, lemma.toLowerCase(),year);
-                        
-                        // Emit key-value pair with count 1
-                        context.write(outputKey, ONE);
-                    }
-                }
+            // Lemmatize with the configured engine and count each lemma
+            lemmatizer.lemmatize(cleanedText, lemma -> emitLemma(bookId, lemma, year, context));
+            lemmatizer.reportCounters(context);
+            
+            // Flush early if the aggregated counts take too much memory
+            if ((inMapperCombine || topK > 0) && heldBytes() > maxBytes) {
+                flush(context);
             }
         } catch (Exception e) {
-            // Log error and continue processing other records
-            System.err.println("Error processing input: ");
-            e.printStackTrace();
+            // Count the error and continue processing other records
+            sampledLog.error(context, LemmaCounters.RECORD_ERRORS, key, e);
+        }
+    }
+    
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        lemmatizer.close();
+        if (inMapperCombine || topK > 0) {
+            flush(context);
+        }
+    }
+    
+    private void emitLemma(String bookId, String lemma, int year, Context context)
+            throws IOException, InterruptedException {
+        // Filter out non-alphabetic lemmas and single characters
+        if (lemma.matches("[a-zA-Z]+") && lemma.length() > 1) {
+            emit(bookId, lemma.toLowerCase(), year, context);
+        }
+    }
+    
+    /**
+     * Count one occurrence of (bookId, lemma, year), either in the in-mapper table or directly
+     */
+    private void emit(String bookId, String lemma, int year, Context context)
+            throws IOException, InterruptedException {
+        if (topK > 0) {
+            bookSketch.add(lemma, 1);
+            decadeSketch.add(lemma, 1);
+            return;
+        }
+        
+        if (!inMapperCombine) {
+            // Emit key-value pair with count 1
+            outputKey.set(bookId, lemma, year);
+            context.write(outputKey, ONE);
+            return;
+        }
+        
+        if (!counts.add(bookId, lemma, year, 1)) {
+            // Table is full: flush it and start over
+            flush(context);
+            counts.add(bookId, lemma, year, 1);
+        }
+    }
+    
+    /**
+     * Look up (or start) the sketches of the book and decade of the current record
+     */
+    private void selectSketches(String bookId, int year) {
+        int decade = (year / 10) * 10;
+        bookSketch = sketches.computeIfAbsent("(" + bookId + "," + decade + "s)", k -> new LemmaSketch(sketchCapacity));
+        decadeSketch = sketches.computeIfAbsent(decade + "s", k -> new LemmaSketch(sketchCapacity));
+    }
+    
+    private void flush(Context context) throws IOException, InterruptedException {
+        if (topK > 0) {
+            flushSketches(context);
+            return;
+        }
+        if (counts.size() > 0) {
+            context.getCounter(LemmaCounters.IN_MAPPER_FLUSHES).increment(1);
+            counts.flush(flushSink);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void flushSketches(Context context) throws IOException, InterruptedException {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        context.getCounter(LemmaCounters.IN_MAPPER_FLUSHES).increment(1);
+        
+        // Top-k mode changes the map output types, which the Context generics cannot express
+        Mapper<Object, Text, Text, LemmaSketch>.Context sketchContext =
+                (Mapper<Object, Text, Text, LemmaSketch>.Context) (Object) context;
+        for (Map.Entry<String, LemmaSketch> entry : sketches.entrySet()) {
+            sketchKey.set(entry.getKey());
+            sketchContext.write(sketchKey, entry.getValue());
+        }
+        sketches.clear();
+    }
+    
+    /**
+     * Estimated heap of the counts held for the next flush. Unlike the used heap, this does not
+     * include garbage the collector has not reclaimed yet, nor the memory of the lemmatizer.
+     */
+    private long heldBytes() {
+        if (topK > 0) {
+            long bytes = 0;
+            for (LemmaSketch sketch : sketches.values()) {
+                bytes += sketch.estimatedBytes();
+            }
+            return bytes;
         }
+        return counts.estimatedBytes();
     }
 }
\ No newline at end of file
@@ -3,16 +3,21 @@ package Task2;
 import java.io.IOException;
 
 import org.apache.hadoop.io.IntWritable;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
 /**
  * Reducer for word frequency analysis with lemmatization.
  * 
  * Input: Key-value pairs with key as (bookID, lemma, year) and values as counts (1s)
- * Output: Produces a dataset listing each lemma with its frequency along with book ID and year
+ * Output: Produces a dataset listing each lemma with its frequency along with book ID and year.
+ *         The typed (bookID, lemma, year) -> frequency records are written as text lines
+ *         bookId [tab] lemma [tab] year [tab] frequency by the default output format, or
+ *         column by column with LemmaFrequencyOutputFormat
  */
-public class WordFreqLemmatizationReducer extends Reducer<WordFreqLemmatizationMapper.LemmaKey, IntWritable, Text, Text> {
+public class WordFreqLemmatizationReducer extends Reducer<WordFreqLemmatizationMapper.LemmaKey, IntWritable,
+        WordFreqLemmatizationMapper.LemmaKey, IntWritable> {
+    
+    private final IntWritable outputValue = new IntWritable();
     
     @Override
     public void reduce(WordFreqLemmatizationMapper.LemmaKey key, Iterable<IntWritable> values, Context context) 
@@ -24,18 +29,8 @@ public class WordFreqLemmatizationReducer extends Reducer<WordFreqLemmatizationM
             sum += val.get();
         }
         
-        // Format the output key as the book ID
-        Text outputKey = new Text(key.getBookId());
-        
-        // Format the output value as: lemma, year, frequency
-        StringBuilder outputValueBuilder = new StringBuilder();
-        outputValueBuilder.append(key.getLemma()).append("\t");
-        outputValueBuilder.append(key.getYear()).append("\t");
-        outputValueBuilder.append(sum);
-        
-        Text outputValue = new Text(outputValueBuilder.toString());
-        
-        // Emit the result
-        context.write(outputKey, outputValue);
+        // Emit the result; LemmaKey prints as bookId [tab] lemma [tab] year
+        outputValue.set(sum);
+        context.write(key, outputValue);
     }
-}
\ No newline at end of file
+}
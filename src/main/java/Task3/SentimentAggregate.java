@@ -0,0 +1,193 @@
+package Task3;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Partial sentiment aggregate of one (bookId, year): the sum of the scores of its sentiment
+ * words, how many there were, and how many of them were positive and negative.
+ *
+ * These are kept per dimension, one for each lexicon scored (see SentimentLexicon), so any
+ * number of lexicons share one record. The methods without a dimension read the first one.
+ *
+ * Aggregates merge by adding every field, so they can be combined in the mapper, in the
+ * combiner and in the reducer in any order.
+ */
+public class SentimentAggregate implements Writable {
+    private int dimensions;
+    private double[] sum = new double[1];
+    private long[] count = new long[1];
+    private long[] positive = new long[1];
+    private long[] negative = new long[1];
+
+    public SentimentAggregate() {
+        this(1);
+    }
+
+    public SentimentAggregate(int dimensions) {
+        ensureDimensions(dimensions);
+    }
+
+    /**
+     * Count one sentiment word with the given score
+     */
+    public void add(double score) {
+        add(0, score, 1);
+    }
+
+    /**
+     * Count a sentiment word with the given score that occurred the given number of times
+     */
+    public void add(double score, long occurrences) {
+        add(0, score, occurrences);
+    }
+
+    /**
+     * Count a sentiment word with the given score in one dimension that occurred the given
+     * number of times
+     */
+    public void add(int dimension, double score, long occurrences) {
+        ensureDimensions(dimension + 1);
+        sum[dimension] += score * occurrences;
+        count[dimension] += occurrences;
+        if (score > 0) {
+            positive[dimension] += occurrences;
+        } else if (score < 0) {
+            negative[dimension] += occurrences;
+        }
+    }
+
+    public void merge(SentimentAggregate other) {
+        ensureDimensions(other.dimensions);
+        for (int d = 0; d < other.dimensions; d++) {
+            sum[d] += other.sum[d];
+            count[d] += other.count[d];
+            positive[d] += other.positive[d];
+            negative[d] += other.negative[d];
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(sum, 0.0);
+        Arrays.fill(count, 0);
+        Arrays.fill(positive, 0);
+        Arrays.fill(negative, 0);
+    }
+
+    /**
+     * Whether no sentiment word was counted in any dimension
+     */
+    public boolean isEmpty() {
+        for (int d = 0; d < dimensions; d++) {
+            if (count[d] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureDimensions(int needed) {
+        if (needed <= dimensions) {
+            return;
+        }
+        if (needed > sum.length) {
+            sum = Arrays.copyOf(sum, needed);
+            count = Arrays.copyOf(count, needed);
+            positive = Arrays.copyOf(positive, needed);
+            negative = Arrays.copyOf(negative, needed);
+        }
+        dimensions = needed;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, dimensions);
+        for (int d = 0; d < dimensions; d++) {
+            out.writeDouble(sum[d]);
+            WritableUtils.writeVLong(out, count[d]);
+            WritableUtils.writeVLong(out, positive[d]);
+            WritableUtils.writeVLong(out, negative[d]);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        int newDimensions = WritableUtils.readVInt(in);
+        ensureDimensions(newDimensions);
+        clear();
+        dimensions = newDimensions;
+        for (int d = 0; d < dimensions; d++) {
+            sum[d] = in.readDouble();
+            count[d] = WritableUtils.readVLong(in);
+            positive[d] = WritableUtils.readVLong(in);
+            negative[d] = WritableUtils.readVLong(in);
+        }
+    }
+
+    // Getters
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public double getSum() {
+        return getSum(0);
+    }
+
+    public double getSum(int dimension) {
+        return dimension < dimensions ? sum[dimension] : 0.0;
+    }
+
+    public long getCount() {
+        return getCount(0);
+    }
+
+    public long getCount(int dimension) {
+        return dimension < dimensions ? count[dimension] : 0;
+    }
+
+    public long getPositive() {
+        return getPositive(0);
+    }
+
+    public long getPositive(int dimension) {
+        return dimension < dimensions ? positive[dimension] : 0;
+    }
+
+    public long getNegative() {
+        return getNegative(0);
+    }
+
+    public long getNegative(int dimension) {
+        return dimension < dimensions ? negative[dimension] : 0;
+    }
+
+    /**
+     * Mean score per sentiment word, 0 when there were none
+     */
+    public double getNormalized() {
+        return getNormalized(0);
+    }
+
+    public double getNormalized(int dimension) {
+        long words = getCount(dimension);
+        return words > 0 ? getSum(dimension) / words : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int d = 0; d < dimensions; d++) {
+            if (d > 0) {
+                builder.append('\t');
+            }
+            builder.append(sum[d]).append('\t').append(count[d]).append('\t')
+                    .append(positive[d]).append('\t').append(negative[d]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,482 @@
+package Task3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * Immutable sentiment lexicon looked up directly on UTF-8 bytes.
+ *
+ * A lexicon has one or more dimensions, one per source lexicon merged into it (AFINN, an emotion
+ * lexicon, a domain lexicon...), and gives every entry a score in each; an entry missing from a
+ * source scores 0 in its dimension. Entries are single words or phrases of several words
+ * ("does not work", "no fun"), whose scores in all dimensions are read with
+ * score(entry, dimension).
+ *
+ * All distinct words of the entries are stored back to back in one byte array, and an
+ * open-addressed table (linear probing, at most half full) holds the full hash and index of
+ * every word, so most misses are rejected without touching the words. A lookup hashes and
+ * compares the bytes of the token in place, so scoring a Text creates no Strings and boxes no
+ * Doubles. Words are stored lowercase and lookups fold ASCII uppercase, which matches the
+ * toLowerCase() the HashMap lexicon did for ASCII words.
+ *
+ * The entries are compiled into an Aho-Corasick automaton over word indexes: a trie of the
+ * entries with a failure link from every node to the longest proper suffix that is also in the
+ * trie, and an output link to the longest entry ending there. A Scanner feeds it one token at
+ * a time, so single words and phrases are matched in one pass over the text whatever the
+ * number or length of the phrases. Trie edges are kept in an open-addressed table keyed by
+ * (node, word), with the edges from the root in a plain array.
+ *
+ * Instances are safe to share between threads once built; Scanners are not.
+ */
+public class SentimentLexicon {
+    private final byte[] words;      // All words, UTF-8, back to back
+    private final int[] wordStarts;  // Start of word i in words; wordStarts[wordCount] = words.length
+    private final long[] table;      // Per slot: word hash << 32 | word index + 1, 0 for an empty slot
+    private final int mask;
+
+    private final int[] rootEdges;   // Child of the root for word i, 0 for none
+    private final long[] edgeKeys;   // Per slot: node << 32 | word, -1 for an empty slot
+    private final int[] edgeTargets; // Child reached by the edge in the same slot
+    private final int edgeMask;
+    private final int[] fail;        // Failure link of every node, 0 (the root) at depth 1
+    private final int[] output;      // The node itself if it ends an entry, else its failure link's output; -1 for none
+    private final int[] depth;       // Words from the root to every node
+    private final int maxDepth;
+
+    private final float[] scores;    // Score of the entry ending at node n in dimension d at n * dimensions + d
+    private final int dimensions;
+    private final int size;
+
+    private SentimentLexicon(Map<String, float[]> entries, int dimensions) {
+        this.dimensions = dimensions;
+        this.size = entries.size();
+
+        // Number the distinct words of all entries
+        Map<String, Integer> wordIndexes = new LinkedHashMap<>();
+        for (String entry : entries.keySet()) {
+            for (String word : entry.split(" ")) {
+                if (!wordIndexes.containsKey(word)) {
+                    wordIndexes.put(word, wordIndexes.size());
+                }
+            }
+        }
+
+        int wordCount = wordIndexes.size();
+        int capacity = Integer.highestOneBit(Math.max(2, wordCount * 2 - 1)) << 1;
+
+        byte[][] encoded = new byte[wordCount][];
+        int totalBytes = 0;
+        int i = 0;
+        for (String word : wordIndexes.keySet()) {
+            encoded[i] = word.getBytes(StandardCharsets.UTF_8);
+            totalBytes += encoded[i++].length;
+        }
+
+        this.words = new byte[totalBytes];
+        this.wordStarts = new int[wordCount + 1];
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+
+        int offset = 0;
+        for (i = 0; i < wordCount; i++) {
+            System.arraycopy(encoded[i], 0, words, offset, encoded[i].length);
+            wordStarts[i] = offset;
+            offset += encoded[i].length;
+
+            int hash = hash(words, wordStarts[i], encoded[i].length);
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = (long) hash << 32 | (i + 1);
+        }
+        wordStarts[wordCount] = offset;
+
+        // Build the trie of the entries, node 0 being the root
+        Map<Long, Integer> edges = new HashMap<>();
+        List<List<int[]>> children = new ArrayList<>(); // Per node: {word, child}
+        List<Integer> depths = new ArrayList<>();
+        List<float[]> nodeScores = new ArrayList<>();
+        children.add(new ArrayList<int[]>());
+        depths.add(0);
+        nodeScores.add(null);
+        for (Map.Entry<String, float[]> entry : entries.entrySet()) {
+            int node = 0;
+            for (String word : entry.getKey().split(" ")) {
+                int wordIndex = wordIndexes.get(word);
+                long key = (long) node << 32 | wordIndex;
+                Integer child = edges.get(key);
+                if (child == null) {
+                    child = children.size();
+                    edges.put(key, child);
+                    children.get(node).add(new int[] {wordIndex, child});
+                    children.add(new ArrayList<int[]>());
+                    depths.add(depths.get(node) + 1);
+                    nodeScores.add(null);
+                }
+                node = child;
+            }
+            nodeScores.set(node, entry.getValue());
+        }
+
+        int nodeCount = children.size();
+        this.depth = new int[nodeCount];
+        this.scores = new float[nodeCount * dimensions];
+        int deepest = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            depth[node] = depths.get(node);
+            deepest = Math.max(deepest, depth[node]);
+            if (nodeScores.get(node) != null) {
+                System.arraycopy(nodeScores.get(node), 0, scores, node * dimensions, dimensions);
+            }
+        }
+        this.maxDepth = Math.max(1, deepest);
+
+        // Lay out the edges: the root's in an array, the others in an open-addressed table
+        this.rootEdges = new int[wordCount];
+        int edgeCapacity = Integer.highestOneBit(Math.max(2, edges.size() * 2 - 1)) << 1;
+        this.edgeKeys = new long[edgeCapacity];
+        this.edgeTargets = new int[edgeCapacity];
+        this.edgeMask = edgeCapacity - 1;
+        Arrays.fill(edgeKeys, -1L);
+        for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+            long key = edge.getKey();
+            if ((int) (key >>> 32) == 0) {
+                rootEdges[(int) key] = edge.getValue();
+            } else {
+                int slot = edgeSlot(key);
+                while (edgeKeys[slot] != -1L) {
+                    slot = (slot + 1) & edgeMask;
+                }
+                edgeKeys[slot] = key;
+                edgeTargets[slot] = edge.getValue();
+            }
+        }
+
+        // Failure and output links, breadth first so every node's links are set before its children's
+        this.fail = new int[nodeCount];
+        this.output = new int[nodeCount];
+        output[0] = -1;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int[] edge : children.get(node)) {
+                int child = edge[1];
+                fail[child] = node == 0 ? 0 : next(fail[node], edge[0]);
+                output[child] = nodeScores.get(child) != null ? child : output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Index of the word in bytes[start, start + length), or -1 if no entry contains it
+     */
+    public int word(byte[] bytes, int start, int length) {
+        int hash = hash(bytes, start, length);
+        int slot = hash & mask;
+        long entry;
+        while ((entry = table[slot]) != 0) {
+            // Only compare the bytes when the full hash matches
+            if ((int) (entry >>> 32) == hash && matches((int) entry - 1, bytes, start, length)) {
+                return (int) entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * The single-word entry for the word in bytes[start, start + length), or -1 if there is none
+     */
+    public int entry(byte[] bytes, int start, int length) {
+        int word = word(bytes, start, length);
+        if (word < 0) {
+            return -1;
+        }
+        int node = rootEdges[word];
+        return node != 0 && output[node] == node ? node : -1;
+    }
+
+    public int entry(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        return entry(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Score of an entry in the given dimension
+     */
+    public float score(int entry, int dimension) {
+        return scores[entry * dimensions + dimension];
+    }
+
+    /**
+     * Words in an entry
+     */
+    public int length(int entry) {
+        return depth[entry];
+    }
+
+    /**
+     * Score of the word in bytes[start, start + length) in the first dimension, or 0 if it is
+     * not in the lexicon
+     */
+    public float score(byte[] bytes, int start, int length) {
+        int entry = entry(bytes, start, length);
+        return entry >= 0 ? scores[entry * dimensions] : 0f;
+    }
+
+    public float score(Text word) {
+        return score(word.getBytes(), 0, word.getLength());
+    }
+
+    public float score(String word) {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        return score(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Number of entries, words and phrases
+     */
+    public int size() {
+        return size;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Words in the longest entry
+     */
+    public int maxPhraseLength() {
+        return maxDepth;
+    }
+
+    public Scanner newScanner() {
+        return new Scanner(this);
+    }
+
+    /**
+     * The node reached from the given node by the given word (-1 for a word in no entry),
+     * following failure links until an edge matches
+     */
+    private int next(int node, int word) {
+        if (word < 0) {
+            return 0;
+        }
+        while (node != 0) {
+            long key = (long) node << 32 | word;
+            int slot = edgeSlot(key);
+            long edgeKey;
+            while ((edgeKey = edgeKeys[slot]) != -1L) {
+                if (edgeKey == key) {
+                    return edgeTargets[slot];
+                }
+                slot = (slot + 1) & edgeMask;
+            }
+            node = fail[node];
+        }
+        return rootEdges[word];
+    }
+
+    private int edgeSlot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & edgeMask;
+    }
+
+    private boolean matches(int word, byte[] bytes, int start, int length) {
+        int wordStart = wordStarts[word];
+        if (wordStarts[word + 1] - wordStart != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (words[wordStart + i] != toLower(bytes[start + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Polynomial hash (as String.hashCode) over the ASCII-lowercased bytes, high bits folded in
+     */
+    private static int hash(byte[] bytes, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + toLower(bytes[i]);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * Finds the entries of a lexicon in a stream of tokens, leftmost-longest and without
+     * overlaps: where entries start at the same token the longest wins ("no fun" over "no"), and
+     * tokens inside a match start no other match.
+     *
+     * The tokens of one text are passed to add() in order and finish() ends the text; after
+     * each call the entries matched so far are taken with poll() until it returns -1. A match is
+     * only returned once no longer one starting at or before it can still appear, which takes at
+     * most maxPhraseLength() tokens; the candidates of those tokens are held in ring buffers, so
+     * scanning allocates nothing.
+     */
+    public static final class Scanner {
+        private final SentimentLexicon lexicon;
+        private final int[] longest;     // Per buffered token: words of the longest match starting there, 0 for none
+        private final int[] longestEntry;
+        private int[] matched;           // Entries returned by poll(), in text order
+        private int[] matchedStarts;     // Token each of them starts at
+        private int matchedCount;
+        private int matchedRead;
+        private int node;
+        private int position;            // Tokens added
+        private int resolved;            // Tokens before this one are matched or skipped
+
+        private Scanner(SentimentLexicon lexicon) {
+            this.lexicon = lexicon;
+            int window = lexicon.maxDepth + 1;
+            this.longest = new int[window];
+            this.longestEntry = new int[window];
+            this.matched = new int[window];
+            this.matchedStarts = new int[window];
+        }
+
+        /**
+         * Add the next token of the text, in bytes[start, start + length)
+         */
+        public void add(byte[] bytes, int start, int length) {
+            node = lexicon.next(node, lexicon.word(bytes, start, length));
+
+            // Every entry ending at this token is a candidate for the token it starts at
+            for (int entry = lexicon.output[node]; entry >= 0; entry = lexicon.output[lexicon.fail[entry]]) {
+                int words = lexicon.depth[entry];
+                int entryStart = position - words + 1;
+                if (entryStart >= resolved) {
+                    int slot = entryStart % longest.length;
+                    if (words > longest[slot]) {
+                        longest[slot] = words;
+                        longestEntry[slot] = entry;
+                    }
+                }
+            }
+            position++;
+
+            // No match can start before the earliest token of the current node any more
+            resolve(position - lexicon.depth[node]);
+        }
+
+        /**
+         * End the text: return the remaining matches and start over
+         */
+        public void finish() {
+            resolve(position);
+            node = 0;
+            position = 0;
+            resolved = 0;
+        }
+
+        /**
+         * Forget the current text, matched or not
+         */
+        public void reset() {
+            Arrays.fill(longest, 0);
+            matchedCount = 0;
+            matchedRead = 0;
+            node = 0;
+            position = 0;
+            resolved = 0;
+        }
+
+        /**
+         * The next matched entry, or -1 when there is none until more tokens are added
+         */
+        public int poll() {
+            if (matchedRead < matchedCount) {
+                return matched[matchedRead++];
+            }
+            matchedCount = 0;
+            matchedRead = 0;
+            return -1;
+        }
+
+        /**
+         * Index in the text of the first token of the entry last returned by poll()
+         */
+        public int start() {
+            return matchedStarts[matchedRead - 1];
+        }
+
+        private void resolve(int limit) {
+            while (resolved < limit) {
+                int slot = resolved % longest.length;
+                int words = longest[slot];
+                if (words == 0) {
+                    resolved++;
+                    continue;
+                }
+
+                // Take the longest match starting here; the tokens it covers start no other
+                if (matchedCount == matched.length) {
+                    matched = Arrays.copyOf(matched, matched.length * 2);
+                    matchedStarts = Arrays.copyOf(matchedStarts, matched.length);
+                }
+                matchedStarts[matchedCount] = resolved;
+                matched[matchedCount++] = longestEntry[slot];
+                for (int i = resolved; i < resolved + words; i++) {
+                    longest[i % longest.length] = 0;
+                }
+                resolved += words;
+            }
+        }
+    }
+
+    /**
+     * Collects entries and their scores in each dimension; an entry added twice to a dimension
+     * keeps the last score. Entries of several whitespace-separated words are phrases.
+     */
+    public static class Builder {
+        private final Map<String, float[]> entries = new LinkedHashMap<>();
+        private final int dimensions;
+
+        public Builder() {
+            this(1);
+        }
+
+        public Builder(int dimensions) {
+            if (dimensions < 1) {
+                throw new IllegalArgumentException("A lexicon needs at least one dimension: " + dimensions);
+            }
+            this.dimensions = dimensions;
+        }
+
+        public Builder put(String word, double score) {
+            return put(word, 0, score);
+        }
+
+        public Builder put(String word, int dimension, double score) {
+            String entry = word.trim().toLowerCase().replaceAll("\\s+", " ");
+            if (entry.isEmpty()) {
+                return this;
+            }
+            entries.computeIfAbsent(entry, e -> new float[dimensions])[dimension] = (float) score;
+            return this;
+        }
+
+        public SentimentLexicon build() {
+            return new SentimentLexicon(entries, dimensions);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package Task3;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import Common.ColumnarInputFormat;
+
+/**
+ * Reads SentimentScoreOutputFormat files as typed (bookID, year) -> score records.
+ * The key and value objects are reused between records.
+ */
+public class SentimentScoreInputFormat
+        extends ColumnarInputFormat<WordSentimentScoreMapper.BookKey, DoubleWritable> {
+
+    @Override
+    public RecordReader<WordSentimentScoreMapper.BookKey, DoubleWritable> createRecordReader(InputSplit split,
+            TaskAttemptContext context) {
+        return new Reader();
+    }
+
+    private static class Reader extends BlockReader<WordSentimentScoreMapper.BookKey, DoubleWritable> {
+        private double[] scores = new double[0];
+
+        private final WordSentimentScoreMapper.BookKey key = new WordSentimentScoreMapper.BookKey();
+        private final DoubleWritable value = new DoubleWritable();
+
+        Reader() {
+            super(SentimentScoreOutputFormat.FORMAT_NAME);
+        }
+
+        @Override
+        protected void readColumns(DataInputStream in, int records) throws IOException {
+            if (scores.length < records) {
+                scores = new double[records];
+            }
+            for (int i = 0; i < records; i++) {
+                scores[i] = in.readDouble();
+            }
+        }
+
+        @Override
+        protected void setRecord(int i, String bookId, int year) {
+            key.set(bookId, year);
+            value.set(scores[i]);
+        }
+
+        @Override
+        public WordSentimentScoreMapper.BookKey getCurrentKey() {
+            return key;
+        }
+
+        @Override
+        public DoubleWritable getCurrentValue() {
+            return value;
+        }
+    }
+}
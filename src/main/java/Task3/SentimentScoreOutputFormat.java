@@ -0,0 +1,54 @@
+package Task3;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.DoubleWritable;
+
+import Common.ColumnarOutputFormat;
+
+/**
+ * Columnar output of the sentiment scores: (bookID, year) -> score records stored as book ID
+ * runs, year differences and binary scores. Read with SentimentScoreInputFormat.
+ */
+public class SentimentScoreOutputFormat
+        extends ColumnarOutputFormat<WordSentimentScoreMapper.BookKey, DoubleWritable> {
+    public static final String FORMAT_NAME = "sentiment-score-1";
+
+    @Override
+    protected String formatName() {
+        return FORMAT_NAME;
+    }
+
+    @Override
+    protected BlockWriter<WordSentimentScoreMapper.BookKey, DoubleWritable> createWriter(DataOutputStream out,
+            Configuration conf) {
+        return new Writer(out, conf);
+    }
+
+    private static class Writer extends BlockWriter<WordSentimentScoreMapper.BookKey, DoubleWritable> {
+        private final DataOutputBuffer scores = new DataOutputBuffer();
+
+        Writer(DataOutputStream out, Configuration conf) {
+            super(out, conf);
+        }
+
+        @Override
+        protected void append(WordSentimentScoreMapper.BookKey key, DoubleWritable value) throws IOException {
+            appendBookYear(key.getBookId(), key.getYear());
+            scores.writeDouble(value.get());
+        }
+
+        @Override
+        protected void writeColumns(DataOutputStream out) throws IOException {
+            out.write(scores.getData(), 0, scores.getLength());
+        }
+
+        @Override
+        protected void resetColumns() {
+            scores.reset();
+        }
+    }
+}
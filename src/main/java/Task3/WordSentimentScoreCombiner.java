@@ -0,0 +1,33 @@
+package Task3;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner for sentiment scoring.
+ *
+ * Input: Key-value pairs where key is (bookID, year) and values are partial sentiment aggregates
+ * Output: The same key with the partial aggregates merged
+ *
+ * WordSentimentScoreReducer cannot be used as the combiner because it emits the final
+ * score as a DoubleWritable rather than (BookKey, SentimentAggregate).
+ */
+public class WordSentimentScoreCombiner extends Reducer<WordSentimentScoreMapper.BookKey, SentimentAggregate,
+        WordSentimentScoreMapper.BookKey, SentimentAggregate> {
+
+    private final SentimentAggregate merged = new SentimentAggregate();
+
+    @Override
+    public void reduce(WordSentimentScoreMapper.BookKey key, Iterable<SentimentAggregate> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Merge the partial aggregates for this book and year
+        merged.clear();
+        for (SentimentAggregate val : values) {
+            merged.merge(val);
+        }
+
+        context.write(key, merged);
+    }
+}
@@ -12,6 +12,10 @@ import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import Task2.LemmaFrequencyInputFormat;
+import Task3.SentimentAggregate;
+import Task3.SentimentScoreOutputFormat;
+import Task3.WordSentimentScoreCombiner;
 import Task3.WordSentimentScoreMapper;
 import Task3.WordSentimentScoreReducer;
 
@@ -19,16 +23,26 @@ import Task3.WordSentimentScoreReducer;
  * Driver for the Sentiment Scoring MapReduce job.
  * 
  * This job:
- * 1. Takes output from Task 1 or Task 2
+ * 1. Takes output from Task 1 (the cleaned text of each book, scored word by word) or Task 2
  * 2. Assigns sentiment scores to texts by matching words to a sentiment lexicon
  * 3. Aggregates scores for each book and year
+ *
+ * -D sentiment.input.format=lemma reads columnar Task 2 output (LemmaFrequencyInputFormat)
+ * instead of text, and -D sentiment.output.format=columnar writes the scores with
+ * SentimentScoreOutputFormat (compressed) instead of as text. On Task 2 output,
+ * -D sentiment.weight.frequency=true counts each lemma's score as often as the lemma occurred.
+ *
+ * To score against several lexicons in one pass, name them in -D sentiment.lexicons and pass
+ * their paths comma separated, e.g. -D sentiment.lexicons=afinn.txt,emotion.txt with
+ * hdfs:///lexicons/afinn.txt,hdfs:///lexicons/emotion.txt; each book then gets one score per
+ * lexicon, written as text.
  */
 public class WordSentimentScoreDriver extends Configured implements Tool {
 
     @Override
     public int run(String[] args) throws Exception {
         if (args.length < 2 || args.length > 3) {
-            System.err.println("Usage: WordSentimentScoreDriver <input path> <output path> [lexicon path]");
+            System.err.println("Usage: WordSentimentScoreDriver <input path> <output path> [lexicon path[,lexicon path...]]");
             System.err.println("Example: WordSentimentScoreDriver /output/part-r-00000 /output-sentiment [hdfs:///lexicons/afinn.txt]");
             return -1;
         }
@@ -40,21 +54,46 @@ public class WordSentimentScoreDriver extends Configured implements Tool {
         // Set the driver class
         job.setJarByClass(WordSentimentScoreDriver.class);
         
-        // Set mapper and reducer classes
+        // Set mapper, combiner and reducer classes
         job.setMapperClass(WordSentimentScoreMapper.class);
+        job.setCombinerClass(WordSentimentScoreCombiner.class);
         job.setReducerClass(WordSentimentScoreReducer.class);
         
         // Set map output key and value classes
         job.setMapOutputKeyClass(WordSentimentScoreMapper.BookKey.class);
-        job.setMapOutputValueClass(DoubleWritable.class);
+        job.setMapOutputValueClass(SentimentAggregate.class);
         
         // Set final output key and value classes
-        job.setOutputKeyClass(Text.class);
-        job.setOutputValueClass(DoubleWritable.class);
+        job.setOutputKeyClass(WordSentimentScoreMapper.BookKey.class);
+        // More than one lexicon: one score each, as text
+        int lexicons = WordSentimentScoreMapper.lexiconNames(conf).length;
+        job.setOutputValueClass(lexicons > 1 ? Text.class : DoubleWritable.class);
         
-        // Add lexicon file to distributed cache if provided
+        // Set the input format: text lines (default) or columnar Task 2 output
+        String inputFormat = conf.get("sentiment.input.format", "text");
+        if (inputFormat.equals("lemma")) {
+            job.setInputFormatClass(LemmaFrequencyInputFormat.class);
+        } else if (!inputFormat.equals("text")) {
+            throw new IllegalArgumentException("sentiment.input.format must be text or lemma: " + inputFormat);
+        }
+        
+        // Set the output format: text lines (default) or compressed columns
+        String outputFormat = conf.get("sentiment.output.format", "text");
+        if (outputFormat.equals("columnar")) {
+            if (lexicons > 1) {
+                throw new IllegalArgumentException("sentiment.output.format=columnar holds one score per book, not one per lexicon");
+            }
+            job.setOutputFormatClass(SentimentScoreOutputFormat.class);
+            FileOutputFormat.setCompressOutput(job, true);
+        } else if (!outputFormat.equals("text")) {
+            throw new IllegalArgumentException("sentiment.output.format must be text or columnar: " + outputFormat);
+        }
+        
+        // Add lexicon files to distributed cache if provided
         if (args.length == 3) {
-            job.addCacheFile(new Path(args[2]).toUri());
+            for (String lexiconPath : args[2].split(",")) {
+                job.addCacheFile(new Path(lexiconPath.trim()).toUri());
+            }
         }
         
         // Set input and output paths
@@ -5,26 +5,87 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import Common.SampledLog;
+import Task2.WordFreqLemmatizationMapper;
 
 /**
  * Mapper for sentiment scoring of books.
  * 
- * Input: Output from Task 1 or Task 2
- * Output: Key-value pairs where key is (bookID, year) and value is sentiment score
+ * Input: Output from Task 1 or Task 2 (text lines, SequenceFile records of either, or typed
+ *        (bookID, lemma, year) -> frequency records from LemmaFrequencyInputFormat, which
+ *        are scored without any parsing). Task 1 records ("bookId,title,year [tab] text", with
+ *        a segment number column when segmented) are told from Task 2 ones by the comma of
+ *        their metadata, and are scored on their text.
+ * Output: Key-value pairs where key is (bookID, year) and value is a SentimentAggregate of the
+ *         sentiment words found (sum of scores, count, positive and negative counts)
+ *
+ * With sentiment.inmapper.combine=true (default) aggregates are merged per (bookID, year) inside
+ * the mapper and written in cleanup, or earlier once sentiment.inmapper.max.entries keys are
+ * held, so a task emits about one record per book and year. Otherwise one aggregate is emitted
+ * per input record and merged by WordSentimentScoreCombiner.
+ *
+ * Task 2 records hold one distinct lemma of a (bookID, year) with its frequency. By default the
+ * lemma counts once however often it occurred; with sentiment.weight.frequency=true its score
+ * is counted frequency times, so the book is scored from its whole vocabulary with a single
+ * lexicon lookup per distinct lemma. Task 1 text is scored token by token either way.
+ *
+ * sentiment.lexicons names the lexicons to score against, comma separated (default afinn.txt);
+ * every distributed cache file whose name ends with one of them is loaded into its dimension of
+ * one merged SentimentLexicon, so each token is looked up once however many lexicons there are,
+ * and one vector-valued SentimentAggregate per (bookID, year) carries all their scores.
+ *
+ * Lexicon entries of several words ("does not work", "no fun") are matched as phrases: the
+ * tokens of a text are fed to a SentimentLexicon.Scanner, which finds single words and phrases
+ * in one pass, the longest entry winning where several start at the same token.
+ *
+ * With sentiment.modifiers=true the text of a record is scored with negations and intensifiers:
+ * a sentiment word or phrase preceded within sentiment.modifiers.window tokens (default 3) by a
+ * negator ("not", "never", "dont"...) has its score multiplied by sentiment.negation.scalar
+ * (default -0.74, as in VADER), and by a booster ("very", "extremely") or dampener ("slightly",
+ * "barely") by its factor; the modifiers score nothing themselves. The factors of the last
+ * tokens are kept in a ring buffer, so this costs no second pass and no allocation per token.
+ * Task 2 records hold one lemma without context and are scored as before.
+ *
+ * Records read, skipped and failed are counted in SentimentCounters; set debug.sample.every
+ * to log a sample of them (see SampledLog).
  */
-public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentimentScoreMapper.BookKey, DoubleWritable> {
+public class WordSentimentScoreMapper extends Mapper<Object, Writable, WordSentimentScoreMapper.BookKey, SentimentAggregate> {
+    
+    /**
+     * Counters of the sentiment job
+     */
+    public enum SentimentCounters {
+        RECORDS_READ,              // Input records seen
+        SENTIMENT_WORDS,           // Words found in the lexicon
+        SKIPPED_MALFORMED,         // Records or keys without the expected fields
+        SKIPPED_BAD_YEAR,          // Year that is not a number
+        SKIPPED_UNKNOWN_FORMAT,    // Records in none of the accepted formats
+        RECORD_ERRORS,             // Records that failed with an exception
+        INVALID_LEXICON_ENTRIES,   // Lexicon lines with a score that is not a number
+        LEXICON_LOAD_ERRORS,       // Lexicon files that could not be read
+        MODIFIED_WORDS,            // Sentiment words negated, boosted or dampened by a modifier
+        IN_MAPPER_FLUSHES          // Flushes of the in-mapper aggregate table
+    }
     
     /**
      * Custom composite key class for book identification by ID and year
@@ -42,6 +103,11 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
             this.year = year;
         }
         
+        public void set(String bookId, int year) {
+            this.bookId = bookId;
+            this.year = year;
+        }
+        
         @Override
         public void write(java.io.DataOutput out) throws IOException {
             WritableUtils.writeString(out, bookId);
@@ -90,39 +156,172 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
         public int getYear() {
             return year;
         }
+
+        /**
+         * Raw comparator that orders serialized keys without deserializing them.
+         * Layout: [int length][bookId UTF-8][int year]
+         */
+        public static class Comparator extends WritableComparator {
+            public Comparator() {
+                super(BookKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                // Compare bookId bytes
+                int bookLen1 = Math.max(readInt(b1, s1), 0);
+                int bookLen2 = Math.max(readInt(b2, s2), 0);
+                int cmp = compareBytes(b1, s1 + 4, bookLen1, b2, s2 + 4, bookLen2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Compare year
+                return Integer.compare(readInt(b1, s1 + 4 + bookLen1), readInt(b2, s2 + 4 + bookLen2));
+            }
+        }
+
+        static {
+            // Register the raw comparator so the shuffle sort uses it
+            WritableComparator.define(BookKey.class, new Comparator());
+        }
     }
     
-    private Map<String, Double> sentimentLexicon = new HashMap<>();
+    private static final Logger LOG = LoggerFactory.getLogger(WordSentimentScoreMapper.class);
+    
+    // Lexicons are immutable, so tasks run in a reused JVM share the one already built
+    private static final Map<String, SentimentLexicon> SHARED_LEXICONS = new HashMap<>();
+    private static final String BUILT_IN = "built-in";
+    
+    /**
+     * The lexicons named by sentiment.lexicons, one score dimension each, in order
+     */
+    public static String[] lexiconNames(Configuration conf) {
+        String[] names = conf.getTrimmedStrings("sentiment.lexicons", "afinn.txt");
+        if (names.length == 0) {
+            throw new IllegalArgumentException("sentiment.lexicons must name at least one lexicon");
+        }
+        return names;
+    }
+    
+    private SentimentLexicon sentimentLexicon;
+    private SentimentLexicon.Scanner scanner;
+    private Counter modifiedWords;
+    
+    // Negation and intensifier state
+    private boolean modifiers = false;
+    private int modifierWindow = 3;
+    private SentimentLexicon modifierLexicon;
+    private float[] recentModifiers; // Factor of each recent token (0 for none), by token index
+    private int tokenIndex;
+    private SampledLog sampledLog;
+    private Counter sentimentWords;
+    
+    // In-mapper combining state
+    private boolean inMapperCombine = true;
+    private int maxEntries = 10000;
+    private boolean weightByFrequency = false;
+    private final Map<BookKey, SentimentAggregate> aggregates = new HashMap<>();
+    private final BookKey outputKey = new BookKey();
+    private SentimentAggregate recordAggregate;
+    private String recordBookId; // Book and year of the current Task 1 record
+    private int recordYear;
+    private int dimensions = 1;
     
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
         Configuration conf = context.getConfiguration();
+        sampledLog = new SampledLog(WordSentimentScoreMapper.class, conf);
+        sentimentWords = context.getCounter(SentimentCounters.SENTIMENT_WORDS);
+        modifiedWords = context.getCounter(SentimentCounters.MODIFIED_WORDS);
         
-        // Load the sentiment lexicon from distributed cache
+        // Get configuration for in-mapper combining
+        inMapperCombine = conf.getBoolean("sentiment.inmapper.combine", true);
+        maxEntries = conf.getInt("sentiment.inmapper.max.entries", 10000);
+        
+        // Count each Task 2 lemma as often as it occurred instead of once
+        weightByFrequency = conf.getBoolean("sentiment.weight.frequency", false);
+        
+        // Get configuration for negation and intensifier rules
+        modifiers = conf.getBoolean("sentiment.modifiers", false);
+        modifierWindow = conf.getInt("sentiment.modifiers.window", 3);
+        if (modifiers && modifierWindow < 1) {
+            throw new IllegalArgumentException("sentiment.modifiers.window must be at least 1: " + modifierWindow);
+        }
+        modifierLexicon = modifierLexicon(conf.getFloat("sentiment.negation.scalar", -0.74f));
+        
+        // One score dimension per lexicon
+        String[] lexiconNames = lexiconNames(conf);
+        dimensions = lexiconNames.length;
+        recordAggregate = new SentimentAggregate(dimensions);
+        
+        // Load the sentiment lexicons from distributed cache
         try {
-            // The lexicon file should be added to the distributed cache
+            // The lexicon files should be added to the distributed cache
             URI[] cacheFiles = context.getCacheFiles();
+            List<List<URI>> lexiconFiles = new ArrayList<>();
+            for (int d = 0; d < dimensions; d++) {
+                lexiconFiles.add(new ArrayList<URI>());
+            }
             if (cacheFiles != null && cacheFiles.length > 0) {
                 for (URI cacheFile : cacheFiles) {
-                    if (cacheFile.getPath().endsWith("afinn.txt")) {
-                        loadAfinnLexicon(cacheFile, conf);
+                    for (int d = 0; d < dimensions; d++) {
+                        if (cacheFile.getPath().endsWith(lexiconNames[d])) {
+                            lexiconFiles.get(d).add(cacheFile);
+                        }
                     }
                 }
+                sentimentLexicon = sharedLexicon(lexiconFiles.toString(), lexiconFiles, context);
             } else {
-                // If no cache files available, load a minimal built-in lexicon
-                loadMinimalLexicon();
+                // If no cache files available, use a minimal built-in lexicon as the first one
+                sentimentLexicon = sharedLexicon(BUILT_IN + lexiconFiles, lexiconFiles, context);
             }
         } catch (Exception e) {
-            System.err.println("Error loading sentiment lexicon: " + e.getMessage());
+            LOG.warn("Error loading sentiment lexicons, using the built-in one", e);
+            context.getCounter(SentimentCounters.LEXICON_LOAD_ERRORS).increment(1);
             // Fall back to minimal lexicon
-            loadMinimalLexicon();
+            List<List<URI>> noFiles = new ArrayList<>();
+            for (int d = 0; d < dimensions; d++) {
+                noFiles.add(Collections.<URI>emptyList());
+            }
+            sentimentLexicon = sharedLexicon(BUILT_IN + noFiles, noFiles, context);
+        }
+        scanner = sentimentLexicon.newScanner();
+        
+        // Room for the window before the oldest match the scanner may still return
+        recentModifiers = new float[modifierWindow + sentimentLexicon.maxPhraseLength() + 1];
+    }
+    
+    /**
+     * The lexicon built from the given files per dimension (the built-in one as the first
+     * dimension when the source says so), building it on first use in this JVM
+     */
+    private SentimentLexicon sharedLexicon(String source, List<List<URI>> lexiconFiles, Context context) throws IOException {
+        synchronized (SHARED_LEXICONS) {
+            SentimentLexicon lexicon = SHARED_LEXICONS.get(source);
+            if (lexicon == null) {
+                SentimentLexicon.Builder builder = new SentimentLexicon.Builder(lexiconFiles.size());
+                if (source.startsWith(BUILT_IN)) {
+                    loadMinimalLexicon(builder);
+                }
+                for (int d = 0; d < lexiconFiles.size(); d++) {
+                    for (URI lexiconFile : lexiconFiles.get(d)) {
+                        loadAfinnLexicon(lexiconFile, d, builder, context);
+                    }
+                }
+                lexicon = builder.build();
+                SHARED_LEXICONS.put(source, lexicon);
+            }
+            return lexicon;
         }
     }
     
     /**
-     * Load the AFINN sentiment lexicon from a file in distributed cache
+     * Load a sentiment lexicon in AFINN format (word [tab] score) from a file in distributed
+     * cache into the given dimension
      */
-    private void loadAfinnLexicon(URI lexiconFileUri, Configuration conf) throws IOException {
+    private void loadAfinnLexicon(URI lexiconFileUri, int dimension, SentimentLexicon.Builder builder, Context context) throws IOException {
+        Configuration conf = context.getConfiguration();
         try (BufferedReader reader = new BufferedReader(
                 new InputStreamReader(FileSystem.get(lexiconFileUri, conf).open(new Path(lexiconFileUri))))) {
             String line;
@@ -130,12 +329,11 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
                 // AFINN format: word\tscore
                 String[] parts = line.split("\t");
                 if (parts.length == 2) {
-                    String word = parts[0].trim().toLowerCase();
+                    String word = parts[0].trim();
                     try {
-                        double score = Double.parseDouble(parts[1].trim());
-                        sentimentLexicon.put(word, score);
+                        builder.put(word, dimension, Double.parseDouble(parts[1].trim()));
                     } catch (NumberFormatException e) {
-                        System.err.println("Invalid score format for word: " + word);
+                        sampledLog.event(context, SentimentCounters.INVALID_LEXICON_ENTRIES, "{}", line);
                     }
                 }
             }
@@ -145,56 +343,153 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
     /**
      * Load a minimal built-in sentiment lexicon for testing
      */
-    private void loadMinimalLexicon() {
+    private static void loadMinimalLexicon(SentimentLexicon.Builder builder) {
         // Common positive words
-        sentimentLexicon.put("good", 2.0);
-        sentimentLexicon.put("great", 3.0);
-        sentimentLexicon.put("excellent", 3.0);
-        sentimentLexicon.put("happy", 2.0);
-        sentimentLexicon.put("love", 3.0);
-        sentimentLexicon.put("wonderful", 3.0);
-        sentimentLexicon.put("joy", 2.0);
-        sentimentLexicon.put("success", 2.0);
-        sentimentLexicon.put("beautiful", 2.0);
-        sentimentLexicon.put("best", 3.0);
+        builder.put("good", 2.0);
+        builder.put("great", 3.0);
+        builder.put("excellent", 3.0);
+        builder.put("happy", 2.0);
+        builder.put("love", 3.0);
+        builder.put("wonderful", 3.0);
+        builder.put("joy", 2.0);
+        builder.put("success", 2.0);
+        builder.put("beautiful", 2.0);
+        builder.put("best", 3.0);
         
         // Common negative words
-        sentimentLexicon.put("bad", -2.0);
-        sentimentLexicon.put("awful", -3.0);
-        sentimentLexicon.put("terrible", -3.0);
-        sentimentLexicon.put("sad", -2.0);
-        sentimentLexicon.put("hate", -3.0);
-        sentimentLexicon.put("poor", -2.0);
-        sentimentLexicon.put("fail", -2.0);
-        sentimentLexicon.put("failure", -2.0);
-        sentimentLexicon.put("worst", -3.0);
-        sentimentLexicon.put("angry", -2.0);
+        builder.put("bad", -2.0);
+        builder.put("awful", -3.0);
+        builder.put("terrible", -3.0);
+        builder.put("sad", -2.0);
+        builder.put("hate", -3.0);
+        builder.put("poor", -2.0);
+        builder.put("fail", -2.0);
+        builder.put("failure", -2.0);
+        builder.put("worst", -3.0);
+        builder.put("angry", -2.0);
         
         // Neutral modifiers
-        sentimentLexicon.put("very", 0.5);
-        sentimentLexicon.put("not", -1.0);
-        sentimentLexicon.put("no", -1.0);
+        builder.put("very", 0.5);
+        builder.put("not", -1.0);
+        builder.put("no", -1.0);
     }
     
     /**
-     * Get sentiment score for a word from the lexicon
+     * The words that modify the score of the sentiment words after them, with their factor
      */
-    private double getSentimentScore(String word) {
-        word = word.toLowerCase();
-        return sentimentLexicon.getOrDefault(word, 0.0);
+    private static SentimentLexicon modifierLexicon(double negation) {
+        SentimentLexicon.Builder builder = new SentimentLexicon.Builder();
+        
+        // Negators flip and weaken; Task 1 text has no apostrophes, so both spellings are listed
+        for (String negator : new String[] {"not", "no", "never", "none", "nobody", "nothing", "neither",
+                "nor", "nowhere", "cannot", "without", "aint", "arent", "cant", "couldnt", "didnt", "doesnt",
+                "dont", "hadnt", "hasnt", "havent", "isnt", "mustnt", "neednt", "shant", "shouldnt", "wasnt",
+                "werent", "wont", "wouldnt", "ain't", "aren't", "can't", "couldn't", "didn't", "doesn't",
+                "don't", "hadn't", "hasn't", "haven't", "isn't", "mustn't", "needn't", "shan't", "shouldn't",
+                "wasn't", "weren't", "won't", "wouldn't"}) {
+            builder.put(negator, negation);
+        }
+        
+        // Boosters
+        builder.put("very", 1.3);
+        builder.put("really", 1.3);
+        builder.put("so", 1.2);
+        builder.put("too", 1.2);
+        builder.put("most", 1.3);
+        builder.put("highly", 1.3);
+        builder.put("absolutely", 1.5);
+        builder.put("completely", 1.5);
+        builder.put("totally", 1.5);
+        builder.put("utterly", 1.5);
+        builder.put("extremely", 1.5);
+        builder.put("incredibly", 1.5);
+        builder.put("exceedingly", 1.5);
+        
+        // Dampeners
+        builder.put("slightly", 0.7);
+        builder.put("somewhat", 0.7);
+        builder.put("partly", 0.7);
+        builder.put("rather", 0.8);
+        builder.put("barely", 0.5);
+        builder.put("hardly", 0.5);
+        builder.put("scarcely", 0.5);
+        return builder.build();
     }
     
     @Override
-    public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
+    public void map(Object key, Writable value, Context context) throws IOException, InterruptedException {
+        context.getCounter(SentimentCounters.RECORDS_READ).increment(1);
         try {
-            String line = value.toString();
+            // Typed Task 2 record: the lemma is the text to score, nothing to parse
+            if (key instanceof WordFreqLemmatizationMapper.LemmaKey) {
+                WordFreqLemmatizationMapper.LemmaKey lemmaKey = (WordFreqLemmatizationMapper.LemmaKey) key;
+                recordAggregate.clear();
+                int entry = sentimentLexicon.entry(lemmaKey.getLemma());
+                if (entry >= 0) {
+                    score(entry, weightByFrequency ? ((IntWritable) value).get() : 1, 1f);
+                }
+                emit(lemmaKey.getBookId(), lemmaKey.getYear(), context);
+                return;
+            }
+            
+            Text text = (Text) value;
             String bookId;
             int year;
-            String text;
+            
+            // The text to score is looked up in place, as a byte range of the value; the format is
+            // told from its bytes too, so a Task 1 record (possibly a whole book) is never decoded
+            byte[] bytes = text.getBytes();
+            int length = text.getLength();
+            int firstTab = indexOf(bytes, 0, length, '\t'); // length if there is none
+            int textStart;
+            int textEnd;
+            int occurrences = 1; // Times each sentiment word of the text is counted
+            boolean withModifiers = false; // Whether negations and intensifiers apply to the text
             
             // Process input based on expected format
+            // Check if the input is a Task 1 SequenceFile record from the pipeline: bookId,title,year
+            // (plus [tab] segmentNo when segmented) -> cleaned text. Task 2 book IDs have no comma.
+            Text keyText = key instanceof Text ? (Text) key : null;
+            int metadataEnd = keyText != null ? indexOf(keyText.getBytes(), 0, keyText.getLength(), '\t') : 0;
+            if (keyText != null && isTask1Metadata(keyText.getBytes(), metadataEnd)) {
+                if (!parseTask1Metadata(Text.decode(keyText.getBytes(), 0, metadataEnd), value, context)) {
+                    return;
+                }
+                bookId = recordBookId;
+                year = recordYear;
+                textStart = 0;
+                textEnd = length;
+                withModifiers = modifiers;
+            }
+            // Check if the input is a Task 2 SequenceFile record: bookId -> lemma [tab] year [tab] frequency
+            else if (keyText != null) {
+                String[] parts = text.toString().split("\t");
+                if (parts.length < 2) {
+                    // Skip malformed records
+                    sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+                    return;
+                }
+                bookId = keyText.toString().trim();
+                try {
+                    year = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException e) {
+                    // Skip records with invalid years
+                    sampledLog.event(context, SentimentCounters.SKIPPED_BAD_YEAR, "{}", value);
+                    return;
+                }
+                if (weightByFrequency) {
+                    occurrences = parseFrequency(parts, 2);
+                    if (occurrences < 0) {
+                        sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+                        return;
+                    }
+                }
+                textStart = 0;
+                textEnd = firstTab;
+            }
             // Check if the input is from Task 1 in format: (bookId,year) cleanedText
-            if (line.startsWith("(") && line.contains(")")) {
+            else if (length > 0 && bytes[0] == '(' && indexOf(bytes, 0, length, ')') < length) {
+                String line = text.toString();
                 int openBracketIndex = line.indexOf('(');
                 int closeBracketIndex = line.indexOf(')');
                 
@@ -202,7 +497,9 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
                 String[] keyParts = keyPart.split(",");
                 
                 if (keyParts.length != 2) {
-                    return; // Skip malformed keys
+                    // Skip malformed keys
+                    sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+                    return;
                 }
                 
                 bookId = keyParts[0].trim();
@@ -210,15 +507,32 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
                 try {
                     year = Integer.parseInt(keyParts[1].trim());
                 } catch (NumberFormatException e) {
-                    return; // Skip records with invalid years
+                    // Skip records with invalid years
+                    sampledLog.event(context, SentimentCounters.SKIPPED_BAD_YEAR, "{}", value);
+                    return;
                 }
                 
                 // Get text after closing bracket
-                text = line.substring(closeBracketIndex + 1).trim();
+                textStart = indexOf(bytes, 0, length, ')') + 1;
+                textEnd = length;
+                withModifiers = modifiers;
+            }
+            // Check if the input is a Task 1 line: bookId,title,year [tab] cleaned_text
+            //                                   or: bookId,title,year [tab] segmentNo [tab] cleaned_text
+            // (cleaned text never contains tabs)
+            else if (firstTab < length && isTask1Metadata(bytes, firstTab)) {
+                if (!parseTask1Metadata(Text.decode(bytes, 0, firstTab), value, context)) {
+                    return;
+                }
+                bookId = recordBookId;
+                year = recordYear;
+                textStart = lastIndexOf(bytes, length, '\t') + 1;
+                textEnd = length;
+                withModifiers = modifiers;
             }
             // Check if input is from Task 2 in format: bookId lemma year frequency
-            else if (line.contains("\t")) {
-                String[] parts = line.split("\t");
+            else if (firstTab < length) {
+                String[] parts = text.toString().split("\t");
                 if (parts.length >= 3) {
                     bookId = parts[0].trim();
                     
@@ -226,43 +540,231 @@ public class WordSentimentScoreMapper extends Mapper<Object, Text, WordSentiment
                         // The lemma is in parts[1], year in parts[2]
                         year = Integer.parseInt(parts[2].trim());
                         // For Task 2 output, we'll treat each lemma as the text
-                        text = parts[1].trim();
+                        textStart = firstTab + 1;
+                        textEnd = indexOf(bytes, textStart, length, '\t');
                     } catch (NumberFormatException e) {
-                        return; // Skip records with invalid years
+                        // Skip records with invalid years
+                        sampledLog.event(context, SentimentCounters.SKIPPED_BAD_YEAR, "{}", value);
+                        return;
+                    }
+                    if (weightByFrequency) {
+                        occurrences = parseFrequency(parts, 3);
+                        if (occurrences < 0) {
+                            sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+                            return;
+                        }
                     }
                 } else {
-                    return; // Skip malformed records
+                    // Skip malformed records
+                    sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+                    return;
                 }
             } else {
-                return; // Skip unrecognized format
+                // Skip unrecognized format
+                sampledLog.event(context, SentimentCounters.SKIPPED_UNKNOWN_FORMAT, "{}", value);
+                return;
             }
             
-            // Create key for output
-            BookKey outputKey = new BookKey(bookId, year);
+            // Aggregate the sentiment words and phrases of this record
+            recordAggregate.clear();
+            scanner.reset();
+            tokenIndex = 0;
             
-            // Calculate sentiment scores for all words in the text
-            double totalScore = 0.0;
-            
-            StringTokenizer tokenizer = new StringTokenizer(text);
-            while (tokenizer.hasMoreTokens()) {
-                String token = tokenizer.nextToken();
-                double score = getSentimentScore(token);
+            int tokenEnd = textStart;
+            while (tokenEnd < textEnd) {
+                // Find the next whitespace-separated token
+                int tokenStart = tokenEnd;
+                while (tokenStart < textEnd && isWhitespace(bytes[tokenStart])) {
+                    tokenStart++;
+                }
+                tokenEnd = tokenStart;
+                while (tokenEnd < textEnd && !isWhitespace(bytes[tokenEnd])) {
+                    tokenEnd++;
+                }
+                if (tokenEnd == tokenStart) {
+                    break;
+                }
                 
-                if (score != 0.0) {
-                    // Emit individual token scores
-                    context.write(outputKey, new DoubleWritable(score));
-                    totalScore += score;
+                if (withModifiers) {
+                    recentModifiers[tokenIndex % recentModifiers.length] =
+                            modifierLexicon.score(bytes, tokenStart, tokenEnd - tokenStart);
+                }
+                tokenIndex++;
+                
+                scanner.add(bytes, tokenStart, tokenEnd - tokenStart);
+                for (int entry = scanner.poll(); entry >= 0; entry = scanner.poll()) {
+                    scoreMatch(entry, occurrences, withModifiers);
                 }
             }
-            
-            // Also emit the total score for this text if any sentiment words were found
-            if (totalScore != 0.0) {
-                context.write(outputKey, new DoubleWritable(totalScore));
+            scanner.finish();
+            for (int entry = scanner.poll(); entry >= 0; entry = scanner.poll()) {
+                scoreMatch(entry, occurrences, withModifiers);
             }
             
+            emit(bookId, year, context);
+            
         } catch (Exception e) {
-            System.err.println("Error processing input: " + value);
-            e.printStackTrace();
+            // Count the error and continue processing other records
+            sampledLog.error(context, SentimentCounters.RECORD_ERRORS, value, e);
+        }
+    }
+    
+    /**
+     * Score an entry the scanner just matched in the text, applying the modifiers before it
+     */
+    private void scoreMatch(int entry, int occurrences, boolean withModifiers) {
+        if (!withModifiers) {
+            score(entry, occurrences, 1f);
+            return;
+        }
+        
+        int start = scanner.start();
+        if (sentimentLexicon.length(entry) == 1 && recentModifiers[start % recentModifiers.length] != 0f) {
+            return; // A modifier only changes the words after it
+        }
+        float factor = 1f;
+        for (int i = Math.max(0, start - modifierWindow); i < start; i++) {
+            float modifier = recentModifiers[i % recentModifiers.length];
+            if (modifier != 0f) {
+                factor *= modifier;
+            }
+        }
+        if (factor != 1f) {
+            modifiedWords.increment(occurrences);
+        }
+        score(entry, occurrences, factor);
+    }
+    
+    /**
+     * Add the scores of a lexicon entry in every dimension, times the given factor, to recordAggregate
+     */
+    private void score(int entry, int occurrences, float factor) {
+        boolean found = false;
+        for (int d = 0; d < dimensions; d++) {
+            float score = sentimentLexicon.score(entry, d);
+            if (score != 0f) {
+                recordAggregate.add(d, score * factor, occurrences);
+                found = true;
+            }
+        }
+        if (found) {
+            sentimentWords.increment(occurrences);
+        }
+    }
+    
+    /**
+     * The frequency in the given field of a Task 2 record, or -1 if it is missing or not a count
+     */
+    private static int parseFrequency(String[] parts, int field) {
+        if (parts.length <= field) {
+            return -1;
+        }
+        try {
+            int frequency = Integer.parseInt(parts[field].trim());
+            return frequency > 0 ? frequency : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Emit the sentiment words of the record in recordAggregate, either into the in-mapper
+     * table or directly
+     */
+    private void emit(String bookId, int year, Context context) throws IOException, InterruptedException {
+        if (recordAggregate.isEmpty()) {
+            return; // No sentiment words in this record
+        }
+        
+        if (!inMapperCombine) {
+            outputKey.set(bookId, year);
+            context.write(outputKey, recordAggregate);
+            return;
         }
+        
+        // Merge into the aggregate of this book and year
+        outputKey.set(bookId, year);
+        SentimentAggregate aggregate = aggregates.get(outputKey);
+        if (aggregate == null) {
+            if (aggregates.size() >= maxEntries) {
+                // Table is full: flush it and start over
+                flush(context);
+            }
+            aggregate = new SentimentAggregate(dimensions);
+            aggregates.put(new BookKey(bookId, year), aggregate);
+        }
+        aggregate.merge(recordAggregate);
+    }
+    
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flush(context);
+    }
+    
+    private void flush(Context context) throws IOException, InterruptedException {
+        if (aggregates.isEmpty()) {
+            return;
+        }
+        context.getCounter(SentimentCounters.IN_MAPPER_FLUSHES).increment(1);
+        for (Map.Entry<BookKey, SentimentAggregate> entry : aggregates.entrySet()) {
+            context.write(entry.getKey(), entry.getValue());
+        }
+        aggregates.clear();
+    }
+    
+    /**
+     * Whether the first "end" bytes of a record are Task 1 metadata (bookId,title,year), told
+     * from a Task 2 book ID by the comma
+     */
+    private static boolean isTask1Metadata(byte[] bytes, int end) {
+        return indexOf(bytes, 0, end, ',') < end;
+    }
+    
+    /**
+     * Read the book ID and year of Task 1 metadata into recordBookId and recordYear, counting
+     * the record as skipped if they are missing
+     */
+    private boolean parseTask1Metadata(String metaData, Writable value, Context context) {
+        // Book ID is everything before the first comma (older Task 1 output has a trailing "]"),
+        // year is everything after the last comma
+        int firstComma = metaData.indexOf(',');
+        int lastComma = metaData.lastIndexOf(',');
+        if (firstComma < 0 || lastComma == firstComma) {
+            sampledLog.event(context, SentimentCounters.SKIPPED_MALFORMED, "{}", value);
+            return false;
+        }
+        try {
+            recordYear = Integer.parseInt(metaData.substring(lastComma + 1).trim());
+        } catch (NumberFormatException e) {
+            sampledLog.event(context, SentimentCounters.SKIPPED_BAD_YEAR, "{}", value);
+            return false;
+        }
+        recordBookId = metaData.substring(0, firstComma).replace("]", "").trim();
+        return true;
+    }
+    
+    private static int lastIndexOf(byte[] bytes, int to, char c) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int indexOf(byte[] bytes, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+    
+    /**
+     * The separators StringTokenizer splits on: space, tab, newline, carriage return, form feed
+     */
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
     }
-}
\ No newline at end of file
+}
@@ -4,37 +4,81 @@ import java.io.IOException;
 
 import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Reducer;
 
 /**
  * Reducer for aggregating sentiment scores for books.
- * 
- * Input: Key-value pairs where key is (bookID, year) and values are sentiment scores
- * Output: Each book (and its year) mapped to a cumulative sentiment score
+ *
+ * Input: Key-value pairs where key is (bookID, year) and values are partial sentiment aggregates
+ * Output: Each book (and its year) mapped to a cumulative sentiment score, written as text lines
+ *         (bookId,year) [tab] score by the default output format, or column by column with
+ *         SentimentScoreOutputFormat
+ *
+ * sentiment.output selects the score written:
+ *   total      - the score this job has always produced: every sentiment word counted once on
+ *                its own and once more in the total of its record, i.e. twice the sum (default)
+ *   sum        - the sum of the scores of all sentiment words
+ *   normalized - the mean score per sentiment word
+ *
+ * With more than one lexicon in sentiment.lexicons the value is Text instead of DoubleWritable:
+ * the score against each lexicon, in the order they are named, separated by tabs.
  */
-public class WordSentimentScoreReducer extends Reducer<WordSentimentScoreMapper.BookKey, DoubleWritable, Text, DoubleWritable> {
-    
+public class WordSentimentScoreReducer extends Reducer<WordSentimentScoreMapper.BookKey, SentimentAggregate,
+        WordSentimentScoreMapper.BookKey, Writable> {
+
+    private String outputMode = "total";
+    private int dimensions = 1;
+    private final SentimentAggregate merged = new SentimentAggregate();
+    private final DoubleWritable outputValue = new DoubleWritable();
+    private final Text outputScores = new Text();
+    private final StringBuilder scores = new StringBuilder();
+
     @Override
-    public void reduce(WordSentimentScoreMapper.BookKey key, Iterable<DoubleWritable> values, Context context) 
+    protected void setup(Context context) throws IOException, InterruptedException {
+        // Get configuration for the score to write
+        outputMode = context.getConfiguration().get("sentiment.output", "total");
+        if (!outputMode.equals("total") && !outputMode.equals("sum") && !outputMode.equals("normalized")) {
+            throw new IllegalArgumentException("sentiment.output must be total, sum or normalized: " + outputMode);
+        }
+        dimensions = WordSentimentScoreMapper.lexiconNames(context.getConfiguration()).length;
+    }
+
+    @Override
+    public void reduce(WordSentimentScoreMapper.BookKey key, Iterable<SentimentAggregate> values, Context context)
             throws IOException, InterruptedException {
-        
-        double totalScore = 0.0;
-        int count = 0;
-        
-        // Sum up all sentiment scores for this book and year
-        for (DoubleWritable val : values) {
-            totalScore += val.get();
-            count++;
+
+        // Merge all partial aggregates for this book and year
+        merged.clear();
+        for (SentimentAggregate val : values) {
+            merged.merge(val);
+        }
+
+        if (dimensions == 1) {
+            // Output the book key, printed as (bookId,year), and its sentiment score
+            outputValue.set(score(0));
+            context.write(key, outputValue);
+            return;
+        }
+
+        // One score per lexicon
+        scores.setLength(0);
+        for (int d = 0; d < dimensions; d++) {
+            if (d > 0) {
+                scores.append('\t');
+            }
+            scores.append(score(d));
+        }
+        outputScores.set(scores.toString());
+        context.write(key, outputScores);
+    }
+
+    private double score(int dimension) {
+        if (outputMode.equals("normalized")) {
+            return merged.getNormalized(dimension);
+        } else if (outputMode.equals("sum")) {
+            return merged.getSum(dimension);
         }
-        
-        // Normalize the score by the number of sentiment words (optional)
-        // Uncomment to use normalized score instead of total
-        // double normalizedScore = count > 0 ? totalScore / count : 0.0;
-        
-        // Output the book key and its sentiment score
-        Text outputKey = new Text(key.toString());
-        DoubleWritable outputValue = new DoubleWritable(totalScore);
-        
-        context.write(outputKey, outputValue);
+        return 2 * merged.getSum(dimension);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package Task4;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper over the per-book trend statistics kept by the incremental pipeline.
+ *
+ * Input: ((bookID, decade), TrendStats) SequenceFile records of the stored trend state
+ * Output: The book-level record if trend.include.book, and the same statistics under the
+ *         overall decade key if trend.include.overall
+ *
+ * Each score counts once towards its book and once towards its decade, so the statistics of
+ * an overall decade key are the merge of the statistics of its books, and the final trends
+ * can be rebuilt from the per-book state alone. Books listed in trend.state.drop.books are
+ * skipped, so the statistics of changed or removed books can be replaced.
+ */
+public class TrendStateMapper extends Mapper<WordTrendAnalysisMapper.TrendKey, TrendStats,
+        WordTrendAnalysisMapper.TrendKey, TrendStats> {
+
+    private boolean includeBookLevel = true;
+    private boolean includeOverallLevel = true;
+    private final Set<String> dropBooks = new HashSet<>();
+    private final WordTrendAnalysisMapper.TrendKey overallKey = new WordTrendAnalysisMapper.TrendKey();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+
+        // Get configuration for which levels to include
+        includeBookLevel = conf.getBoolean("trend.include.book", true);
+        includeOverallLevel = conf.getBoolean("trend.include.overall", true);
+
+        // Books whose stored statistics are out of date
+        dropBooks.addAll(conf.getTrimmedStringCollection("trend.state.drop.books"));
+    }
+
+    @Override
+    public void map(WordTrendAnalysisMapper.TrendKey key, TrendStats value, Context context)
+            throws IOException, InterruptedException {
+        if (key.isOverall() || dropBooks.contains(key.getBookId())) {
+            return;
+        }
+
+        if (includeBookLevel) {
+            context.write(key, value);
+        }
+
+        if (includeOverallLevel) {
+            overallKey.setOverall(key.getDecade());
+            context.write(overallKey, value);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package Task4;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Mergeable summary statistics of the scores under one TrendKey: count, sum, sum of squared
+ * deviations from the mean (M2), minimum and maximum.
+ *
+ * Merging two summaries gives the summary of all their scores, so averages, sums, variance
+ * and standard deviation can be computed from partial summaries built in the mapper and the
+ * combiner without shuffling the individual scores. M2 is updated with Welford's method and
+ * merged with the formula of Chan et al., which unlike sumOfSquares / count - mean^2 does not
+ * lose the variance to cancellation when the scores are large next to their spread.
+ */
+public class TrendStats implements Writable {
+    private long count;
+    private double sum;
+    private double m2; // Sum of squared deviations from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TrendStats() {
+    }
+
+    /**
+     * Add one score
+     */
+    public void add(double value) {
+        // Welford: the deviation from the old mean times the deviation from the new one
+        double delta = count > 0 ? value - sum / count : 0.0;
+        count++;
+        sum += value;
+        m2 += delta * (value - sum / count);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void merge(TrendStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count > 0) {
+            // Chan et al.: both M2s plus the spread between the two means
+            double delta = other.sum / other.count - sum / count;
+            m2 += other.m2 + delta * delta * ((double) count * other.count / (count + other.count));
+        } else {
+            m2 = other.m2;
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void clear() {
+        count = 0;
+        sum = 0.0;
+        m2 = 0.0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, count);
+        out.writeDouble(sum);
+        out.writeDouble(m2);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        count = WritableUtils.readVLong(in);
+        sum = in.readDouble();
+        m2 = in.readDouble();
+        min = in.readDouble();
+        max = in.readDouble();
+    }
+
+    // Getters
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count > 0 ? sum / count : 0.0;
+    }
+
+    /**
+     * Population variance of the scores, 0 when there are none
+     */
+    public double getVariance() {
+        return count > 0 ? m2 / count : 0.0;
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return count + "\t" + sum + "\t" + m2 + "\t" + min + "\t" + max;
+    }
+}
@@ -0,0 +1,34 @@
+package Task4;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner for trend analysis.
+ *
+ * Input: Key-value pairs where key is either (bookID, decade) or decade, and values are
+ *        partial TrendStats
+ * Output: The same key with the partial statistics merged
+ *
+ * WordTrendAnalysisReducer cannot be used as the combiner because it emits the final
+ * Text output rather than (TrendKey, TrendStats).
+ */
+public class WordTrendAnalysisCombiner extends Reducer<WordTrendAnalysisMapper.TrendKey, TrendStats,
+        WordTrendAnalysisMapper.TrendKey, TrendStats> {
+
+    private final TrendStats merged = new TrendStats();
+
+    @Override
+    public void reduce(WordTrendAnalysisMapper.TrendKey key, Iterable<TrendStats> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Merge the partial statistics for this key
+        merged.clear();
+        for (TrendStats val : values) {
+            merged.merge(val);
+        }
+
+        context.write(key, merged);
+    }
+}
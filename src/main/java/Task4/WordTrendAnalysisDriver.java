@@ -1,19 +1,36 @@
 package Task4;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
-import org.apache.hadoop.io.DoubleWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.InputSampler;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
 
+import Task2.LemmaFrequencyInputFormat;
+import Task3.SentimentScoreInputFormat;
+import Task4.TrendStats;
+import Task4.WordTrendAnalysisCombiner;
 import Task4.WordTrendAnalysisMapper;
 import Task4.WordTrendAnalysisReducer;
+import Task4.WordTrendMergeMapper;
 
 /**
  * Driver for the Trend Analysis and Aggregation MapReduce job.
@@ -22,6 +39,15 @@ import Task4.WordTrendAnalysisReducer;
  * 1. Takes sentiment scores and word frequency data from previous tasks
  * 2. Aggregates data by decade, with options for book-level and overall analysis
  * 3. Produces a consolidated dataset of trends over time
+ *
+ * With -salts=N above 1, or with -sorted=true and more than one reducer, it runs in two phases:
+ * the first job builds partial statistics with salted overall keys and writes them as
+ * SequenceFiles to <output>_partials, the second merges them with WordTrendMergeMapper and
+ * writes the final text output. With -sorted=true the second job uses a TotalOrderPartitioner
+ * sampled from the partial statistics, so the part-r-* files in order are sorted by decade.
+ *
+ * -D trend.input.format=sentiment or lemma reads the columnar output of Task 3 or Task 2
+ * (SentimentScoreInputFormat, LemmaFrequencyInputFormat) instead of text.
  */
 public class WordTrendAnalysisDriver extends Configured implements Tool {
 
@@ -33,6 +59,9 @@ public class WordTrendAnalysisDriver extends Configured implements Tool {
             System.err.println("  -book=true|false     Include book-level trends (default: true)");
             System.err.println("  -overall=true|false  Include overall decade trends (default: true)");
             System.err.println("  -average=true|false  Use average instead of sum for aggregation (default: true)");
+            System.err.println("  -reducers=N          Number of reducers (default: 1)");
+            System.err.println("  -salts=N             Split each overall decade key over N salted keys (default: 1)");
+            System.err.println("  -sorted=true|false   Keep the output sorted by decade across part files (default: false)");
             System.err.println("Example: TrendAnalysisDriver /output-sentiment /output-trends -book=true -overall=true -average=true");
             return -1;
         }
@@ -44,6 +73,9 @@ public class WordTrendAnalysisDriver extends Configured implements Tool {
         boolean includeBookLevel = true;
         boolean includeOverallLevel = true;
         boolean useAverage = true;
+        int reducers = 1;
+        int salts = 1;
+        boolean sorted = false;
         
         // Parse optional arguments
         for (int i = 2; i < args.length; i++) {
@@ -55,6 +87,12 @@ public class WordTrendAnalysisDriver extends Configured implements Tool {
                 includeOverallLevel = Boolean.parseBoolean(arg.substring(9));
             } else if (arg.startsWith("-average=")) {
                 useAverage = Boolean.parseBoolean(arg.substring(9));
+            } else if (arg.startsWith("-reducers=")) {
+                reducers = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("-salts=")) {
+                salts = Integer.parseInt(arg.substring(7));
+            } else if (arg.startsWith("-sorted=")) {
+                sorted = Boolean.parseBoolean(arg.substring(8));
             }
         }
         
@@ -62,39 +100,174 @@ public class WordTrendAnalysisDriver extends Configured implements Tool {
         conf.setBoolean("trend.include.book", includeBookLevel);
         conf.setBoolean("trend.include.overall", includeOverallLevel);
         conf.setBoolean("trend.use.average", useAverage);
+        conf.setInt("trend.overall.salts", salts);
+        Class<? extends InputFormat<?, ?>> inputFormat = inputFormatClass(conf);
+        
+        // Check if output directory exists and delete it if it does
+        Path outputPath = new Path(args[1]);
+        FileSystem fs = outputPath.getFileSystem(conf);
+        if (fs.exists(outputPath)) {
+            fs.delete(outputPath, true);
+            System.out.println("Output directory " + outputPath + " deleted.");
+        }
+        
+        if (salts > 1 || (sorted && reducers > 1)) {
+            return runTwoPhase(conf, new Path(args[0]), inputFormat, outputPath, reducers, sorted);
+        }
         
         Job job = Job.getInstance(conf, "Trend Analysis");
         
         // Set the driver class
         job.setJarByClass(WordTrendAnalysisDriver.class);
         
-        // Set mapper and reducer classes
+        // Set mapper, combiner and reducer classes
         job.setMapperClass(WordTrendAnalysisMapper.class);
+        job.setCombinerClass(WordTrendAnalysisCombiner.class);
         job.setReducerClass(WordTrendAnalysisReducer.class);
         
         // Set map output key and value classes
         job.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
-        job.setMapOutputValueClass(DoubleWritable.class);
+        job.setMapOutputValueClass(TrendStats.class);
+        
+        // Spread the keys of each decade over the reducers
+        job.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        job.setNumReduceTasks(reducers);
         
         // Set final output key and value classes
         job.setOutputKeyClass(Text.class);
         job.setOutputValueClass(Text.class);
         
         // Set input and output paths
+        job.setInputFormatClass(inputFormat);
         FileInputFormat.addInputPath(job, new Path(args[0]));
+        FileOutputFormat.setOutputPath(job, outputPath);
         
-        // Check if output directory exists and delete it if it does
-        Path outputPath = new Path(args[1]);
+        // Submit the job and wait for completion
+        return job.waitForCompletion(true) ? 0 : 1;
+    }
+
+    /**
+     * Build salted partial statistics in a first job, then merge them into the final output
+     */
+    private int runTwoPhase(Configuration conf, Path inputPath, Class<? extends InputFormat<?, ?>> inputFormat,
+            Path outputPath, int reducers, boolean sorted) throws Exception {
         FileSystem fs = outputPath.getFileSystem(conf);
-        if (fs.exists(outputPath)) {
-            fs.delete(outputPath, true);
-            System.out.println("Output directory " + outputPath + " deleted.");
+        Path partialsPath = new Path(outputPath.getParent(), outputPath.getName() + "_partials");
+        if (fs.exists(partialsPath)) {
+            fs.delete(partialsPath, true);
         }
         
-        FileOutputFormat.setOutputPath(job, outputPath);
+        // Phase 1: partial statistics per (salted) key, merged but not finalized
+        Job partials = Job.getInstance(conf, "Trend Analysis: Partials");
+        partials.setJarByClass(WordTrendAnalysisDriver.class);
+        partials.setMapperClass(WordTrendAnalysisMapper.class);
+        partials.setCombinerClass(WordTrendAnalysisCombiner.class);
+        partials.setReducerClass(WordTrendAnalysisCombiner.class);
+        partials.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        partials.setMapOutputValueClass(TrendStats.class);
+        partials.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        partials.setNumReduceTasks(reducers);
+        partials.setOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        partials.setOutputValueClass(TrendStats.class);
+        partials.setOutputFormatClass(SequenceFileOutputFormat.class);
+        partials.setInputFormatClass(inputFormat);
+        FileInputFormat.addInputPath(partials, inputPath);
+        FileOutputFormat.setOutputPath(partials, partialsPath);
         
-        // Submit the job and wait for completion
-        return job.waitForCompletion(true) ? 0 : 1;
+        if (!partials.waitForCompletion(true)) {
+            return 1;
+        }
+        
+        // Phase 2: drop the salts, merge and write the final statistics
+        Job merge = Job.getInstance(conf, "Trend Analysis: Merge");
+        merge.setJarByClass(WordTrendAnalysisDriver.class);
+        merge.setMapperClass(WordTrendMergeMapper.class);
+        merge.setCombinerClass(WordTrendAnalysisCombiner.class);
+        merge.setReducerClass(WordTrendAnalysisReducer.class);
+        merge.setMapOutputKeyClass(WordTrendAnalysisMapper.TrendKey.class);
+        merge.setMapOutputValueClass(TrendStats.class);
+        merge.setNumReduceTasks(reducers);
+        merge.setOutputKeyClass(Text.class);
+        merge.setOutputValueClass(Text.class);
+        merge.setInputFormatClass(SequenceFileInputFormat.class);
+        FileInputFormat.addInputPath(merge, partialsPath);
+        FileOutputFormat.setOutputPath(merge, outputPath);
+        
+        if (sorted && reducers > 1) {
+            // Split the key range at sampled keys so each reducer gets a contiguous range of decades.
+            // The partition file starts with '_' so the merge job does not read it as input.
+            Path partitionFile = new Path(partialsPath, "_partitions");
+            merge.setPartitionerClass(TotalOrderPartitioner.class);
+            TotalOrderPartitioner.setPartitionFile(merge.getConfiguration(), partitionFile);
+            InputSampler.Sampler<WordTrendAnalysisMapper.TrendKey, TrendStats> sampler =
+                    new InputSampler.RandomSampler<>(conf.getDouble("trend.sample.frequency", 0.1),
+                            conf.getInt("trend.sample.max", 10000), 10);
+            // getSample returns an Object[] whatever its declared type
+            Object[] samples = sampler.getSample(new SequenceFileInputFormat<WordTrendAnalysisMapper.TrendKey, TrendStats>(), merge);
+            writePartitionFile(merge, samples, partitionFile);
+        } else {
+            merge.setPartitionerClass(WordTrendAnalysisMapper.TrendKey.TrendPartitioner.class);
+        }
+        
+        boolean success = merge.waitForCompletion(true);
+        
+        // The partial statistics are only needed by the merge
+        fs.delete(partialsPath, true);
+        
+        return success ? 0 : 1;
+    }
+
+    /**
+     * Input format selected by trend.input.format: text (default), sentiment or lemma
+     */
+    private static Class<? extends InputFormat<?, ?>> inputFormatClass(Configuration conf) {
+        String inputFormat = conf.get("trend.input.format", "text");
+        switch (inputFormat) {
+            case "text":
+                return TextInputFormat.class;
+            case "sentiment":
+                return SentimentScoreInputFormat.class;
+            case "lemma":
+                return LemmaFrequencyInputFormat.class;
+            default:
+                throw new IllegalArgumentException("trend.input.format must be text, sentiment or lemma: " + inputFormat);
+        }
+    }
+
+    /**
+     * Write the distinct split points for a TotalOrderPartitioner, taken at even steps through
+     * the sorted samples. InputSampler.writePartitionFile fails when there are fewer distinct
+     * samples than reducers, so here the job gets one reducer per range found instead.
+     */
+    private static void writePartitionFile(Job job, Object[] samples, Path partitionFile)
+            throws IOException {
+        // TrendKey.compareTo orders keys as the registered raw comparator does in the shuffle
+        WordTrendAnalysisMapper.TrendKey[] keys = Arrays.copyOf(samples, samples.length, WordTrendAnalysisMapper.TrendKey[].class);
+        Arrays.sort(keys);
+        
+        int partitions = job.getNumReduceTasks();
+        float step = keys.length / (float) partitions;
+        List<WordTrendAnalysisMapper.TrendKey> splitPoints = new ArrayList<>();
+        for (int i = 1; i < partitions && keys.length > 0; i++) {
+            WordTrendAnalysisMapper.TrendKey candidate = keys[(int) (step * i)];
+            if (splitPoints.isEmpty() || splitPoints.get(splitPoints.size() - 1).compareTo(candidate) < 0) {
+                splitPoints.add(candidate);
+            }
+        }
+        
+        if (splitPoints.size() + 1 < partitions) {
+            System.out.println("Only " + (splitPoints.size() + 1) + " key ranges sampled, using that many reducers.");
+            job.setNumReduceTasks(splitPoints.size() + 1);
+        }
+        
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(job.getConfiguration(),
+                SequenceFile.Writer.file(partitionFile),
+                SequenceFile.Writer.keyClass(WordTrendAnalysisMapper.TrendKey.class),
+                SequenceFile.Writer.valueClass(NullWritable.class))) {
+            for (WordTrendAnalysisMapper.TrendKey splitPoint : splitPoints) {
+                writer.append(splitPoint, NullWritable.get());
+            }
+        }
     }
 
     public static void main(String[] args) throws Exception {
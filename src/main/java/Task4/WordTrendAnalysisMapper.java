@@ -1,22 +1,59 @@
 package Task4;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.DoubleWritable;
-import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import Common.SampledLog;
+import Task2.WordFreqLemmatizationMapper;
+import Task3.WordSentimentScoreMapper;
 
 /**
  * Mapper for trend analysis and aggregation.
  * 
- * Input: Sentiment scores and word frequency data from previous tasks
+ * Input: Sentiment scores and word frequency data from previous tasks, as text lines,
+ *        as (bookKey, score) SequenceFile records from the pipeline, or as typed records from
+ *        SentimentScoreInputFormat ((bookID, year) -> score) or LemmaFrequencyInputFormat
+ *        ((bookID, lemma, year) -> frequency)
  * Output: Key-value pairs where the key is either (bookID, decade) or just decade,
- *         and the value is the sentiment score or word frequency
+ *         and the value is a TrendStats summary of the sentiment scores or word frequencies
+ *
+ * With trend.inmapper.combine=true (default) the statistics are merged per key inside the
+ * mapper and written in cleanup, or earlier once trend.inmapper.max.entries keys are held.
+ * Otherwise every score is emitted as a one-score summary and merged by
+ * WordTrendAnalysisCombiner.
+ *
+ * With trend.overall.salts=N above 1 the overall key of a decade is split into N salted keys,
+ * chosen by book, so the overall statistics of a busy decade are built on up to N reducers.
+ * The salted partial statistics must then be merged by WordTrendMergeMapper in a second job
+ * (see WordTrendAnalysisDriver).
+ *
+ * Records read, skipped and failed are counted in TrendCounters; set debug.sample.every to
+ * log a sample of them (see SampledLog).
  */
-public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnalysisMapper.TrendKey, DoubleWritable> {
+public class WordTrendAnalysisMapper extends Mapper<Object, Writable, WordTrendAnalysisMapper.TrendKey, TrendStats> {
+    
+    /**
+     * Counters of the trend job
+     */
+    public enum TrendCounters {
+        RECORDS_READ,              // Input records seen
+        SKIPPED_MALFORMED,         // Records or keys without the expected fields
+        SKIPPED_BAD_NUMBER,        // Year, score or frequency that is not a number
+        SKIPPED_UNKNOWN_FORMAT,    // Records in none of the accepted formats
+        RECORD_ERRORS,             // Records that failed with an exception
+        IN_MAPPER_FLUSHES          // Flushes of the in-mapper statistics table
+    }
     
     /**
      * Custom composite key class for trend analysis
@@ -25,6 +62,7 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
         private String bookId; // Optional, may be empty for overall decade trends
         private int decade;
         private boolean isOverall; // Flag to indicate if this is an overall decade trend
+        private int salt; // Spreads the overall key of a decade over several reducers, 0 otherwise
         
         // Default constructor required for Hadoop serialization
         public TrendKey() {
@@ -39,9 +77,40 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
         
         // Constructor for overall decade trends
         public TrendKey(int decade) {
+            this(decade, 0);
+        }
+        
+        // Constructor for salted overall decade trends
+        public TrendKey(int decade, int salt) {
             this.bookId = "";
             this.decade = decade;
             this.isOverall = true;
+            this.salt = salt;
+        }
+        
+        public void set(String bookId, int decade) {
+            this.bookId = bookId;
+            this.decade = decade;
+            this.isOverall = false;
+            this.salt = 0;
+        }
+        
+        public void setOverall(int decade) {
+            setOverall(decade, 0);
+        }
+        
+        public void setOverall(int decade, int salt) {
+            this.bookId = "";
+            this.decade = decade;
+            this.isOverall = true;
+            this.salt = salt;
+        }
+        
+        /**
+         * Drop the salt so the partial statistics of all salts of a decade merge again
+         */
+        public void clearSalt() {
+            this.salt = 0;
         }
         
         @Override
@@ -49,6 +118,7 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
             WritableUtils.writeString(out, bookId);
             out.writeInt(decade);
             out.writeBoolean(isOverall);
+            out.writeInt(salt);
         }
         
         @Override
@@ -56,6 +126,7 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
             bookId = WritableUtils.readString(in);
             decade = in.readInt();
             isOverall = in.readBoolean();
+            salt = in.readInt();
         }
         
         @Override
@@ -76,7 +147,8 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
                 return this.bookId.compareTo(other.bookId);
             }
             
-            return 0;
+            // Salted overall keys of the same decade are ordered by salt
+            return Integer.compare(this.salt, other.salt);
         }
         
         @Override
@@ -84,7 +156,7 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
             if (obj instanceof TrendKey) {
                 TrendKey other = (TrendKey) obj;
                 if (this.isOverall && other.isOverall) {
-                    return this.decade == other.decade;
+                    return this.decade == other.decade && this.salt == other.salt;
                 } else if (!this.isOverall && !other.isOverall) {
                     return this.decade == other.decade && this.bookId.equals(other.bookId);
                 }
@@ -95,7 +167,7 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
         
         @Override
         public int hashCode() {
-            return isOverall ? decade : (bookId.hashCode() * 163 + decade);
+            return isOverall ? (decade * 163 + salt) : (bookId.hashCode() * 163 + decade);
         }
         
         @Override
@@ -115,73 +187,216 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
         public boolean isOverall() {
             return isOverall;
         }
+        
+        public int getSalt() {
+            return salt;
+        }
+
+        /**
+         * Raw comparator that orders serialized keys without deserializing them,
+         * using the same order as compareTo (decade, overall first, then bookId or salt).
+         * Layout: [int length][bookId UTF-8][int decade][boolean isOverall][int salt]
+         */
+        public static class Comparator extends WritableComparator {
+            public Comparator() {
+                super(TrendKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                int bookLen1 = Math.max(readInt(b1, s1), 0);
+                int bookLen2 = Math.max(readInt(b2, s2), 0);
+                int decadeStart1 = s1 + 4 + bookLen1;
+                int decadeStart2 = s2 + 4 + bookLen2;
+
+                // First compare by decade
+                int cmp = Integer.compare(readInt(b1, decadeStart1), readInt(b2, decadeStart2));
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Then compare by isOverall flag (overall trends come first)
+                boolean overall1 = b1[decadeStart1 + 4] != 0;
+                boolean overall2 = b2[decadeStart2 + 4] != 0;
+                if (overall1 != overall2) {
+                    return overall1 ? -1 : 1;
+                }
+
+                // Finally compare by bookId (only relevant if both are book-specific)
+                if (!overall1) {
+                    return compareBytes(b1, s1 + 4, bookLen1, b2, s2 + 4, bookLen2);
+                }
+
+                // Salted overall keys of the same decade are ordered by salt
+                return Integer.compare(readInt(b1, decadeStart1 + 5), readInt(b2, decadeStart2 + 5));
+            }
+        }
+
+        /**
+         * Partitioner that spreads the keys of a decade over the reducers.
+         *
+         * The default HashPartitioner sends every overall key to decade % numPartitions, and
+         * decades are multiples of 10, so with 2, 5 or 10 reducers every overall key lands on the
+         * same reducer. The decade number and salt (or book) are mixed instead, so salted overall
+         * keys and the book keys of a busy decade go to different reducers.
+         */
+        public static class TrendPartitioner extends Partitioner<TrendKey, Writable> {
+            @Override
+            public int getPartition(TrendKey key, Writable value, int numPartitions) {
+                int hash = key.isOverall ? (key.decade / 10) * 31 + key.salt
+                        : key.bookId.hashCode() * 31 + key.decade / 10;
+                // Mix the bits so consecutive decades and salts spread evenly
+                hash ^= hash >>> 16;
+                hash *= 0x45d9f3b;
+                hash ^= hash >>> 16;
+                return (hash & Integer.MAX_VALUE) % numPartitions;
+            }
+        }
+
+        static {
+            // Register the raw comparator so the shuffle sort uses it
+            WritableComparator.define(TrendKey.class, new Comparator());
+        }
     }
     
     private boolean includeBookLevel = true;
     private boolean includeOverallLevel = true;
+    private int overallSalts = 1;
+    private SampledLog sampledLog;
+    
+    // In-mapper combining state
+    private boolean inMapperCombine = true;
+    private int maxEntries = 10000;
+    private final Map<TrendKey, TrendStats> stats = new HashMap<>();
+    private final TrendKey outputKey = new TrendKey();
+    private final TrendStats single = new TrendStats();
     
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
         Configuration conf = context.getConfiguration();
+        sampledLog = new SampledLog(WordTrendAnalysisMapper.class, conf);
         
         // Get configuration for which levels to include
         includeBookLevel = conf.getBoolean("trend.include.book", true);
         includeOverallLevel = conf.getBoolean("trend.include.overall", true);
+        
+        // Get configuration for salting the overall keys
+        overallSalts = conf.getInt("trend.overall.salts", 1);
+        if (overallSalts < 1) {
+            throw new IllegalArgumentException("trend.overall.salts must be at least 1: " + overallSalts);
+        }
+        
+        // Get configuration for in-mapper combining
+        inMapperCombine = conf.getBoolean("trend.inmapper.combine", true);
+        maxEntries = conf.getInt("trend.inmapper.max.entries", 10000);
     }
     
     @Override
-    public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
+    public void map(Object key, Writable value, Context context) throws IOException, InterruptedException {
+        context.getCounter(TrendCounters.RECORDS_READ).increment(1);
         try {
-            String line = value.toString();
             String bookId;
             int year;
             double score;
             
             // Process input based on expected format
-            if (line.contains("\t")) {
-                // Format: (bookId,year) [tab] score 
-                // OR: bookId [tab] lemma [tab] year [tab] frequency
-                String[] parts = line.split("\t");
+            if (key instanceof WordSentimentScoreMapper.BookKey) {
+                // Typed record from Task 3: nothing to parse
+                WordSentimentScoreMapper.BookKey bookKey = (WordSentimentScoreMapper.BookKey) key;
+                bookId = bookKey.getBookId();
+                year = bookKey.getYear();
+                score = ((DoubleWritable) value).get();
+            } else if (key instanceof WordFreqLemmatizationMapper.LemmaKey) {
+                // Typed record from Task 2: frequency as score
+                WordFreqLemmatizationMapper.LemmaKey lemmaKey = (WordFreqLemmatizationMapper.LemmaKey) key;
+                bookId = lemmaKey.getBookId();
+                year = lemmaKey.getYear();
+                score = ((IntWritable) value).get();
+            } else if (value instanceof DoubleWritable) {
+                // SequenceFile record from Task 3: (bookId,year) -> score
+                String keyPart = key.toString().trim();
+                if (!keyPart.startsWith("(") || !keyPart.endsWith(")")) {
+                    // Skip malformed keys
+                    sampledLog.event(context, TrendCounters.SKIPPED_MALFORMED, "{} {}", key, value);
+                    return;
+                }
+                String[] keyParts = keyPart.substring(1, keyPart.length() - 1).split(",");
                 
-                if (parts.length < 2) {
-                    return; // Skip malformed lines
+                if (keyParts.length != 2) {
+                    // Skip malformed keys
+                    sampledLog.event(context, TrendCounters.SKIPPED_MALFORMED, "{} {}", key, value);
+                    return;
                 }
                 
-                // Check if this is sentiment score output
-                if (parts[0].startsWith("(") && parts[0].endsWith(")")) {
-                    // Format: (bookId,year) [tab] score
-                    String keyPart = parts[0].substring(1, parts[0].length() - 1);
-                    String[] keyParts = keyPart.split(",");
-                    
-                    if (keyParts.length != 2) {
-                        return; // Skip malformed keys
+                bookId = keyParts[0].trim();
+                
+                try {
+                    year = Integer.parseInt(keyParts[1].trim());
+                } catch (NumberFormatException e) {
+                    // Skip records with invalid years
+                    sampledLog.event(context, TrendCounters.SKIPPED_BAD_NUMBER, "{} {}", key, value);
+                    return;
+                }
+                score = ((DoubleWritable) value).get();
+            } else {
+                String line = value.toString();
+                if (line.contains("\t")) {
+                    // Format: (bookId,year) [tab] score 
+                    // OR: bookId [tab] lemma [tab] year [tab] frequency
+                    String[] parts = line.split("\t");
+                
+                    if (parts.length < 2) {
+                        // Skip malformed lines
+                        sampledLog.event(context, TrendCounters.SKIPPED_MALFORMED, "{} {}", key, value);
+                        return;
                     }
+                
+                    // Check if this is sentiment score output
+                    if (parts[0].startsWith("(") && parts[0].endsWith(")")) {
+                        // Format: (bookId,year) [tab] score
+                        String keyPart = parts[0].substring(1, parts[0].length() - 1);
+                        String[] keyParts = keyPart.split(",");
                     
-                    bookId = keyParts[0].trim();
+                        if (keyParts.length != 2) {
+                            // Skip malformed keys
+                            sampledLog.event(context, TrendCounters.SKIPPED_MALFORMED, "{} {}", key, value);
+                            return;
+                        }
                     
-                    try {
-                        year = Integer.parseInt(keyParts[1].trim());
-                        score = Double.parseDouble(parts[1].trim());
-                    } catch (NumberFormatException e) {
-                        return; // Skip records with invalid numbers
-                    }
-                } 
-                // Check if this is lemma frequency output
-                else if (parts.length >= 4) {
-                    // Format: bookId [tab] lemma [tab] year [tab] frequency
-                    bookId = parts[0].trim();
+                        bookId = keyParts[0].trim();
                     
-                    try {
-                        year = Integer.parseInt(parts[2].trim());
-                        score = Double.parseDouble(parts[3].trim()); // frequency as score
-                    } catch (NumberFormatException e) {
-                        return; // Skip records with invalid numbers
+                        try {
+                            year = Integer.parseInt(keyParts[1].trim());
+                            score = Double.parseDouble(parts[1].trim());
+                        } catch (NumberFormatException e) {
+                            // Skip records with invalid numbers
+                            sampledLog.event(context, TrendCounters.SKIPPED_BAD_NUMBER, "{} {}", key, value);
+                            return;
+                        }
+                    } 
+                    // Check if this is lemma frequency output
+                    else if (parts.length >= 4) {
+                        // Format: bookId [tab] lemma [tab] year [tab] frequency
+                        bookId = parts[0].trim();
+                    
+                        try {
+                            year = Integer.parseInt(parts[2].trim());
+                            score = Double.parseDouble(parts[3].trim()); // frequency as score
+                        } catch (NumberFormatException e) {
+                            // Skip records with invalid numbers
+                            sampledLog.event(context, TrendCounters.SKIPPED_BAD_NUMBER, "{} {}", key, value);
+                            return;
+                        }
+                    } else {
+                        // Skip unrecognized format
+                        sampledLog.event(context, TrendCounters.SKIPPED_UNKNOWN_FORMAT, "{} {}", key, value);
+                        return;
                     }
                 } else {
-                    return; // Skip unrecognized format
+                    // Skip unrecognized format
+                    sampledLog.event(context, TrendCounters.SKIPPED_UNKNOWN_FORMAT, "{} {}", key, value);
+                    return;
                 }
-            } else {
-                return; // Skip unrecognized format
             }
             
             // Calculate the decade
@@ -189,19 +404,62 @@ public class WordTrendAnalysisMapper extends Mapper<Object, Text, WordTrendAnaly
             
             // Emit book-level trend if configured
             if (includeBookLevel) {
-                TrendKey bookDecadeKey = new TrendKey(bookId, decade);
-                context.write(bookDecadeKey, new DoubleWritable(score));
+                outputKey.set(bookId, decade);
+                emit(score, context);
             }
             
             // Emit overall decade trend if configured
             if (includeOverallLevel) {
-                TrendKey overallDecadeKey = new TrendKey(decade);
-                context.write(overallDecadeKey, new DoubleWritable(score));
+                // The same book always gets the same salt, so in-mapper combining still applies
+                int salt = overallSalts > 1 ? (bookId.hashCode() & Integer.MAX_VALUE) % overallSalts : 0;
+                outputKey.setOverall(decade, salt);
+                emit(score, context);
             }
             
         } catch (Exception e) {
-            System.err.println("Error processing input: " + value);
-            e.printStackTrace();
+            // Count the error and continue processing other records
+            sampledLog.error(context, TrendCounters.RECORD_ERRORS, value, e);
+        }
+    }
+    
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        flush(context);
+    }
+    
+    /**
+     * Add the score to the statistics of outputKey, either in the in-mapper table or directly
+     */
+    private void emit(double score, Context context) throws IOException, InterruptedException {
+        if (!inMapperCombine) {
+            single.clear();
+            single.add(score);
+            context.write(outputKey, single);
+            return;
+        }
+        
+        TrendStats keyStats = stats.get(outputKey);
+        if (keyStats == null) {
+            if (stats.size() >= maxEntries) {
+                // Table is full: flush it and start over
+                flush(context);
+            }
+            TrendKey key = outputKey.isOverall() ? new TrendKey(outputKey.getDecade(), outputKey.getSalt())
+                    : new TrendKey(outputKey.getBookId(), outputKey.getDecade());
+            keyStats = new TrendStats();
+            stats.put(key, keyStats);
+        }
+        keyStats.add(score);
+    }
+    
+    private void flush(Context context) throws IOException, InterruptedException {
+        if (stats.isEmpty()) {
+            return;
+        }
+        context.getCounter(TrendCounters.IN_MAPPER_FLUSHES).increment(1);
+        for (Map.Entry<TrendKey, TrendStats> entry : stats.entrySet()) {
+            context.write(entry.getKey(), entry.getValue());
         }
+        stats.clear();
     }
-}
\ No newline at end of file
+}
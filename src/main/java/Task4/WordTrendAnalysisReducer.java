@@ -3,7 +3,6 @@ package Task4;
 import java.io.IOException;
 
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.io.DoubleWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Reducer;
 
@@ -11,13 +10,15 @@ import org.apache.hadoop.mapreduce.Reducer;
  * Reducer for trend analysis and aggregation.
  * 
  * Input: Key-value pairs where key is either (bookID, decade) or decade,
- *        and value is sentiment score or word frequency
+ *        and values are partial TrendStats of the sentiment scores or word frequencies
  * Output: Consolidated dataset summarizing trends per decade, with option
- *         to break down by individual books
+ *         to break down by individual books:
+ *         score (average or sum) [tab] count [tab] min [tab] max [tab] variance [tab] stddev
  */
-public class WordTrendAnalysisReducer extends Reducer<WordTrendAnalysisMapper.TrendKey, DoubleWritable, Text, Text> {
+public class WordTrendAnalysisReducer extends Reducer<WordTrendAnalysisMapper.TrendKey, TrendStats, Text, Text> {
     
     private boolean useAverage = true;
+    private final TrendStats merged = new TrendStats();
     
     @Override
     protected void setup(Context context) throws IOException, InterruptedException {
@@ -28,27 +29,18 @@ public class WordTrendAnalysisReducer extends Reducer<WordTrendAnalysisMapper.Tr
     }
     
     @Override
-    public void reduce(WordTrendAnalysisMapper.TrendKey key, Iterable<DoubleWritable> values, Context context) 
+    public void reduce(WordTrendAnalysisMapper.TrendKey key, Iterable<TrendStats> values, Context context) 
             throws IOException, InterruptedException {
         
-        double sum = 0.0;
-        int count = 0;
-        double min = Double.MAX_VALUE;
-        double max = Double.MIN_VALUE;
-        
-        // Sum up all values and track statistics
-        for (DoubleWritable val : values) {
-            double value = val.get();
-            sum += value;
-            count++;
-            
-            // Track min and max
-            if (value < min) min = value;
-            if (value > max) max = value;
+        // Merge the partial statistics for this key
+        merged.clear();
+        for (TrendStats val : values) {
+            merged.merge(val);
         }
+        long count = merged.getCount();
         
         // Calculate final score based on configuration
-        double finalScore = useAverage ? (count > 0 ? sum / count : 0.0) : sum;
+        double finalScore = useAverage ? merged.getMean() : merged.getSum();
         
         // Prepare output key
         Text outputKey = new Text(key.toString());
@@ -58,10 +50,12 @@ public class WordTrendAnalysisReducer extends Reducer<WordTrendAnalysisMapper.Tr
         outputValueBuilder.append(String.format("%.2f", finalScore));
         outputValueBuilder.append("\t").append(count); // Add count of data points
         
-        // Include min and max if we have values
+        // Include min, max and spread if we have values
         if (count > 0) {
-            outputValueBuilder.append("\t").append(String.format("%.2f", min));
-            outputValueBuilder.append("\t").append(String.format("%.2f", max));
+            outputValueBuilder.append("\t").append(String.format("%.2f", merged.getMin()));
+            outputValueBuilder.append("\t").append(String.format("%.2f", merged.getMax()));
+            outputValueBuilder.append("\t").append(String.format("%.2f", merged.getVariance()));
+            outputValueBuilder.append("\t").append(String.format("%.2f", merged.getStdDev()));
         }
         
         Text outputValue = new Text(outputValueBuilder.toString());
@@ -69,4 +63,4 @@ public class WordTrendAnalysisReducer extends Reducer<WordTrendAnalysisMapper.Tr
         // Emit final result
         context.write(outputKey, outputValue);
     }
-}
\ No newline at end of file
+}
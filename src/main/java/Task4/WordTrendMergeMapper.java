@@ -0,0 +1,24 @@
+package Task4;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.Mapper;
+
+/**
+ * Mapper for the merge phase of salted trend analysis.
+ *
+ * Input: (TrendKey, TrendStats) SequenceFile records written by the salted first phase,
+ *        where overall keys carry a salt
+ * Output: The same records with the salt dropped, so WordTrendAnalysisCombiner and
+ *         WordTrendAnalysisReducer merge the partial statistics of all salts of a decade
+ */
+public class WordTrendMergeMapper extends Mapper<WordTrendAnalysisMapper.TrendKey, TrendStats,
+        WordTrendAnalysisMapper.TrendKey, TrendStats> {
+
+    @Override
+    public void map(WordTrendAnalysisMapper.TrendKey key, TrendStats value, Context context)
+            throws IOException, InterruptedException {
+        key.clearSalt();
+        context.write(key, value);
+    }
+}
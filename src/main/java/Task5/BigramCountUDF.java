@@ -0,0 +1,71 @@
+package task5;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedExpressions;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorConverter;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Counts the bigrams of a line, or the occurrences of one given bigram, with a BigramScanner.
+ *
+ * Unlike BigramUDTF this returns a plain int per row, so Hive can run it in vectorized
+ * execution: the @VectorizedExpressions classes evaluate a whole batch of rows directly on the
+ * column bytes. A UDTF always falls back to row-at-a-time execution.
+ *
+ * CREATE TEMPORARY FUNCTION bigram_count AS 'task5.BigramCountUDF';
+ * SELECT year, SUM(bigram_count(clean_text, 'project_gutenberg')) FROM lemmatized_words GROUP BY year;
+ */
+@Description(name = "bigram_count",
+        value = "_FUNC_(text[, bigram]) - Number of bigrams in text, or of occurrences of the given bigram (as word1_word2)")
+@VectorizedExpressions({VectorBigramCount.Col.class, VectorBigramCount.ColScalar.class})
+public class BigramCountUDF extends GenericUDF {
+    private PrimitiveObjectInspectorConverter.TextConverter converter;
+    private byte[] target;
+
+    private final BigramScanner scanner = new BigramScanner();
+    private final IntWritable result = new IntWritable();
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        checkArgsSize(arguments, 1, 2);
+        checkArgPrimitive(arguments, 0);
+        converter = new PrimitiveObjectInspectorConverter.TextConverter((PrimitiveObjectInspector) arguments[0]);
+
+        if (arguments.length == 2) {
+            if (!(arguments[1] instanceof ConstantObjectInspector)) {
+                throw new UDFArgumentTypeException(1, "bigram_count takes a constant bigram as its second argument");
+            }
+            String bigram = getConstantStringValue(arguments, 1);
+            target = bigram == null ? null : bigram.getBytes(StandardCharsets.UTF_8);
+        }
+        return PrimitiveObjectInspectorFactory.writableIntObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Text line = converter.convert(arguments[0].get());
+        if (line == null || (arguments.length == 2 && target == null)) {
+            return null;
+        }
+
+        scanner.reset(line.getBytes(), 0, line.getLength());
+        result.set(target == null ? scanner.count() : scanner.count(target));
+        return result;
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return getStandardDisplayString("bigram_count", children);
+    }
+}
@@ -0,0 +1,147 @@
+package task5;
+
+/**
+ * Finds the bigrams of a line the way BigramUDF does, directly on its UTF-8 bytes.
+ *
+ * Words are separated by ASCII whitespace, ASCII letters are lowercased and every other byte
+ * is dropped, so "Hello, World!" gives "hello_world". A word with no letters left breaks the
+ * chain: no bigram is formed across it. The scanner is reset for every line and reuses its
+ * buffers, so scanning allocates nothing once they have grown to the longest bigram.
+ */
+public final class BigramScanner {
+    private byte[] bytes;
+    private int position;
+    private int end;
+
+    private byte[] word = new byte[32];
+    private int wordLength;
+    private byte[] previous = new byte[32];
+    private int previousLength;
+
+    private byte[] bigram = new byte[64];
+    private int bigramLength;
+
+    /**
+     * Start scanning the given bytes
+     */
+    public void reset(byte[] bytes, int start, int length) {
+        this.bytes = bytes;
+        this.position = start;
+        this.end = start + length;
+        this.previousLength = 0;
+        this.bigramLength = 0;
+    }
+
+    /**
+     * Advance to the next bigram; false once the line is exhausted
+     */
+    public boolean next() {
+        while (nextWord()) {
+            if (wordLength == 0) {
+                previousLength = 0;
+                continue;
+            }
+
+            boolean pair = previousLength > 0;
+            if (pair) {
+                // previous _ word
+                int length = previousLength + 1 + wordLength;
+                if (bigram.length < length) {
+                    bigram = new byte[Math.max(length, bigram.length * 2)];
+                }
+                System.arraycopy(previous, 0, bigram, 0, previousLength);
+                bigram[previousLength] = '_';
+                System.arraycopy(word, 0, bigram, previousLength + 1, wordLength);
+                bigramLength = length;
+            }
+
+            byte[] swap = previous;
+            previous = word;
+            previousLength = wordLength;
+            word = swap;
+
+            if (pair) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bytes of the current bigram; valid up to getLength() until the next call to next()
+     */
+    public byte[] getBytes() {
+        return bigram;
+    }
+
+    public int getLength() {
+        return bigramLength;
+    }
+
+    /**
+     * Number of bigrams left in the line
+     */
+    public int count() {
+        int count = 0;
+        while (next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Number of bigrams left in the line equal to the given bytes
+     */
+    public int count(byte[] target) {
+        int count = 0;
+        while (next()) {
+            if (bigramLength == target.length && equalsBigram(target)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean equalsBigram(byte[] target) {
+        for (int i = 0; i < bigramLength; i++) {
+            if (bigram[i] != target[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the next whitespace-separated word into word[], keeping only its letters
+     */
+    private boolean nextWord() {
+        while (position < end && isWhitespace(bytes[position])) {
+            position++;
+        }
+        if (position == end) {
+            return false;
+        }
+
+        wordLength = 0;
+        while (position < end && !isWhitespace(bytes[position])) {
+            byte b = bytes[position++];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            } else if (b < 'a' || b > 'z') {
+                continue;
+            }
+            if (wordLength == word.length) {
+                byte[] grown = new byte[word.length * 2];
+                System.arraycopy(word, 0, grown, 0, wordLength);
+                word = grown;
+            }
+            word[wordLength++] = b;
+        }
+        return true;
+    }
+
+    // The characters matched by \s in BigramUDF's split
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+}
@@ -0,0 +1,165 @@
+package task5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorConverter;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+
+/**
+ * Table-generating replacement for BigramUDF: emits one (bigram, count) row per distinct
+ * bigram of the input line, so no map has to be built and exploded.
+ *
+ * Bigrams are found with a BigramScanner and counted per line in an open-addressing table over
+ * a reused byte buffer. The forwarded Text and IntWritable are reused between rows, so a line
+ * costs no allocations once the buffers have grown.
+ *
+ * CREATE TEMPORARY FUNCTION bigram_rows AS 'task5.BigramUDTF';
+ * SELECT bigram, SUM(cnt) FROM lemmatized_words
+ * LATERAL VIEW bigram_rows(clean_text) b AS bigram, cnt GROUP BY bigram;
+ */
+@Description(name = "bigram_rows",
+        value = "_FUNC_(text) - Emits a (bigram, count) row for every distinct bigram of text")
+public class BigramUDTF extends GenericUDTF {
+    private PrimitiveObjectInspectorConverter.TextConverter converter;
+    private final BigramScanner scanner = new BigramScanner();
+
+    // Bigrams of the current line, stored back to back in data
+    private byte[] data = new byte[1024];
+    private int dataLength = 0;
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] counts = new int[64];
+    private int[] hashes = new int[64];
+    private int entries = 0;
+
+    // Open-addressing index into the entries: entry + 1, or 0 when free
+    private int[] slots = new int[128];
+    private int[] entrySlots = new int[64];
+
+    private final Text bigram = new Text();
+    private final IntWritable count = new IntWritable();
+    private final Object[] row = {bigram, count};
+
+    @Override
+    public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
+        List<? extends StructField> arguments = argOIs.getAllStructFieldRefs();
+        if (arguments.size() != 1) {
+            throw new UDFArgumentException("bigram_rows takes exactly one argument");
+        }
+        ObjectInspector input = arguments.get(0).getFieldObjectInspector();
+        if (input.getCategory() != ObjectInspector.Category.PRIMITIVE) {
+            throw new UDFArgumentException("bigram_rows takes a string argument, got " + input.getTypeName());
+        }
+        converter = new PrimitiveObjectInspectorConverter.TextConverter((PrimitiveObjectInspector) input);
+
+        List<String> names = new ArrayList<>();
+        List<ObjectInspector> fields = new ArrayList<>();
+        names.add("bigram");
+        fields.add(PrimitiveObjectInspectorFactory.writableStringObjectInspector);
+        names.add("count");
+        fields.add(PrimitiveObjectInspectorFactory.writableIntObjectInspector);
+        return ObjectInspectorFactory.getStandardStructObjectInspector(names, fields);
+    }
+
+    @Override
+    public void process(Object[] args) throws HiveException {
+        Text line = converter.convert(args[0]);
+        if (line == null || line.getLength() == 0) {
+            return;
+        }
+
+        scanner.reset(line.getBytes(), 0, line.getLength());
+        while (scanner.next()) {
+            add(scanner.getBytes(), scanner.getLength());
+        }
+
+        for (int i = 0; i < entries; i++) {
+            bigram.set(data, offsets[i], lengths[i]);
+            count.set(counts[i]);
+            forward(row);
+        }
+        clear();
+    }
+
+    @Override
+    public void close() throws HiveException {
+    }
+
+    private void add(byte[] bytes, int length) {
+        int hash = WritableComparator.hashBytes(bytes, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int entry = slots[slot] - 1;
+            if (hashes[entry] == hash && equalsEntry(entry, bytes, length)) {
+                counts[entry]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (entries == offsets.length) {
+            offsets = Arrays.copyOf(offsets, entries * 2);
+            lengths = Arrays.copyOf(lengths, entries * 2);
+            counts = Arrays.copyOf(counts, entries * 2);
+            hashes = Arrays.copyOf(hashes, entries * 2);
+            entrySlots = Arrays.copyOf(entrySlots, entries * 2);
+        }
+        if (data.length < dataLength + length) {
+            data = Arrays.copyOf(data, Math.max(dataLength + length, data.length * 2));
+        }
+        System.arraycopy(bytes, 0, data, dataLength, length);
+        offsets[entries] = dataLength;
+        lengths[entries] = length;
+        counts[entries] = 1;
+        hashes[entries] = hash;
+        entrySlots[entries] = slot;
+        slots[slot] = ++entries;
+        dataLength += length;
+
+        // Keep the table at most half full
+        if (entries * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+    }
+
+    private boolean equalsEntry(int entry, byte[] bytes, int length) {
+        return WritableComparator.compareBytes(data, offsets[entry], lengths[entry], bytes, 0, length) == 0;
+    }
+
+    private void rehash(int size) {
+        slots = new int[size];
+        int mask = size - 1;
+        for (int entry = 0; entry < entries; entry++) {
+            int slot = hashes[entry] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+            entrySlots[entry] = slot;
+        }
+    }
+
+    // Only the used slots are cleared, so a long line does not slow down the short ones after it
+    private void clear() {
+        for (int i = 0; i < entries; i++) {
+            slots[entrySlots[i]] = 0;
+        }
+        entries = 0;
+        dataLength = 0;
+    }
+}
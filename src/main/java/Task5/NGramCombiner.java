@@ -0,0 +1,37 @@
+package task5;
+
+import java.io.IOException;
+
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Combiner for n-gram counting.
+ *
+ * Input: Key-value pairs where key is (bookID or overall, decade, n-gram hash), and values are
+ *        partial counts of that n-gram
+ * Output: The same key with the partial counts summed, keeping the n-gram text
+ *
+ * NGramReducer cannot be used as the combiner because it groups a whole (bookID, decade) into
+ * one call, keeps only the top n-grams and emits the final Text output. The combiner is grouped
+ * by the full key (the sort comparator), so it only ever merges counts of one n-gram.
+ */
+public class NGramCombiner extends Reducer<NGramMapper.NGramKey, NGramCount, NGramMapper.NGramKey, NGramCount> {
+
+    private final NGramCount merged = new NGramCount();
+
+    @Override
+    public void reduce(NGramMapper.NGramKey key, Iterable<NGramCount> values, Context context)
+            throws IOException, InterruptedException {
+
+        // Sum the partial counts for this key
+        int sum = 0;
+        String ngram = null;
+        for (NGramCount val : values) {
+            sum += val.getCount();
+            ngram = val.getNGram();
+        }
+
+        merged.set(sum, ngram);
+        context.write(key, merged);
+    }
+}
@@ -0,0 +1,53 @@
+package task5;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Number of occurrences of the n-gram behind an NGramKey hash, with its text.
+ *
+ * The key only carries the hash of the n-gram, so the words travel in the value, once per
+ * map-side count rather than once per occurrence. Partial counts of the same key are merged by
+ * adding them; the text of any of them can be kept.
+ */
+public class NGramCount implements Writable {
+    private int count;
+    private String ngram;
+
+    public NGramCount() {
+    }
+
+    public void set(int count, String ngram) {
+        this.count = count;
+        this.ngram = ngram;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getNGram() {
+        return ngram;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, count);
+        WritableUtils.writeString(out, ngram);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        count = WritableUtils.readVInt(in);
+        ngram = WritableUtils.readString(in);
+    }
+
+    @Override
+    public String toString() {
+        return ngram + "\t" + count;
+    }
+}
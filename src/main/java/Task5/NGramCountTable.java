@@ -0,0 +1,126 @@
+package task5;
+
+import java.io.IOException;
+
+/**
+ * Bounded open-addressing table of (bookId or overall, decade, n-gram hash) -> count used for
+ * in-mapper combining.
+ *
+ * Entries are keyed on the 64-bit n-gram hash, as the map output is, so counting an n-gram that
+ * is already in the table allocates nothing; its text is only built when it is first added. On a
+ * hash hit the stored text is compared with the current words, and a different n-gram with the
+ * same hash is counted as a collision and merged into the entry, as NGramReducer does.
+ * The table never grows: once it holds maxEntries keys the mapper has to flush it.
+ */
+class NGramCountTable {
+
+    /**
+     * The words of the current n-gram: builds its text when it is added to the table, and
+     * compares it with the text of an entry whose hash it shares
+     */
+    interface Words {
+        String text();
+
+        boolean matches(String ngram);
+    }
+
+    /**
+     * Receives the aggregated entries when the table is flushed
+     */
+    interface Sink {
+        void accept(String bookId, boolean overall, int decade, long hash, String ngram, int count)
+                throws IOException, InterruptedException;
+    }
+
+    private final int maxEntries;
+    private final int mask;
+    private final String[] bookIds;
+    private final boolean[] overall;
+    private final int[] decades;
+    private final long[] hashes;
+    private final String[] ngrams;
+    private final int[] counts;
+    private int size;
+    private long collisions; // Since the last drainCollisions
+
+    NGramCountTable(int maxEntries) {
+        this.maxEntries = maxEntries;
+
+        // Keep the load factor at or below 0.5 so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(maxEntries, 8) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.bookIds = new String[capacity];
+        this.overall = new boolean[capacity];
+        this.decades = new int[capacity];
+        this.hashes = new long[capacity];
+        this.ngrams = new String[capacity];
+        this.counts = new int[capacity];
+    }
+
+    /**
+     * Count one occurrence of an n-gram
+     *
+     * @return false if the key is new and the table is full; the caller must flush and retry
+     */
+    boolean add(String bookId, boolean isOverall, int decade, long hash, Words words) {
+        int slot = slot(bookId, isOverall, decade, hash);
+        while (counts[slot] != 0) {
+            if (hashes[slot] == hash && decades[slot] == decade && overall[slot] == isOverall
+                    && (isOverall || bookIds[slot].equals(bookId))) {
+                if (!words.matches(ngrams[slot])) {
+                    collisions++;
+                }
+                counts[slot]++;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= maxEntries) {
+            return false;
+        }
+
+        bookIds[slot] = bookId;
+        overall[slot] = isOverall;
+        decades[slot] = decade;
+        hashes[slot] = hash;
+        ngrams[slot] = words.text();
+        counts[slot] = 1;
+        size++;
+        return true;
+    }
+
+    /**
+     * Hand every entry to the sink and empty the table
+     */
+    void flush(Sink sink) throws IOException, InterruptedException {
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] != 0) {
+                sink.accept(bookIds[slot], overall[slot], decades[slot], hashes[slot], ngrams[slot], counts[slot]);
+                bookIds[slot] = null;
+                ngrams[slot] = null;
+                counts[slot] = 0;
+            }
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Different n-grams met under the same key since the last call
+     */
+    long drainCollisions() {
+        long drained = collisions;
+        collisions = 0;
+        return drained;
+    }
+
+    private int slot(String bookId, boolean isOverall, int decade, long hash) {
+        // The n-gram hash is already well mixed; fold in the rest of the key
+        long h = hash + (isOverall ? 0 : bookId.hashCode()) * 0x9E3779B97F4A7C15L + decade;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,123 @@
+package task5;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Driver for the N-gram Counting MapReduce job, the batch counterpart of the Hive BigramUDF.
+ *
+ * This job:
+ * 1. Takes the cleaned dataset from Task 1 (output/part-r-00000)
+ * 2. Counts every n-gram of n consecutive words per book and decade, and per decade overall
+ * 3. Keeps the top k n-grams of each (book, decade) and decade
+ *
+ * Command: hadoop jar yourjar.jar task5.NGramDriver output/part-r-00000 output-ngrams -n=3 -top=50
+ */
+public class NGramDriver extends Configured implements Tool {
+
+    @Override
+    public int run(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: NGramDriver <input path> <output path> [options]");
+            System.err.println("Options:");
+            System.err.println("  -n=N                 Words per n-gram, 2 to 5 (default: 2)");
+            System.err.println("  -top=K               N-grams kept per book and decade (default: 20)");
+            System.err.println("  -book=true|false     Include book-level n-grams (default: true)");
+            System.err.println("  -overall=true|false  Include overall decade n-grams (default: true)");
+            System.err.println("  -reducers=N          Number of reducers (default: 1)");
+            System.err.println("Example: NGramDriver output/part-r-00000 output-ngrams -n=3 -top=50");
+            return -1;
+        }
+
+        // Create and configure a new job
+        Configuration conf = getConf();
+
+        // Set default options
+        int n = 2;
+        int topK = 20;
+        boolean includeBookLevel = true;
+        boolean includeOverallLevel = true;
+        int reducers = 1;
+
+        // Parse optional arguments
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+
+            if (arg.startsWith("-n=")) {
+                n = Integer.parseInt(arg.substring(3));
+            } else if (arg.startsWith("-top=")) {
+                topK = Integer.parseInt(arg.substring(5));
+            } else if (arg.startsWith("-book=")) {
+                includeBookLevel = Boolean.parseBoolean(arg.substring(6));
+            } else if (arg.startsWith("-overall=")) {
+                includeOverallLevel = Boolean.parseBoolean(arg.substring(9));
+            } else if (arg.startsWith("-reducers=")) {
+                reducers = Integer.parseInt(arg.substring(10));
+            }
+        }
+
+        if (n < 2 || n > 5) {
+            throw new IllegalArgumentException("-n must be between 2 and 5: " + n);
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("-top must be at least 1: " + topK);
+        }
+
+        // Set options in configuration
+        conf.setInt("ngram.n", n);
+        conf.setInt("ngram.top.k", topK);
+        conf.setBoolean("ngram.include.book", includeBookLevel);
+        conf.setBoolean("ngram.include.overall", includeOverallLevel);
+
+        // Check if output directory exists and delete it if it does
+        Path outputPath = new Path(args[1]);
+        FileSystem fs = outputPath.getFileSystem(conf);
+        if (fs.exists(outputPath)) {
+            fs.delete(outputPath, true);
+            System.out.println("Output directory " + outputPath + " deleted.");
+        }
+
+        Job job = Job.getInstance(conf, "N-gram Counting");
+
+        // Set the driver class
+        job.setJarByClass(NGramDriver.class);
+
+        // Set mapper, combiner and reducer classes
+        job.setMapperClass(NGramMapper.class);
+        job.setCombinerClass(NGramCombiner.class);
+        job.setReducerClass(NGramReducer.class);
+
+        // Set map output key and value classes
+        job.setMapOutputKeyClass(NGramMapper.NGramKey.class);
+        job.setMapOutputValueClass(NGramCount.class);
+
+        // Send all the n-grams of a (book, decade) to one reduce call, sorted by hash
+        job.setPartitionerClass(NGramMapper.NGramKey.NGramPartitioner.class);
+        job.setGroupingComparatorClass(NGramMapper.NGramKey.GroupingComparator.class);
+        job.setNumReduceTasks(reducers);
+
+        // Set final output key and value classes
+        job.setOutputKeyClass(Text.class);
+        job.setOutputValueClass(Text.class);
+
+        // Set input and output paths
+        FileInputFormat.addInputPath(job, new Path(args[0]));
+        FileOutputFormat.setOutputPath(job, outputPath);
+
+        // Submit the job and wait for completion
+        return job.waitForCompletion(true) ? 0 : 1;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exitCode = ToolRunner.run(new NGramDriver(), args);
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,531 @@
+package task5;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+import Common.SampledLog;
+
+/**
+ * Mapper for n-gram counting.
+ *
+ * Input: The cleaned dataset from Task 1 in format bookId,title,year [tab] cleaned_text
+ *        (or bookId,title,year [tab] segmentNo [tab] cleaned_text when segmented)
+ * Output: Key-value pairs with key as (bookID or overall, decade, n-gram hash) and value as the
+ *         count of the n-gram with its text (NGramCount)
+ *
+ * N-grams are runs of ngram.n (2 to 5, default 2) consecutive words of a record. They are never
+ * turned into strings to be counted: each word is hashed once, straight from the record bytes,
+ * and the hash of the last n words is kept as a rolling polynomial hash. The text of an n-gram
+ * (words joined by "_", as BigramUDF does) is only built the first time the mapper sees it.
+ *
+ * With ngram.inmapper.combine=true (default) counts are aggregated inside the mapper in a
+ * bounded table that is flushed when it reaches ngram.inmapper.max.entries keys and in cleanup.
+ * Otherwise every occurrence is emitted with count 1 and left to NGramCombiner.
+ *
+ * Records read, skipped and failed are counted in NGramCounters; set debug.sample.every to log
+ * a sample of them (see SampledLog).
+ */
+public class NGramMapper extends Mapper<Object, Text, NGramMapper.NGramKey, NGramCount> {
+
+    /**
+     * Counters of the n-gram job
+     */
+    public enum NGramCounters {
+        RECORDS_READ,            // Input records seen
+        SKIPPED_MALFORMED,       // Records without a tab between metadata and text
+        SKIPPED_BAD_METADATA,    // Metadata without bookId,title,year
+        SKIPPED_BAD_YEAR,        // Year that is not a number
+        RECORD_ERRORS,           // Records that failed with an exception
+        IN_MAPPER_FLUSHES,       // Flushes of the in-mapper count table
+        HASH_COLLISIONS          // Different n-grams with the same hash met in a mapper or reducer
+    }
+
+    /**
+     * Composite key of (bookID, decade) or decade, and the 64-bit hash of an n-gram.
+     *
+     * Keys sort by decade, overall keys first, then bookID and hash, so a reducer sees all the
+     * n-grams of one (bookID, decade) or decade together (see GroupingComparator), with the
+     * partial counts of each n-gram next to each other.
+     */
+    public static class NGramKey implements WritableComparable<NGramKey> {
+        private String bookId; // Empty for overall decade keys
+        private int decade;
+        private boolean isOverall;
+        private long hash;
+
+        // Default constructor required for Hadoop serialization
+        public NGramKey() {
+        }
+
+        public void set(String bookId, int decade, long hash) {
+            this.bookId = bookId;
+            this.decade = decade;
+            this.isOverall = false;
+            this.hash = hash;
+        }
+
+        public void setOverall(int decade, long hash) {
+            this.bookId = "";
+            this.decade = decade;
+            this.isOverall = true;
+            this.hash = hash;
+        }
+
+        @Override
+        public void write(java.io.DataOutput out) throws IOException {
+            WritableUtils.writeString(out, bookId);
+            out.writeInt(decade);
+            out.writeBoolean(isOverall);
+            out.writeLong(hash);
+        }
+
+        @Override
+        public void readFields(java.io.DataInput in) throws IOException {
+            bookId = WritableUtils.readString(in);
+            decade = in.readInt();
+            isOverall = in.readBoolean();
+            hash = in.readLong();
+        }
+
+        @Override
+        public int compareTo(NGramKey other) {
+            int cmp = compareGroup(other);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Long.compare(this.hash, other.hash);
+        }
+
+        /**
+         * Order of the (bookID, decade) or decade part of the key, ignoring the hash
+         */
+        int compareGroup(NGramKey other) {
+            int cmp = Integer.compare(this.decade, other.decade);
+            if (cmp != 0) {
+                return cmp;
+            }
+
+            // Overall keys come first
+            if (this.isOverall != other.isOverall) {
+                return this.isOverall ? -1 : 1;
+            }
+            return this.bookId.compareTo(other.bookId);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof NGramKey) {
+                NGramKey other = (NGramKey) obj;
+                return this.decade == other.decade && this.isOverall == other.isOverall
+                        && this.hash == other.hash && this.bookId.equals(other.bookId);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return bookId.hashCode() * 163 + decade * 13 + Long.hashCode(hash);
+        }
+
+        /**
+         * The (bookID, decade) or decade of the key, as printed by Task 4
+         */
+        @Override
+        public String toString() {
+            return isOverall ? String.valueOf(decade) + "s" : "(" + bookId + "," + decade + "s)";
+        }
+
+        public String getBookId() {
+            return bookId;
+        }
+
+        public int getDecade() {
+            return decade;
+        }
+
+        public boolean isOverall() {
+            return isOverall;
+        }
+
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Compare serialized keys without deserializing them, in the same order as compareTo.
+         * Layout: [int length][bookId UTF-8][int decade][boolean isOverall][long hash]
+         */
+        public static class Comparator extends WritableComparator {
+            public Comparator() {
+                super(NGramKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                int cmp = compareGroup(b1, s1, b2, s2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+                return Long.compare(readLong(b1, s1 + l1 - 8), readLong(b2, s2 + l2 - 8));
+            }
+
+            static int compareGroup(byte[] b1, int s1, byte[] b2, int s2) {
+                int bookLen1 = Math.max(readInt(b1, s1), 0);
+                int bookLen2 = Math.max(readInt(b2, s2), 0);
+                int decadeStart1 = s1 + 4 + bookLen1;
+                int decadeStart2 = s2 + 4 + bookLen2;
+
+                // First compare by decade
+                int cmp = Integer.compare(readInt(b1, decadeStart1), readInt(b2, decadeStart2));
+                if (cmp != 0) {
+                    return cmp;
+                }
+
+                // Then by isOverall flag (overall keys come first)
+                boolean overall1 = b1[decadeStart1 + 4] != 0;
+                boolean overall2 = b2[decadeStart2 + 4] != 0;
+                if (overall1 != overall2) {
+                    return overall1 ? -1 : 1;
+                }
+
+                // Then by bookId bytes
+                return compareBytes(b1, s1 + 4, bookLen1, b2, s2 + 4, bookLen2);
+            }
+        }
+
+        /**
+         * Groups the keys of one (bookID, decade) or decade into one reduce call, whatever
+         * their n-gram hash
+         */
+        public static class GroupingComparator extends WritableComparator {
+            public GroupingComparator() {
+                super(NGramKey.class);
+            }
+
+            @Override
+            public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                return Comparator.compareGroup(b1, s1, b2, s2);
+            }
+
+            @Override
+            @SuppressWarnings("rawtypes")
+            public int compare(WritableComparable a, WritableComparable b) {
+                return ((NGramKey) a).compareGroup((NGramKey) b);
+            }
+        }
+
+        /**
+         * Partitioner on the (bookID, decade) or decade only, so all the n-grams of a group
+         * reach the same reducer. Decades are mixed with the book as in Task 4's TrendPartitioner,
+         * so the overall keys of consecutive decades go to different reducers.
+         */
+        public static class NGramPartitioner extends Partitioner<NGramKey, NGramCount> {
+            @Override
+            public int getPartition(NGramKey key, NGramCount value, int numPartitions) {
+                int hash = key.isOverall ? key.decade / 10 : key.bookId.hashCode() * 31 + key.decade / 10;
+                // Mix the bits so consecutive decades spread evenly
+                hash ^= hash >>> 16;
+                hash *= 0x45d9f3b;
+                hash ^= hash >>> 16;
+                return (hash & Integer.MAX_VALUE) % numPartitions;
+            }
+        }
+
+        static {
+            // Register the raw comparator so the shuffle sort uses it
+            WritableComparator.define(NGramKey.class, new Comparator());
+        }
+    }
+
+    // Multiplier of the rolling hash: h(w1..wn) = sum of wordHash(wi) * P^(n-i)
+    private static final long P = 0x9E3779B97F4A7C15L;
+
+    private int n = 2;
+    private long topPower;          // P^(n-1), to take the oldest word out of the hash
+    private boolean includeBookLevel = true;
+    private boolean includeOverallLevel = true;
+    private SampledLog sampledLog;
+
+    // The last n words of the current record, as a ring buffer
+    private long[] wordHashes;
+    private int[] wordStarts;
+    private int[] wordEnds;
+    private byte[] recordBytes;
+    private byte[] textBuffer = new byte[128];
+
+    // Reused output objects
+    private final NGramKey outputKey = new NGramKey();
+    private final NGramCount outputCount = new NGramCount();
+
+    // In-mapper combining state
+    private boolean inMapperCombine = true;
+    private NGramCountTable counts;
+    private NGramCountTable.Sink flushSink;
+    private NGramCountTable.Words currentWords;
+    private int ringEnd;
+
+    @Override
+    protected void setup(final Context context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+        sampledLog = new SampledLog(NGramMapper.class, conf);
+
+        // Get configuration for the n-gram length
+        n = conf.getInt("ngram.n", 2);
+        if (n < 2 || n > 5) {
+            throw new IllegalArgumentException("ngram.n must be between 2 and 5: " + n);
+        }
+        topPower = 1;
+        for (int i = 1; i < n; i++) {
+            topPower *= P;
+        }
+        wordHashes = new long[n];
+        wordStarts = new int[n];
+        wordEnds = new int[n];
+        currentWords = new NGramCountTable.Words() {
+            @Override
+            public String text() {
+                return currentText();
+            }
+
+            @Override
+            public boolean matches(String ngram) {
+                return currentTextEquals(ngram);
+            }
+        };
+
+        // Get configuration for which levels to include
+        includeBookLevel = conf.getBoolean("ngram.include.book", true);
+        includeOverallLevel = conf.getBoolean("ngram.include.overall", true);
+
+        // Get configuration for in-mapper combining
+        inMapperCombine = conf.getBoolean("ngram.inmapper.combine", true);
+        if (inMapperCombine) {
+            counts = new NGramCountTable(conf.getInt("ngram.inmapper.max.entries", 100000));
+            flushSink = (bookId, overall, decade, hash, ngram, count) -> {
+                if (overall) {
+                    outputKey.setOverall(decade, hash);
+                } else {
+                    outputKey.set(bookId, decade, hash);
+                }
+                outputCount.set(count, ngram);
+                context.write(outputKey, outputCount);
+            };
+        }
+    }
+
+    @Override
+    public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
+        context.getCounter(NGramCounters.RECORDS_READ).increment(1);
+        try {
+            // Parse input line from Task 1 output
+            // Format: bookId,title,year [tab] cleaned_text
+            //     or: bookId,title,year [tab] segmentNo [tab] cleaned_text
+            // (cleaned text never contains tabs)
+            byte[] bytes = value.getBytes();
+            int length = value.getLength();
+            int tab = indexOfTab(bytes, 0, length);
+            if (tab < 0) {
+                // Skip malformed lines
+                sampledLog.event(context, NGramCounters.SKIPPED_MALFORMED, "{}", value);
+                return;
+            }
+            int segmentTab = indexOfTab(bytes, tab + 1, length);
+            int textStart = (segmentTab < 0 ? tab : segmentTab) + 1;
+
+            // Book ID is everything before the first comma (older Task 1 output has a trailing "]"),
+            // year is everything after the last comma
+            String metaData = Text.decode(bytes, 0, tab).trim();
+            int firstComma = metaData.indexOf(',');
+            int lastComma = metaData.lastIndexOf(',');
+            if (firstComma < 0 || lastComma == firstComma) {
+                // Skip malformed metadata
+                sampledLog.event(context, NGramCounters.SKIPPED_BAD_METADATA, "{}", metaData);
+                return;
+            }
+
+            String bookId = metaData.substring(0, firstComma).replace("]", "").trim();
+            int year;
+            try {
+                year = Integer.parseInt(metaData.substring(lastComma + 1).trim());
+            } catch (NumberFormatException e) {
+                // Skip invalid year values
+                sampledLog.event(context, NGramCounters.SKIPPED_BAD_YEAR, "{}", metaData);
+                return;
+            }
+            int decade = (year / 10) * 10;
+
+            countNGrams(bytes, textStart, length, bookId, decade, context);
+        } catch (Exception e) {
+            // Count the error and continue processing other records
+            sampledLog.error(context, NGramCounters.RECORD_ERRORS, key, e);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        if (inMapperCombine) {
+            flush(context);
+        }
+    }
+
+    /**
+     * Hash every whitespace-separated word of bytes[start, end) once and count each run of n
+     * words by its rolling hash
+     */
+    private void countNGrams(byte[] bytes, int start, int end, String bookId, int decade, Context context)
+            throws IOException, InterruptedException {
+        recordBytes = bytes;
+        long hash = 0;
+        int words = 0;
+        int position = start;
+        while (true) {
+            while (position < end && isWhitespace(bytes[position])) {
+                position++;
+            }
+            if (position == end) {
+                break;
+            }
+
+            // FNV-1a over the word bytes, finished with a 64-bit mix
+            int wordStart = position;
+            long wordHash = 0xcbf29ce484222325L;
+            while (position < end && !isWhitespace(bytes[position])) {
+                wordHash = (wordHash ^ (bytes[position++] & 0xff)) * 0x100000001b3L;
+            }
+            wordHash = mix(wordHash);
+
+            // Slide the window: drop the oldest word, shift, add the new one
+            int slot = words % n;
+            if (words >= n) {
+                hash -= wordHashes[slot] * topPower;
+            }
+            hash = hash * P + wordHash;
+            wordHashes[slot] = wordHash;
+            wordStarts[slot] = wordStart;
+            wordEnds[slot] = position;
+            words++;
+
+            if (words >= n) {
+                ringEnd = slot;
+                emit(bookId, decade, hash, context);
+            }
+        }
+    }
+
+    /**
+     * Count one occurrence of the current n-gram for the configured levels
+     */
+    private void emit(String bookId, int decade, long hash, Context context)
+            throws IOException, InterruptedException {
+        if (includeBookLevel) {
+            count(bookId, false, decade, hash, context);
+        }
+        if (includeOverallLevel) {
+            count(bookId, true, decade, hash, context);
+        }
+    }
+
+    private void count(String bookId, boolean overall, int decade, long hash, Context context)
+            throws IOException, InterruptedException {
+        if (!inMapperCombine) {
+            // Emit key-value pair with count 1
+            if (overall) {
+                outputKey.setOverall(decade, hash);
+            } else {
+                outputKey.set(bookId, decade, hash);
+            }
+            outputCount.set(1, currentText());
+            context.write(outputKey, outputCount);
+            return;
+        }
+
+        if (!counts.add(bookId, overall, decade, hash, currentWords)) {
+            // Table is full: flush it and start over
+            flush(context);
+            counts.add(bookId, overall, decade, hash, currentWords);
+        }
+    }
+
+    /**
+     * Text of the n-gram ending at ringEnd, words joined by "_"
+     */
+    private String currentText() {
+        int length = 0;
+        for (int i = 1; i <= n; i++) {
+            int slot = (ringEnd + i) % n;
+            int wordLength = wordEnds[slot] - wordStarts[slot];
+            if (textBuffer.length < length + wordLength + 1) {
+                textBuffer = Arrays.copyOf(textBuffer, (length + wordLength + 1) * 2);
+            }
+            if (length > 0) {
+                textBuffer[length++] = '_';
+            }
+            System.arraycopy(recordBytes, wordStarts[slot], textBuffer, length, wordLength);
+            length += wordLength;
+        }
+        return new String(textBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the n-gram ending at ringEnd has the given text, compared in place with the record
+     * bytes; only a word that is not ASCII has the text built
+     */
+    private boolean currentTextEquals(String ngram) {
+        int position = 0;
+        for (int i = 1; i <= n; i++) {
+            int slot = (ringEnd + i) % n;
+            if (i > 1 && (position >= ngram.length() || ngram.charAt(position++) != '_')) {
+                return false;
+            }
+            for (int b = wordStarts[slot]; b < wordEnds[slot]; b++) {
+                if (recordBytes[b] < 0) {
+                    return currentText().equals(ngram);
+                }
+                if (position >= ngram.length() || ngram.charAt(position++) != recordBytes[b]) {
+                    return false;
+                }
+            }
+        }
+        return position == ngram.length();
+    }
+
+    private void flush(Context context) throws IOException, InterruptedException {
+        context.getCounter(NGramCounters.HASH_COLLISIONS).increment(counts.drainCollisions());
+        if (counts.size() > 0) {
+            context.getCounter(NGramCounters.IN_MAPPER_FLUSHES).increment(1);
+            counts.flush(flushSink);
+        }
+    }
+
+    // Finalizer of MurmurHash3, so similar words get unrelated hashes
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int indexOfTab(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == '\t') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
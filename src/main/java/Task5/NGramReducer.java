@@ -0,0 +1,115 @@
+package task5;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Reducer;
+
+/**
+ * Reducer for n-gram counting.
+ *
+ * Input: All the partial n-gram counts of one (bookID, decade) or decade in a single call
+ *        (NGramKey.GroupingComparator), sorted by n-gram hash
+ * Output: The ngram.top.k (default 20) most frequent n-grams of each (bookID, decade) or decade,
+ *         most frequent first, one per line: key [tab] n-gram [tab] count
+ *
+ * Hadoop updates the key while the values are iterated, so the partial counts of one n-gram
+ * arrive one after another and are summed as they stream past. Only the current top k are held,
+ * in a min-heap, so a decade with millions of distinct n-grams needs no more memory than one
+ * with a few.
+ */
+public class NGramReducer extends Reducer<NGramMapper.NGramKey, NGramCount, Text, Text> {
+
+    /**
+     * A counted n-gram; the heap drops the least frequent first, and the later of equal ones
+     */
+    private static final class Entry {
+        final String ngram;
+        final int count;
+
+        Entry(String ngram, int count) {
+            this.ngram = ngram;
+            this.count = count;
+        }
+    }
+
+    private static final Comparator<Entry> LEAST_FREQUENT_FIRST = (a, b) -> a.count != b.count
+            ? Integer.compare(a.count, b.count) : b.ngram.compareTo(a.ngram);
+
+    private int topK = 20;
+    private PriorityQueue<Entry> top;
+    private final Text outputKey = new Text();
+    private final Text outputValue = new Text();
+
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+
+        // Get configuration for the number of n-grams kept per key
+        topK = conf.getInt("ngram.top.k", 20);
+        if (topK < 1) {
+            throw new IllegalArgumentException("ngram.top.k must be at least 1: " + topK);
+        }
+        top = new PriorityQueue<>(topK + 1, LEAST_FREQUENT_FIRST);
+    }
+
+    @Override
+    public void reduce(NGramMapper.NGramKey key, Iterable<NGramCount> values, Context context)
+            throws IOException, InterruptedException {
+        top.clear();
+        long hash = 0;
+        String ngram = null;
+        int sum = 0;
+
+        for (NGramCount val : values) {
+            if (ngram != null && key.getHash() == hash) {
+                if (!ngram.equals(val.getNGram())) {
+                    // Two n-grams with the same hash: their counts are merged under the first
+                    context.getCounter(NGramMapper.NGramCounters.HASH_COLLISIONS).increment(1);
+                }
+                sum += val.getCount();
+                continue;
+            }
+
+            // A new n-gram starts: the previous one is complete
+            if (ngram != null) {
+                offer(ngram, sum);
+            }
+            hash = key.getHash();
+            ngram = val.getNGram();
+            sum = val.getCount();
+        }
+        if (ngram != null) {
+            offer(ngram, sum);
+        }
+
+        // Write the kept n-grams, most frequent first
+        List<Entry> entries = new ArrayList<>(top);
+        Collections.sort(entries, Collections.reverseOrder(LEAST_FREQUENT_FIRST));
+        outputKey.set(key.toString());
+        for (Entry entry : entries) {
+            outputValue.set(entry.ngram + "\t" + entry.count);
+            context.write(outputKey, outputValue);
+        }
+    }
+
+    private void offer(String ngram, int count) {
+        if (top.size() < topK) {
+            top.add(new Entry(ngram, count));
+            return;
+        }
+
+        // Replace the least frequent kept n-gram if this one ranks above it
+        Entry least = top.peek();
+        if (count > least.count || (count == least.count && ngram.compareTo(least.ngram) < 0)) {
+            top.poll();
+            top.add(new Entry(ngram, count));
+        }
+    }
+}
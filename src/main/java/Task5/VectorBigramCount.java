@@ -0,0 +1,174 @@
+package task5;
+
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorExpressionDescriptor;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.hive.ql.exec.vector.expressions.VectorExpression;
+
+/**
+ * Vectorized bigram_count: scans every selected row of a string column batch in place and
+ * writes the counts to a long column. Col counts all bigrams, ColScalar one constant bigram.
+ */
+public abstract class VectorBigramCount extends VectorExpression {
+    private static final long serialVersionUID = 1L;
+
+    private int colNum;
+    private int outputColumn;
+
+    // Not part of the serialized plan; created on the first batch
+    private transient BigramScanner scanner;
+
+    protected VectorBigramCount() {
+    }
+
+    protected VectorBigramCount(int colNum, int outputColumn) {
+        this.colNum = colNum;
+        this.outputColumn = outputColumn;
+    }
+
+    /**
+     * Count in the line the scanner has been reset to
+     */
+    protected abstract long count(BigramScanner scanner);
+
+    @Override
+    public void evaluate(VectorizedRowBatch batch) {
+        if (childExpressions != null) {
+            evaluateChildren(batch);
+        }
+        if (scanner == null) {
+            scanner = new BigramScanner();
+        }
+
+        BytesColumnVector input = (BytesColumnVector) batch.cols[colNum];
+        LongColumnVector output = (LongColumnVector) batch.cols[outputColumn];
+        int n = batch.size;
+        if (n == 0) {
+            return;
+        }
+
+        if (input.isRepeating) {
+            output.isRepeating = true;
+            output.noNulls = input.noNulls;
+            output.isNull[0] = !input.noNulls && input.isNull[0];
+            if (!output.isNull[0]) {
+                output.vector[0] = count(input, 0);
+            }
+            return;
+        }
+
+        output.isRepeating = false;
+        output.noNulls = input.noNulls;
+        int[] selected = batch.selected;
+        for (int j = 0; j < n; j++) {
+            int i = batch.selectedInUse ? selected[j] : j;
+            if (!input.noNulls && input.isNull[i]) {
+                output.isNull[i] = true;
+            } else {
+                output.isNull[i] = false;
+                output.vector[i] = count(input, i);
+            }
+        }
+    }
+
+    private long count(BytesColumnVector input, int i) {
+        scanner.reset(input.vector[i], input.start[i], input.length[i]);
+        return count(scanner);
+    }
+
+    @Override
+    public int getOutputColumn() {
+        return outputColumn;
+    }
+
+    @Override
+    public String getOutputType() {
+        return "int";
+    }
+
+    public int getColNum() {
+        return colNum;
+    }
+
+    public void setColNum(int colNum) {
+        this.colNum = colNum;
+    }
+
+    public void setOutputColumn(int outputColumn) {
+        this.outputColumn = outputColumn;
+    }
+
+    /**
+     * bigram_count(column)
+     */
+    public static class Col extends VectorBigramCount {
+        private static final long serialVersionUID = 1L;
+
+        public Col() {
+        }
+
+        public Col(int colNum, int outputColumn) {
+            super(colNum, outputColumn);
+        }
+
+        @Override
+        protected long count(BigramScanner scanner) {
+            return scanner.count();
+        }
+
+        @Override
+        public String vectorExpressionParameters() {
+            return "col " + getColNum();
+        }
+
+        @Override
+        public VectorExpressionDescriptor.Descriptor getDescriptor() {
+            return new VectorExpressionDescriptor.Builder()
+                    .setMode(VectorExpressionDescriptor.Mode.PROJECTION)
+                    .setNumArguments(1)
+                    .setArgumentTypes(VectorExpressionDescriptor.ArgumentType.STRING_FAMILY)
+                    .setInputExpressionTypes(VectorExpressionDescriptor.InputExpressionType.COLUMN)
+                    .build();
+        }
+    }
+
+    /**
+     * bigram_count(column, 'constant bigram')
+     */
+    public static class ColScalar extends VectorBigramCount {
+        private static final long serialVersionUID = 1L;
+
+        private byte[] bigram;
+
+        public ColScalar() {
+        }
+
+        public ColScalar(int colNum, byte[] bigram, int outputColumn) {
+            super(colNum, outputColumn);
+            this.bigram = bigram;
+        }
+
+        @Override
+        protected long count(BigramScanner scanner) {
+            return scanner.count(bigram);
+        }
+
+        @Override
+        public String vectorExpressionParameters() {
+            return "col " + getColNum() + ", val " + displayUtf8Bytes(bigram);
+        }
+
+        @Override
+        public VectorExpressionDescriptor.Descriptor getDescriptor() {
+            return new VectorExpressionDescriptor.Builder()
+                    .setMode(VectorExpressionDescriptor.Mode.PROJECTION)
+                    .setNumArguments(2)
+                    .setArgumentTypes(VectorExpressionDescriptor.ArgumentType.STRING_FAMILY,
+                            VectorExpressionDescriptor.ArgumentType.STRING_FAMILY)
+                    .setInputExpressionTypes(VectorExpressionDescriptor.InputExpressionType.COLUMN,
+                            VectorExpressionDescriptor.InputExpressionType.SCALAR)
+                    .build();
+        }
+    }
+}